@@ -0,0 +1,92 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import de.fracturedassemblies.saveorganizer.services.ParallelGzipOutputStream;
+import de.fracturedassemblies.saveorganizer.services.Tar;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archiving a directory of saves in memory, tar with parallel gzip against a single threaded {@link ZipOutputStream} at the same
+ * level. The saves are mostly zero filled with short random runs, which compresses about like real saves do, the random saves of
+ * {@link SyntheticLibrary} would not compress at all. Output goes to a null stream, so only compression is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ArchiveBenchmark {
+    private static final int SAVES = 4;
+    private static final int LEVEL = 6;
+
+    private byte[][] saves;
+
+    /**
+     * The compression threads, a state of its own so the parallelism only multiplies the parallel benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Compressor {
+        @Param({"1", "4", "8"})
+        public int parallelism;
+
+        private ExecutorService executor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.executor = Executors.newFixedThreadPool(this.parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.executor.shutdown();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(0);
+        this.saves = new byte[SAVES][];
+        for (int save = 0; save < SAVES; save++) {
+            this.saves[save] = new byte[SyntheticLibrary.SAVE_SIZE];
+            for (int offset = 0; offset < SyntheticLibrary.SAVE_SIZE; offset += 4096) {
+                int length = Math.min(random.nextInt(512), SyntheticLibrary.SAVE_SIZE - offset);
+                for (int i = 0; i < length; i++) {
+                    this.saves[save][offset + i] = (byte) random.nextInt(16);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void parallelGzipTar(Compressor compressor) throws IOException {
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(OutputStream.nullOutputStream(), compressor.executor,
+                compressor.parallelism, LEVEL);
+        Tar.Writer tar = new Tar.Writer(gzip);
+        for (int save = 0; save < SAVES; save++) {
+            tar.putEntry("Benchmark/" + SyntheticLibrary.fileName(save) + ".sl2", this.saves[save].length, 0);
+            tar.write(this.saves[save], 0, this.saves[save].length);
+        }
+        tar.finish();
+        gzip.close();
+    }
+
+    @Benchmark
+    public void zipOutputStream() throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(OutputStream.nullOutputStream())) {
+            zip.setLevel(LEVEL);
+            for (int save = 0; save < SAVES; save++) {
+                zip.putNextEntry(new ZipEntry("Benchmark/" + SyntheticLibrary.fileName(save) + ".sl2"));
+                zip.write(this.saves[save]);
+                zip.closeEntry();
+            }
+        }
+    }
+}
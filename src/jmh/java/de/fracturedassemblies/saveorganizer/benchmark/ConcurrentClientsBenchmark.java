@@ -0,0 +1,65 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1,000 concurrent clients against the running server on a large library, with request handling and file operations on platform
+ * or on virtual threads. Throughput and the sampled latency distribution, including its tail, are reported per mode. Virtual
+ * threads need a Java 21 runtime, on Java 17 both modes use platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1000)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class ConcurrentClientsBenchmark {
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"100000"})
+    public int files;
+
+    private Path root;
+    private SaveOrganizerContext context;
+    private HttpClient client;
+    private HttpRequest listing;
+    private HttpRequest enrichedListing;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.root = Files.createTempDirectory("save-organizer-jmh");
+        SyntheticLibrary.create(this.root, this.files);
+        this.context = SaveOrganizerContext.startServer(this.root, "spring.threads.virtual.enabled=" + this.virtualThreads);
+        this.client = HttpClient.newHttpClient();
+        this.listing = HttpRequest.newBuilder(URI.create(this.context.getBaseUri() + "/int/api/1.0/savefiles")).build();
+        this.enrichedListing = HttpRequest.newBuilder(URI.create(this.context.getBaseUri() + "/int/api/1.0/savefiles?enriched=true")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.context.close();
+        SyntheticLibrary.delete(this.root);
+    }
+
+    @Benchmark
+    public int listSaveFiles() throws Exception {
+        return this.client.send(this.listing, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * The enriched listing reads save metadata from disk for every save that is not cached yet, so requests block on file I/O.
+     */
+    @Benchmark
+    public int listEnrichedSaveFiles() throws Exception {
+        return this.client.send(this.enrichedListing, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
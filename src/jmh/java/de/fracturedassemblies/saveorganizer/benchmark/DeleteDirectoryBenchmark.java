@@ -0,0 +1,55 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting a whole directory of saves. Every iteration deletes one freshly generated and indexed directory, so each measurement is a
+ * single shot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class DeleteDirectoryBenchmark {
+    private static final String DIRECTORY = "Doomed";
+
+    @Param({"100", "10000"})
+    public int files;
+
+    private Path root;
+    private Path liveSave;
+    private SaveOrganizerContext context;
+    private FileOrganizerService fileOrganizerService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.root = Files.createTempDirectory("save-organizer-jmh");
+        this.liveSave = SyntheticLibrary.create(this.root, 0);
+        this.context = SaveOrganizerContext.start(this.root);
+        this.fileOrganizerService = this.context.getBean(FileOrganizerService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createDirectory() throws Exception {
+        SyntheticLibrary.fill(this.root.resolve(DIRECTORY), this.files, this.liveSave);
+        this.fileOrganizerService.loadSaveFiles();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.context.close();
+        SyntheticLibrary.delete(this.root);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> deleteDirectory() {
+        return this.fileOrganizerService.deleteDirectory(DIRECTORY);
+    }
+}
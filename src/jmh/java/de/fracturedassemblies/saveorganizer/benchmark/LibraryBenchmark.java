@@ -0,0 +1,68 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.fracturedassemblies.saveorganizer.data.SaveFileResult;
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations whose cost grows with the size of the library: a full rescan, sequential or with directories listed in parallel,
+ * serializing the listing and renaming a save, which updates the index of a library of that size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LibraryBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int files;
+
+    @Param({"1", "8"})
+    public int scanParallelism;
+
+    private Path root;
+    private SaveOrganizerContext context;
+    private FileOrganizerService fileOrganizerService;
+    private ObjectMapper objectMapper;
+    private boolean renamed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.root = Files.createTempDirectory("save-organizer-jmh");
+        SyntheticLibrary.create(this.root, this.files);
+        this.context = SaveOrganizerContext.start(this.root, "save.scan.parallelism=" + this.scanParallelism);
+        this.fileOrganizerService = this.context.getBean(FileOrganizerService.class);
+        this.objectMapper = this.context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.context.close();
+        SyntheticLibrary.delete(this.root);
+    }
+
+    @Benchmark
+    public SaveFileResult loadSaveFiles() {
+        this.fileOrganizerService.loadSaveFiles();
+        return this.fileOrganizerService.getSaveFiles();
+    }
+
+    @Benchmark
+    public byte[] serializeSaveFileResult() throws Exception {
+        return this.objectMapper.writeValueAsBytes(this.fileOrganizerService.getSaveFiles());
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> renameFile() {
+        String from = this.renamed ? "renamed" : SyntheticLibrary.fileName(0);
+        String to = this.renamed ? SyntheticLibrary.fileName(0) : "renamed";
+        this.renamed = !this.renamed;
+        return this.fileOrganizerService.renameFile(SyntheticLibrary.directoryName(0), from, to);
+    }
+}
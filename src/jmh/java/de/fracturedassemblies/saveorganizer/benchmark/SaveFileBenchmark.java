@@ -0,0 +1,62 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshotting and restoring a full size save with both store modes. {@link #loadFileCopy()} is the plain {@link Files#copy} the live save used to be
+ * restored with, as a baseline for what the atomic replacement with backup in {@link #loadFile()} costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SaveFileBenchmark {
+    private static final String SNAPSHOT_DIRECTORY = "Snapshots";
+
+    @Param({"copy", "dedup"})
+    public String storeMode;
+
+    private Path root;
+    private Path storedSave;
+    private SaveOrganizerContext context;
+    private FileOrganizerService fileOrganizerService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.root = Files.createTempDirectory("save-organizer-jmh");
+        this.storedSave = this.root.resolve(SNAPSHOT_DIRECTORY).resolve("stored.sl2");
+        SyntheticLibrary.create(this.root, 0);
+        SyntheticLibrary.createSave(this.storedSave, 2);
+        this.context = SaveOrganizerContext.start(this.root, "save.store.mode=" + this.storeMode);
+        this.fileOrganizerService = this.context.getBean(FileOrganizerService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.context.close();
+        SyntheticLibrary.delete(this.root);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> saveFile() {
+        return this.fileOrganizerService.saveFile(SNAPSHOT_DIRECTORY, "snapshot");
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> loadFile() {
+        return this.fileOrganizerService.loadFile(SNAPSHOT_DIRECTORY, "stored");
+    }
+
+    @Benchmark
+    public Path loadFileCopy() throws Exception {
+        return Files.copy(this.storedSave, this.root.resolve(SyntheticLibrary.LIVE_SAVE), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
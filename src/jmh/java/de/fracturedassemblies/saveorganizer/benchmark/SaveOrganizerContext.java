@@ -0,0 +1,75 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import de.fracturedassemblies.saveorganizer.SaveOrganizerInterfaceApplication;
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The application without its web server, pointed at a generated library. Services are wired exactly as in production, only
+ * logging is turned down so it does not dominate the measurements.
+ */
+final class SaveOrganizerContext implements AutoCloseable {
+    private static final long STARTUP_TIMEOUT_MILLIS = 60_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private SaveOrganizerContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    static SaveOrganizerContext start(Path root, String... properties) throws InterruptedException {
+        return start(root, WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Starts the application with its web server on a random port, see {@link #getBaseUri()}.
+     */
+    static SaveOrganizerContext startServer(Path root, String... properties) throws InterruptedException {
+        String[] serverProperties = Arrays.copyOf(properties, properties.length + 1);
+        serverProperties[properties.length] = "server.port=0";
+        return start(root, WebApplicationType.SERVLET, serverProperties);
+    }
+
+    private static SaveOrganizerContext start(Path root, WebApplicationType type, String... properties) throws InterruptedException {
+        String path = root.toAbsolutePath().toString().replace('\\', '/');
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SaveOrganizerInterfaceApplication.class)
+                .web(type)
+                .logStartupInfo(false)
+                .properties("save.file.path.windows=" + path, "save.file.path.linux=" + path, "save.file.path.mac=" + path,
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+        SaveOrganizerContext organizer = new SaveOrganizerContext(context);
+        // The save file path is picked up by a scheduled task right after startup.
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        FileOrganizerService service = organizer.getBean(FileOrganizerService.class);
+        while (!service.getSaveFilePath().getStatusCode().is2xxSuccessful()) {
+            if (System.currentTimeMillis() > deadline) {
+                context.close();
+                throw new IllegalStateException("Save file path was not initialized.");
+            }
+            Thread.sleep(10);
+        }
+        service.loadSaveFiles();
+        return organizer;
+    }
+
+    String getBaseUri() {
+        return "http://localhost:" + this.context.getEnvironment().getProperty("local.server.port")
+                + this.context.getEnvironment().getProperty("server.servlet.context-path", "");
+    }
+
+    <T> T getBean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        this.context.close();
+    }
+}
@@ -0,0 +1,176 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Startup of the plain boot jar, the extracted jar with its CDS archive and the native image, each started as its own process in
+ * the prod profile. Measured is the time from launching the process until {@code /savefiles} answers with the saves of a generated
+ * library, and the resident memory of the process at that point. Every variant is started once unmeasured first, so the library
+ * is in the page cache and the index catalog exists, as on a machine the tool ran on before. Variants that were not built are
+ * skipped. Not a JMH benchmark, JMH cannot time a process it does not run in; run it with {@code ./gradlew startupBenchmark}.
+ */
+public final class StartupBenchmark {
+    private static final int FILES = Integer.getInteger("startup.files", 10_000);
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final long STARTUP_TIMEOUT_MILLIS = 120_000;
+
+    private record Result(String variant, long[] startupMillis, long[] residentKilobytes) {
+        long medianStartupMillis() {
+            return median(this.startupMillis);
+        }
+
+        long medianResidentKilobytes() {
+            return median(this.residentKilobytes);
+        }
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = System.getProperty("startup.java", "java");
+        Path jar = Path.of(System.getProperty("startup.jar"));
+        Path cds = Path.of(System.getProperty("startup.cds"));
+        Path nativeImage = Path.of(System.getProperty("startup.native"));
+        Path results = Path.of(System.getProperty("startup.results"));
+
+        Path root = Files.createTempDirectory("save-organizer-startup");
+        try {
+            SyntheticLibrary.create(root, FILES);
+            List<Result> measured = new ArrayList<>();
+            measured.add(measure("jar", root, List.of(java, "-jar", jar.toString()), null));
+            Path cdsJar = cds.resolve(jar.getFileName());
+            if (Files.exists(cds.resolve("application.jsa")) && Files.exists(cdsJar)) {
+                measured.add(measure("cds", root, List.of(java, "-XX:SharedArchiveFile=application.jsa", "-jar", cdsJar.getFileName().toString()), cds));
+            } else {
+                System.out.println("No CDS archive in " + cds + ", run ./gradlew cdsArchive first.");
+            }
+            Path executable = Files.exists(nativeImage) ? nativeImage : nativeImage.resolveSibling(nativeImage.getFileName() + ".exe");
+            if (Files.exists(executable)) {
+                measured.add(measure("native", root, List.of(executable.toString()), null));
+            } else {
+                System.out.println("No native image at " + nativeImage + ", build it with ./gradlew -Pnative nativeCompile.");
+            }
+
+            for (Result result : measured) {
+                System.out.printf(Locale.ROOT, "%-8s first listing after %6d ms, resident memory %8d kB (median of %d runs)%n", result.variant(),
+                        result.medianStartupMillis(), result.medianResidentKilobytes(), RUNS);
+            }
+            write(results, measured);
+            System.out.println("Results written to " + results);
+        } finally {
+            SyntheticLibrary.delete(root);
+        }
+    }
+
+    private static Result measure(String variant, Path root, List<String> command, Path workingDirectory) throws Exception {
+        start(root, command, workingDirectory, new long[1], new long[1], 0);
+        long[] startupMillis = new long[RUNS];
+        long[] residentKilobytes = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            start(root, command, workingDirectory, startupMillis, residentKilobytes, run);
+        }
+        return new Result(variant, startupMillis, residentKilobytes);
+    }
+
+    private static void start(Path root, List<String> command, Path workingDirectory, long[] startupMillis, long[] residentKilobytes, int run)
+            throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String path = root.toAbsolutePath().toString().replace('\\', '/');
+        List<String> arguments = new ArrayList<>(command);
+        arguments.addAll(List.of("--server.port=" + port, "--spring.profiles.active=prod", "--logging.level.root=WARN",
+                "--save.file.path.windows=" + path, "--save.file.path.linux=" + path, "--save.file.path.mac=" + path));
+        ProcessBuilder builder = new ProcessBuilder(arguments)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        if (workingDirectory != null) {
+            builder.directory(workingDirectory.toFile());
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest listing = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/save-organizer-interface/int/api/1.0/savefiles"))
+                .build();
+        String firstDirectory = SyntheticLibrary.directoryName(0);
+        long started = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(command + " exited with " + process.exitValue() + " before answering.");
+                }
+                if ((System.nanoTime() - started) / 1_000_000 > STARTUP_TIMEOUT_MILLIS) {
+                    throw new IllegalStateException(command + " did not list the saves in time.");
+                }
+                try {
+                    HttpResponse<String> response = client.send(listing, HttpResponse.BodyHandlers.ofString());
+                    // Before the save path is loaded the listing is empty, it only counts once the library shows up
+                    if (response.statusCode() == 200 && response.body().contains(firstDirectory)) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            startupMillis[run] = (System.nanoTime() - started) / 1_000_000;
+            residentKilobytes[run] = residentKilobytes(process.pid());
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * The resident set of the process, from procfs on Linux and from ps elsewhere.
+     */
+    private static long residentKilobytes(long pid) throws IOException, InterruptedException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (Files.exists(status)) {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        }
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", String.valueOf(pid)).start();
+        String rss = new String(ps.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+        ps.waitFor();
+        return rss.isEmpty() ? -1 : Long.parseLong(rss);
+    }
+
+    private static void write(Path results, List<Result> measured) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < measured.size(); i++) {
+            Result result = measured.get(i);
+            json.append(String.format(Locale.ROOT, "  {\"variant\": \"%s\", \"files\": %d, \"startupMillis\": %s, \"residentKilobytes\": %s, "
+                            + "\"medianStartupMillis\": %d, \"medianResidentKilobytes\": %d}%s%n", result.variant(), FILES,
+                    Arrays.toString(result.startupMillis()), Arrays.toString(result.residentKilobytes()), result.medianStartupMillis(),
+                    result.medianResidentKilobytes(), i < measured.size() - 1 ? "," : ""));
+        }
+        json.append("]\n");
+        Files.createDirectories(results.getParent());
+        Files.writeString(results, json);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,109 @@
+package de.fracturedassemblies.saveorganizer.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates save libraries for the benchmarks. The live save is a full size BND4 container with Elden Ring's entry layout and valid
+ * checksums. Stored saves are hard links to it where the file system allows, so a library of 100k saves costs listing and metadata
+ * work like the real thing without taking terabytes of disk.
+ */
+final class SyntheticLibrary {
+    static final String LIVE_SAVE = "ER0000.sl2";
+    static final int SAVE_SIZE = 28_967_888;
+    static final int FILES_PER_DIRECTORY = 1000;
+    private static final int SLOT_COUNT = 10;
+    private static final int SLOT_SIZE = 0x280010;
+    private static final int USER_DATA_SIZE = 0x60010;
+    private static final int DATA_START = 0x300;
+
+    private SyntheticLibrary() {
+    }
+
+    /**
+     * Creates the live save and {@code files} stored saves in directories of {@link #FILES_PER_DIRECTORY} saves each.
+     */
+    static Path create(Path root, int files) throws IOException {
+        Path live = createSave(root.resolve(LIVE_SAVE), 1);
+        for (int directory = 0; directory * FILES_PER_DIRECTORY < files; directory++) {
+            fill(root.resolve(directoryName(directory)), Math.min(FILES_PER_DIRECTORY, files - directory * FILES_PER_DIRECTORY), live);
+        }
+        return live;
+    }
+
+    static String directoryName(int directory) {
+        return String.format("Library-%04d", directory);
+    }
+
+    static String fileName(int file) {
+        return String.format("save-%06d", file);
+    }
+
+    static void fill(Path directory, int files, Path template) throws IOException {
+        Files.createDirectories(directory);
+        for (int file = 0; file < files; file++) {
+            Path saveFile = directory.resolve(fileName(file) + ".sl2");
+            try {
+                Files.createLink(saveFile, template);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(template, saveFile);
+            }
+        }
+    }
+
+    static Path createSave(Path file, long seed) throws IOException {
+        ByteBuffer save = ByteBuffer.allocate(SAVE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        new Random(seed).nextBytes(save.array());
+        save.put(0, new byte[DATA_START]);
+        save.put(0, "BND4".getBytes(StandardCharsets.US_ASCII));
+        save.putInt(0x0C, SLOT_COUNT + 1);
+        save.putLong(0x20, 0x20);
+        for (int entry = 0; entry <= SLOT_COUNT; entry++) {
+            save.putLong(0x40 + entry * 0x20 + 0x08, entry < SLOT_COUNT ? SLOT_SIZE : USER_DATA_SIZE);
+            save.putInt(0x40 + entry * 0x20 + 0x10, DATA_START + entry * SLOT_SIZE);
+        }
+        int userData = DATA_START + SLOT_COUNT * SLOT_SIZE + 16;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            save.put(userData + 0x1954 + slot, (byte) 1);
+            int summary = userData + 0x195E + slot * 0x24C;
+            save.put(summary, new byte[0x22]);
+            save.put(summary, ("Tarnished " + slot).getBytes(StandardCharsets.UTF_16LE));
+        }
+        for (int entry = 0; entry <= SLOT_COUNT; entry++) {
+            int offset = DATA_START + entry * SLOT_SIZE;
+            int size = entry < SLOT_COUNT ? SLOT_SIZE : USER_DATA_SIZE;
+            save.put(offset, md5(save.array(), offset + 16, size - 16));
+        }
+        Files.createDirectories(file.getParent());
+        Files.write(file, save.array());
+        return file;
+    }
+
+    static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static byte[] md5(byte[] data, int offset, int length) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(data, offset, length);
+            return md5.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
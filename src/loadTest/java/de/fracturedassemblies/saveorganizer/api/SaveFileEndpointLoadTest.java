@@ -0,0 +1,362 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileStoreService;
+import de.fracturedassemblies.saveorganizer.services.ThreadPools;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Hundreds of HTTP clients against the real server on a large generated library, each sending a random mix of listings, saves,
+ * loads, renames and deletes. Clients run on virtual threads where the runtime has them. Saves, renames and deletes of a client stay
+ * within its own directory, loads pick any save of the library, so all clients contend for the live save and the index. Latency
+ * percentiles and throughput are reported per endpoint. The test fails on any request that does not succeed, on a library that
+ * does not match what the clients did, and on a missed SLO. Settings and SLOs are in {@code load-test.properties}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "logging.level.de.fracturedassemblies=WARN")
+@DirtiesContext
+class SaveFileEndpointLoadTest {
+    private static final Properties SETTINGS = settings();
+    private static final int FILES = Integer.parseInt(setting("files"));
+    private static final int SAVE_BYTES = Integer.parseInt(setting("save.bytes"));
+    private static final int CLIENTS = Integer.parseInt(setting("clients"));
+    private static final int REQUESTS_PER_CLIENT = Integer.parseInt(setting("requests.per.client"));
+    private static final int FILES_PER_DIRECTORY = 1000;
+    private static final List<String> ENDPOINTS = List.of("list", "save", "load", "rename", "delete");
+    private static final String LIVE_SAVE = "ER0000.sl2";
+    private static final String API = "/save-organizer-interface/int/api/1.0/";
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final Path BASE = createBase();
+    private static final Path TEMPLATE = BASE.resolve("template.sl2");
+    private static final Path ROOT = createLibrary();
+
+    /**
+     * Latency percentiles in milliseconds and requests per second of one endpoint over the whole run.
+     */
+    record EndpointResult(String endpoint, int requests, double throughput, double p50, double p99, double p999) {
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(BASE)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void mixedWorkloadTest() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<Set<String>> owned = new ArrayList<>();
+        ExecutorService clients = ThreadPools.newFixedThreadPool("load-test-client", CLIENTS, true);
+        long started = System.nanoTime();
+        try {
+            List<Future<Set<String>>> results = new ArrayList<>();
+            for (int id = 0; id < CLIENTS; id++) {
+                int clientId = id;
+                results.add(clients.submit(() -> this.runClient(clientId, client)));
+            }
+            for (Future<Set<String>> result : results) {
+                owned.add(result.get(30, TimeUnit.MINUTES));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        List<EndpointResult> results = this.results(seconds);
+        report(results, seconds);
+        assert (this.failures.isEmpty()) : "Failed requests: " + this.failures;
+        this.checkLibrary(owned);
+        List<String> missed = new ArrayList<>();
+        for (EndpointResult result : results) {
+            checkSlo(result.endpoint(), "p50", result.p50(), missed);
+            checkSlo(result.endpoint(), "p99", result.p99(), missed);
+            checkSlo(result.endpoint(), "p999", result.p999(), missed);
+        }
+        assert (missed.isEmpty()) : "Missed SLOs: " + missed;
+    }
+
+    /**
+     * Sends the requests of one client and returns the saves its directory should hold afterwards.
+     */
+    private Set<String> runClient(int id, HttpClient client) throws Exception {
+        Random random = new Random(id);
+        String directory = "Client-" + id;
+        List<String> saves = new ArrayList<>();
+        int nextSave = 0;
+        for (int request = 0; request < REQUESTS_PER_CLIENT; request++) {
+            String endpoint = pick(random);
+            if ((endpoint.equals("rename") || endpoint.equals("delete")) && saves.isEmpty()) {
+                endpoint = "save";
+            }
+            HttpRequest httpRequest = switch (endpoint) {
+                case "list" -> this.request("savefiles").GET().build();
+                case "save" -> {
+                    String name = "s" + nextSave++;
+                    saves.add(name);
+                    yield this.put("savefile", Map.of("directory", directory, "file", name));
+                }
+                case "load" -> {
+                    int file = random.nextInt(FILES);
+                    yield this.put("loadfile", Map.of("directory", libraryDirectory(file / FILES_PER_DIRECTORY),
+                            "file", libraryFile(file % FILES_PER_DIRECTORY)));
+                }
+                case "rename" -> {
+                    int index = random.nextInt(saves.size());
+                    String newName = "s" + nextSave++;
+                    String oldName = saves.set(index, newName);
+                    yield this.put("renamefile", Map.of("directory", directory, "oldName", oldName, "newName", newName));
+                }
+                default -> {
+                    String name = saves.remove(random.nextInt(saves.size()));
+                    yield this.request("deletefile?directory=" + encode(directory) + "&fileName=" + encode(name)).DELETE().build();
+                }
+            };
+            long start = System.nanoTime();
+            HttpResponse<Void> response = client.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+            this.latencies.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - start);
+            if (response.statusCode() / 100 != 2) {
+                this.failures.add(endpoint + " " + httpRequest.uri() + " " + response.statusCode());
+            }
+        }
+        return new TreeSet<>(saves);
+    }
+
+    /**
+     * Every client directory holds exactly the saves its client ended up with, each a whole copy of the live save. The library and
+     * the live save are unchanged and the index lists what is on disk.
+     */
+    private void checkLibrary(List<Set<String>> owned) throws IOException {
+        for (int id = 0; id < CLIENTS; id++) {
+            Path directory = ROOT.resolve("Client-" + id);
+            Set<String> onDisk = Files.isDirectory(directory) ? onDisk(directory) : Set.of();
+            assert (onDisk.equals(owned.get(id))) : directory + " holds " + onDisk + " instead of " + owned.get(id);
+            for (String save : onDisk) {
+                assert (Files.mismatch(directory.resolve(save + ".sl2"), TEMPLATE) == -1) : directory.resolve(save + ".sl2") + " is damaged";
+            }
+        }
+        for (int directory = 0; directory * FILES_PER_DIRECTORY < FILES; directory++) {
+            int expected = Math.min(FILES_PER_DIRECTORY, FILES - directory * FILES_PER_DIRECTORY);
+            assert (onDisk(ROOT.resolve(libraryDirectory(directory))).size() == expected);
+        }
+        assert (Files.mismatch(ROOT.resolve(LIVE_SAVE), TEMPLATE) == -1);
+
+        Set<String> listed = new HashSet<>();
+        for (SaveDirectory saveDirectory : this.fileOrganizerService.getSaveFiles().saveFileResult()) {
+            listed.add(saveDirectory.getDirectory());
+            Set<String> onDisk = onDisk(ROOT.resolve(saveDirectory.getDirectory()));
+            assert (new TreeSet<>(saveDirectory.getSaveFiles()).equals(onDisk)) : "Index and disk differ in " + saveDirectory.getDirectory();
+        }
+        for (int id = 0; id < CLIENTS; id++) {
+            assert (owned.get(id).isEmpty() || listed.contains("Client-" + id)) : "Client-" + id + " is not listed";
+        }
+    }
+
+    private List<EndpointResult> results(double seconds) {
+        List<EndpointResult> results = new ArrayList<>();
+        for (String endpoint : ENDPOINTS) {
+            Queue<Long> recorded = this.latencies.get(endpoint);
+            if (recorded == null) {
+                continue;
+            }
+            long[] sorted = recorded.stream().mapToLong(Long::longValue).sorted().toArray();
+            results.add(new EndpointResult(endpoint, sorted.length, sorted.length / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999)));
+        }
+        return results;
+    }
+
+    private static void report(List<EndpointResult> results, double seconds) throws IOException {
+        System.out.printf(Locale.ROOT, "%d clients, %d requests each, %.1f s%n", CLIENTS, REQUESTS_PER_CLIENT, seconds);
+        System.out.printf(Locale.ROOT, "%-8s %9s %10s %10s %10s %10s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (EndpointResult result : results) {
+            System.out.printf(Locale.ROOT, "%-8s %9d %10.1f %10.2f %10.2f %10.2f%n", result.endpoint(), result.requests(), result.throughput(),
+                    result.p50(), result.p99(), result.p999());
+        }
+        Path file = Path.of(System.getProperty("loadTest.results", "build/load-test/results.json"));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        jsonMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), results);
+    }
+
+    private static void checkSlo(String endpoint, String percentile, double millis, List<String> missed) {
+        String limit = SETTINGS.getProperty("loadTest.slo." + endpoint + "." + percentile);
+        if (limit != null && millis > Double.parseDouble(limit)) {
+            missed.add(String.format(Locale.ROOT, "%s %s %.2f ms > %s ms", endpoint, percentile, millis, limit));
+        }
+    }
+
+    /**
+     * Nearest rank percentile in milliseconds.
+     */
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static String pick(Random random) {
+        int total = 0;
+        for (String endpoint : ENDPOINTS) {
+            total += Integer.parseInt(setting("mix." + endpoint));
+        }
+        int value = random.nextInt(total);
+        for (String endpoint : ENDPOINTS) {
+            value -= Integer.parseInt(setting("mix." + endpoint));
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Empty workload mix");
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + this.port + API + path)).timeout(Duration.ofMinutes(5));
+    }
+
+    private HttpRequest put(String path, Map<String, String> body) throws IOException {
+        return this.request(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> onDisk(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(SaveFileStoreService::isSaveFile)
+                    .map(SaveFileStoreService::toSaveName)
+                    .collect(TreeSet::new, Set::add, Set::addAll);
+        }
+    }
+
+    private static String libraryDirectory(int directory) {
+        return String.format("Library-%04d", directory);
+    }
+
+    private static String libraryFile(int file) {
+        return String.format("save-%06d", file);
+    }
+
+    /**
+     * The defaults of {@code load-test.properties}, overridden by system properties of the same name.
+     */
+    private static Properties settings() {
+        Properties settings = new Properties();
+        try (InputStream in = SaveFileEndpointLoadTest.class.getResourceAsStream("/load-test.properties")) {
+            settings.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadTest."))
+                .forEach(name -> settings.setProperty(name, System.getProperty(name)));
+        return settings;
+    }
+
+    private static String setting(String key) {
+        return SETTINGS.getProperty("loadTest." + key);
+    }
+
+    private static Path createBase() {
+        try {
+            return Files.createTempDirectory("save-organizer-load").toAbsolutePath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The stored saves are hard links to a template outside the root where the file system allows, so the library is quick to
+     * create and loads or saves replacing a file never change the others.
+     */
+    private static Path createLibrary() {
+        try {
+            byte[] save = new byte[SAVE_BYTES];
+            new Random(0).nextBytes(save);
+            // Random content behind the BND4 magic, enough for every endpoint of the workload
+            save[0] = 'B';
+            save[1] = 'N';
+            save[2] = 'D';
+            save[3] = '4';
+            Files.write(TEMPLATE, save);
+            Path root = Files.createDirectories(BASE.resolve("library"));
+            Files.copy(TEMPLATE, root.resolve(LIVE_SAVE));
+            for (int directory = 0; directory * FILES_PER_DIRECTORY < FILES; directory++) {
+                Path libraryDirectory = Files.createDirectories(root.resolve(libraryDirectory(directory)));
+                for (int file = 0; file < Math.min(FILES_PER_DIRECTORY, FILES - directory * FILES_PER_DIRECTORY); file++) {
+                    Path saveFile = libraryDirectory.resolve(libraryFile(file) + ".sl2");
+                    try {
+                        Files.createLink(saveFile, TEMPLATE);
+                    } catch (UnsupportedOperationException | FileSystemException e) {
+                        Files.copy(TEMPLATE, saveFile);
+                    }
+                }
+            }
+            return root;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
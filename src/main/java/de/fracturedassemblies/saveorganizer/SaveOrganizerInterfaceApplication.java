@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.servers.Server;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 
 //@formatter:off
@@ -22,6 +23,7 @@ import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 )
 //@formatter:on
 @SpringBootApplication
+@ImportRuntimeHints(SaveOrganizerRuntimeHints.class)
 public class SaveOrganizerInterfaceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,35 @@
+package de.fracturedassemblies.saveorganizer;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.util.ClassUtils;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Reflection hints for the native image. Jackson only gets hints for the types that appear in endpoint signatures, but listings
+ * are rendered to bytes up front and events are sent through emitters, so every class of the {@code data} package is registered
+ * for binding. The thread pools look up the virtual thread API reflectively to keep running on Java 17.
+ */
+class SaveOrganizerRuntimeHints implements RuntimeHintsRegistrar {
+    private static final String DATA_PACKAGE = "de.fracturedassemblies.saveorganizer.data";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+        for (BeanDefinition candidate : scanner.findCandidateComponents(DATA_PACKAGE)) {
+            bindingHints.registerReflectionHints(hints.reflection(), ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader));
+        }
+
+        hints.reflection().registerType(Thread.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(TypeReference.of("java.lang.Thread$Builder"), MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(Executors.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
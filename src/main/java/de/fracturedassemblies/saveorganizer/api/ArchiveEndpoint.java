@@ -0,0 +1,60 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.ArchiveImportResult;
+import de.fracturedassemblies.saveorganizer.services.ArchiveService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class ArchiveEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public ArchiveEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Exports saves as archive.",
+            description = "Streams the selected directory, or all directories without one, as .tar.gz with a SHA256SUMS manifest.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the archive.",
+            content = @Content(mediaType = "application/gzip")),
+            @ApiResponse(responseCode = "404", description = "The directory does not exist.") })
+    @GetMapping(value = "/int/api/1.0/archive", produces = "application/gzip")
+    public ResponseEntity<StreamingResponseBody> exportArchive(@RequestParam(required = false) String directory,
+                                                               @RequestParam(required = false) String root) {
+        LOGGER.debug("Exporting directory {} as archive.", directory == null ? "<all>" : directory);
+        return this.archiveService(root).export(directory);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Imports an archive.",
+            description = "Stores the saves of an exported archive. Existing saves are kept unless overwrite is set, entries that are no "
+                    + "valid save or do not match the manifest are listed as rejected.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns what was imported, skipped and rejected."),
+            @ApiResponse(responseCode = "400", description = "The archive cannot be read or has no manifest."),
+            @ApiResponse(responseCode = "413", description = "The archive has too many entries or bytes.") })
+    @PostMapping(value = "/int/api/1.0/archive", consumes = { "application/gzip", MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<ArchiveImportResult> importArchive(@RequestParam(defaultValue = "false") boolean overwrite, InputStream body,
+                                                             @RequestParam(required = false) String root) {
+        LOGGER.debug("Importing archive, overwrite {}.", overwrite);
+        return this.archiveService(root).importArchive(body, overwrite);
+    }
+
+    private ArchiveService archiveService(String root) {
+        return this.saveFileRoots.get(root, ArchiveService.class);
+    }
+}
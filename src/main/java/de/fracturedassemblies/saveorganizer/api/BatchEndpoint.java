@@ -0,0 +1,58 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.BatchRequest;
+import de.fracturedassemblies.saveorganizer.data.BatchResult;
+import de.fracturedassemblies.saveorganizer.services.BatchService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class BatchEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    @Value(value = "${save.batch.max.operations:1000}")
+    private int maxOperations;
+
+    public BatchEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Runs several save file operations at once.",
+            description = "Runs an ordered list of save, load, delete, rename and delete-directory operations and returns the result of each. "
+                    + "Operations on different directories run concurrently. With atomic=true the operations run in order and all completed "
+                    + "operations are rolled back as soon as one fails.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns the result of every operation.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BatchResult.class))),
+            @ApiResponse(responseCode = "409", description = "An atomic batch failed and was rolled back.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BatchResult.class))) })
+    @PostMapping(value = "/int/api/1.0/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchResult> batch(@RequestBody BatchRequest request, @RequestParam(required = false) String root) {
+        if (request.getOperations() == null || request.getOperations().isEmpty() || request.getOperations().size() > this.maxOperations) {
+            LOGGER.error("Invalid batch with {} operations.", request.getOperations() == null ? 0 : request.getOperations().size());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        LOGGER.debug("Running batch of {} operations, atomic: {}.", request.getOperations().size(), request.isAtomic());
+        BatchResult result = this.batchService(root).execute(request.getOperations(), request.isAtomic());
+        return new ResponseEntity<>(result, request.isAtomic() && !result.success() ? HttpStatus.CONFLICT : HttpStatus.OK);
+    }
+
+    private BatchService batchService(String root) {
+        return this.saveFileRoots.get(root, BatchService.class);
+    }
+}
@@ -0,0 +1,74 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.HardLinkResult;
+import de.fracturedassemblies.saveorganizer.data.IntegrityReport;
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.services.IntegrityService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class IntegrityEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntegrityEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public IntegrityEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Starts an integrity scan of all saves.",
+            description = "Hashes all saves in a background job, verifies their slot checksums and groups identical saves. Poll the job for "
+                    + "its progress and the report for the result.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "202", description = "The scan was queued.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = Job.class))),
+            @ApiResponse(responseCode = "409", description = "A scan is already running or too many jobs are queued.") })
+    @PostMapping(value = "/int/api/1.0/integrity/scan", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Job> scan(@RequestParam(required = false) String root) {
+        LOGGER.debug("Starting integrity scan.");
+        return this.integrityService(root).startScan()
+                .map(job -> new ResponseEntity<>(job, HttpStatus.ACCEPTED))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Returns the result of the last integrity scan.",
+            description = "Lists groups of identical saves and damaged saves. While a scan is running the previous result is returned, flagged as running.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the integrity report.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = IntegrityReport.class))) })
+    @GetMapping(value = "/int/api/1.0/integrity", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IntegrityReport> report(@RequestParam(required = false) String root) {
+        return new ResponseEntity<>(this.integrityService(root).getReport(), HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Replaces duplicate saves with hard links.",
+            description = "Links every duplicate found by the last scan to the first save of its group, so identical saves share their storage.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the number of linked saves and the bytes saved.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = HardLinkResult.class))),
+            @ApiResponse(responseCode = "409", description = "A scan is running.") })
+    @PostMapping(value = "/int/api/1.0/integrity/hardlink", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<HardLinkResult> hardlink(@RequestParam(required = false) String root) {
+        LOGGER.debug("Replacing duplicate saves with hard links.");
+        if (this.integrityService(root).isRunning()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(this.integrityService(root).linkDuplicates(), HttpStatus.OK);
+    }
+
+    private IntegrityService integrityService(String root) {
+        return this.saveFileRoots.get(root, IntegrityService.class);
+    }
+}
@@ -0,0 +1,75 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.services.JobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class JobEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobEndpoint.class);
+    private final JobService jobService;
+
+    public JobEndpoint(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Returns all recent background jobs.",
+            description = "Lists queued, running and recently finished jobs such as directory deletions and integrity scans in the order they were started.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the jobs.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Job.class)))) })
+    @GetMapping(value = "/int/api/1.0/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Job>> jobs() {
+        return new ResponseEntity<>(this.jobService.getJobs(), HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Returns the progress of a background job.",
+            description = "Returns the state of the job and the files and bytes it processed so far. Totals are -1 while they are unknown.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the job.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = Job.class))),
+            @ApiResponse(responseCode = "404", description = "There is no such job, or it finished too long ago.") })
+    @GetMapping(value = "/int/api/1.0/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Job> job(@PathVariable String id) {
+        return this.jobService.getJob(id)
+                .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Cancels a background job.",
+            description = "A queued job is dropped, a running job stops as soon as possible and keeps what it did so far.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the job after cancelling it.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = Job.class))),
+            @ApiResponse(responseCode = "404", description = "There is no such job."),
+            @ApiResponse(responseCode = "409", description = "The job already finished.") })
+    @DeleteMapping(value = "/int/api/1.0/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Job> cancel(@PathVariable String id) {
+        LOGGER.debug("Cancelling job {}.", id);
+        Job before = this.jobService.getJob(id).orElse(null);
+        if (before == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (before.state().isFinished()) {
+            return new ResponseEntity<>(before, HttpStatus.CONFLICT);
+        }
+        return this.jobService.cancel(id)
+                .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
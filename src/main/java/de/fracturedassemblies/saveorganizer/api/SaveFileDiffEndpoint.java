@@ -0,0 +1,82 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.SaveFileDiff;
+import de.fracturedassemblies.saveorganizer.services.SaveFileDiffService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveFileDiffEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileDiffEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveFileDiffEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Compares two saves.",
+            description = "Returns the character slots and byte ranges that differ between the two saves. Slots with equal checksums are skipped.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the differences.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SaveFileDiff.class))),
+            @ApiResponse(responseCode = "404", description = "One of the saves does not exist.") })
+    @GetMapping(value = "/int/api/1.0/diff", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SaveFileDiff> diff(@RequestParam String dirA, @RequestParam String fileA, @RequestParam String dirB, @RequestParam String fileB,
+                                             @RequestParam(required = false) String root) {
+        LOGGER.debug("Comparing save file {} in {} with {} in {}.", fileA, dirA, fileB, dirB);
+        try {
+            return new ResponseEntity<>(this.saveFileDiffService(root).diff(dirA, fileA, dirB, fileB), HttpStatus.OK);
+        } catch (IOException e) {
+            return this.errorResponse(e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid file or path. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Compares a save with every save of a directory.",
+            description = "Returns one comparison per save in directory dirB, the saves are compared in parallel.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the differences.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = SaveFileDiff.class)))),
+            @ApiResponse(responseCode = "404", description = "The save or the directory does not exist.") })
+    @GetMapping(value = "/int/api/1.0/diff/directory", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SaveFileDiff>> diffDirectory(@RequestParam String dirA, @RequestParam String fileA, @RequestParam String dirB,
+                                                            @RequestParam(required = false) String root) {
+        LOGGER.debug("Comparing save file {} in {} with directory {}.", fileA, dirA, dirB);
+        try {
+            return new ResponseEntity<>(this.saveFileDiffService(root).diffDirectory(dirA, fileA, dirB), HttpStatus.OK);
+        } catch (IOException e) {
+            return this.errorResponse(e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid file or path. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private <T> ResponseEntity<T> errorResponse(IOException e) {
+        LOGGER.error("Comparing save files failed. {}", e.getMessage());
+        return new ResponseEntity<>(e instanceof NoSuchFileException ? HttpStatus.NOT_FOUND : HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private SaveFileDiffService saveFileDiffService(String root) {
+        return this.saveFileRoots.get(root, SaveFileDiffService.class);
+    }
+}
@@ -1,9 +1,17 @@
 package de.fracturedassemblies.saveorganizer.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.data.MoveFileRequest;
+import de.fracturedassemblies.saveorganizer.data.RenameDirectoryRequest;
 import de.fracturedassemblies.saveorganizer.data.RenameFileRequest;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChanges;
 import de.fracturedassemblies.saveorganizer.data.SaveFileRequest;
 import de.fracturedassemblies.saveorganizer.data.SaveFileResult;
 import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import de.fracturedassemblies.saveorganizer.services.SaveFileSnapshot;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,6 +20,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,22 +29,47 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 public class SaveFileEndpoint {
     private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileEndpoint.class);
-    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileRoots saveFileRoots;
+    private final ObjectMapper objectMapper;
 
-    public SaveFileEndpoint(FileOrganizerService fileOrganizerService) {
-        this.fileOrganizerService = fileOrganizerService;
+    public SaveFileEndpoint(SaveFileRoots saveFileRoots, ObjectMapper objectMapper) {
+        this.saveFileRoots = saveFileRoots;
+        this.objectMapper = objectMapper;
     }
 
-    @CrossOrigin(origins = "http://localhost:4200")
+    @CrossOrigin(origins = "http://localhost:4200", exposedHeaders = HttpHeaders.ETAG)
     @Operation(summary = "Query existing Elden Ring save files from local storage.",
-            description = "Returns a map with the names of the profiles with their corresponding save files.")
+            description = "Returns a map with the names of the profiles with their corresponding save files. The library version is returned as ETag, "
+                    + "a request with a matching If-None-Match header is answered with 304. With enriched=true the character name, level and "
+                    + "playtime of the active slots of every save are added, these results carry no ETag.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Returns a map with the names of the profiles with their corresponding save files.",
-                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SaveFileResult.class))) })
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SaveFileResult.class))),
+            @ApiResponse(responseCode = "304", description = "The save files did not change since the given version.") })
     @GetMapping(value = "/int/api/1.0/savefiles", produces = MediaType.APPLICATION_JSON_VALUE)
-    public SaveFileResult savefiles() {
-        LOGGER.info("Loading save files from local storage...");
-        return this.fileOrganizerService.getSaveFiles();
+    public ResponseEntity<byte[]> savefiles(@RequestParam(defaultValue = "false") boolean enriched,
+                                            @RequestParam(required = false) String root) throws JsonProcessingException {
+        LOGGER.debug("Loading save files from local storage...");
+        if (enriched) {
+            return ResponseEntity.ok().body(this.objectMapper.writeValueAsBytes(this.fileOrganizerService(root).getEnrichedSaveFiles()));
+        }
+        SaveFileSnapshot snapshot = this.fileOrganizerService(root).getSaveFileSnapshot();
+        return ResponseEntity.ok().eTag(String.valueOf(snapshot.getVersion())).body(snapshot.toJson(this.objectMapper));
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200", exposedHeaders = HttpHeaders.ETAG)
+    @Operation(summary = "Query changes of the save files since a given version.",
+            description = "Returns the directories and files that were added, removed or renamed since the given version. If the version is too old "
+                    + "or unknown the result is flagged for resync and the whole list has to be loaded again.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns the changes since the given version.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SaveFileChanges.class))),
+            @ApiResponse(responseCode = "304", description = "The save files did not change since the given version.") })
+    @GetMapping(value = "/int/api/1.0/savefiles/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SaveFileChanges> savefileChanges(@RequestParam long since, @RequestParam(required = false) String root) {
+        LOGGER.debug("Loading save file changes since version {}.", since);
+        SaveFileChanges changes = this.fileOrganizerService(root).getSaveFileChanges(since);
+        return ResponseEntity.ok().eTag(String.valueOf(changes.version())).body(changes);
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
@@ -43,9 +77,9 @@ public class SaveFileEndpoint {
             description = "Loads selected file from chosen directory into the current ER0000.sl2 file.")
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Loads selected file into memory.") })
     @PutMapping(value = "/int/api/1.0/loadfile")
-    public ResponseEntity<Void> loadfile(@RequestBody SaveFileRequest request) {
-        LOGGER.info("Loading save file from local storage.");
-        return this.fileOrganizerService.loadFile(request.getDirectory(), request.getFile());
+    public ResponseEntity<Void> loadfile(@RequestBody SaveFileRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Loading save file from local storage.");
+        return this.fileOrganizerService(root).loadFile(request.getDirectory(), request.getFile());
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
@@ -53,37 +87,43 @@ public class SaveFileEndpoint {
             description = "Saves selected file into chosen directory from the current ER0000.sl2 file.")
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Saves selected file into memory.") })
     @PutMapping(value = "/int/api/1.0/savefile")
-    public ResponseEntity<Void> savefile(@RequestBody SaveFileRequest request) {
-        LOGGER.info("Saving save file {} into local storage {}.", request.getFile(), request.getDirectory());
-        return this.fileOrganizerService.saveFile(request.getDirectory(), request.getFile());
+    public ResponseEntity<Void> savefile(@RequestBody SaveFileRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Saving save file {} into local storage {}.", request.getFile(), request.getDirectory());
+        return this.fileOrganizerService(root).saveFile(request.getDirectory(), request.getFile());
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
     @Operation(summary = "Deletes selected file from memory.", description = "Selected file from chosen directory gets permanently deleted.")
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Deletes selected file from memory.") })
     @DeleteMapping(value = "/int/api/1.0/deletefile")
-    public ResponseEntity<Void> deletefile(String directory, String fileName) {
-        LOGGER.info("Deleting file {} in directory {}.", fileName, directory);
-        return this.fileOrganizerService.deleteFile(directory, fileName);
+    public ResponseEntity<Void> deletefile(String directory, String fileName, @RequestParam(required = false) String root) {
+        LOGGER.debug("Deleting file {} in directory {}.", fileName, directory);
+        return this.fileOrganizerService(root).deleteFile(directory, fileName);
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
-    @Operation(summary = "Deletes selected directory from memory.", description = "Selected directory gets permanently deleted.")
-    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Deletes selected directory from memory.") })
-    @DeleteMapping(value = "/int/api/1.0/deletedirectory")
-    public ResponseEntity<Void> deletedirectory(String directory) {
-        LOGGER.info("Deleting directory...");
-        return this.fileOrganizerService.deleteDirectory(directory);
+    @Operation(summary = "Deletes selected directory from memory.",
+            description = "Selected directory gets permanently deleted in the background. Poll the returned job for its progress.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "202", description = "The directory is being deleted.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = Job.class))),
+            @ApiResponse(responseCode = "404", description = "The directory does not exist."),
+            @ApiResponse(responseCode = "503", description = "Too many jobs are queued.") })
+    @DeleteMapping(value = "/int/api/1.0/deletedirectory", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Job> deletedirectory(String directory, @RequestParam(required = false) String root) {
+        LOGGER.debug("Deleting directory {}.", directory);
+        return this.fileOrganizerService(root).startDeleteDirectory(directory);
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
     @Operation(summary = "Sets individual save directory path.",
             description = "Instead of the given paths of the save-organizer-interface this endpoint gives the possibility to select own path.")
-    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Sets individual save directory path.") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Sets individual save directory path."),
+            @ApiResponse(responseCode = "404", description = "The save root does not exist."),
+            @ApiResponse(responseCode = "409", description = "The path overlaps another save root.") })
     @PutMapping(value = "/int/api/1.0/savefilespath")
-    public ResponseEntity<Void> savefilespath(@RequestBody String path) {
-        LOGGER.info("Replacing save file path with new path {}", path);
-        return this.fileOrganizerService.setSaveFilePath(path);
+    public ResponseEntity<Void> savefilespath(@RequestBody String path, @RequestParam(required = false) String root) {
+        LOGGER.debug("Replacing save file path with new path {}", path);
+        return this.saveFileRoots.setSaveFilePath(root, path);
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
@@ -92,9 +132,9 @@ public class SaveFileEndpoint {
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns current save directory path.",
             content = @Content(mediaType = MediaType.TEXT_PLAIN_VALUE)) })
     @GetMapping(value = "/int/api/1.0/savefilespath", produces = MediaType.TEXT_PLAIN_VALUE)
-    public ResponseEntity<String> savefilespath() {
-        LOGGER.info("Returning save file path.");
-        return this.fileOrganizerService.getSaveFilePath();
+    public ResponseEntity<String> savefilespath(@RequestParam(required = false) String root) {
+        LOGGER.debug("Returning save file path.");
+        return this.fileOrganizerService(root).getSaveFilePath();
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
@@ -102,8 +142,47 @@ public class SaveFileEndpoint {
             description = "Since the user doesn't always know what the save file should be called in advance, this endpoint allows the user to rename the save file.")
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Renames selected save.") })
     @PutMapping(value = "/int/api/1.0/renamefile")
-    public ResponseEntity<Void> renamefile(@RequestBody RenameFileRequest request) {
-        LOGGER.info("Renaming save file.");
-        return this.fileOrganizerService.renameFile(request.getDirectory(), request.getOldName(), request.getNewName());
+    public ResponseEntity<Void> renamefile(@RequestBody RenameFileRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Renaming save file.");
+        return this.fileOrganizerService(root).renameFile(request.getDirectory(), request.getOldName(), request.getNewName());
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Moves selected save into another directory.",
+            description = "Moves the save into the target directory, optionally under a new name. The target directory is created if it does not exist.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Moves selected save."),
+            @ApiResponse(responseCode = "404", description = "The save does not exist."),
+            @ApiResponse(responseCode = "409", description = "The target directory already contains a save with that name.") })
+    @PutMapping(value = "/int/api/1.0/movefile")
+    public ResponseEntity<Void> movefile(@RequestBody MoveFileRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Moving save file.");
+        return this.fileOrganizerService(root).transferFile(request.getDirectory(), request.getFile(), request.getTargetDirectory(), request.getNewName(), false);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Copies selected save into another directory.",
+            description = "Copies the save into the target directory, optionally under a new name. The target directory is created if it does not exist.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Copies selected save."),
+            @ApiResponse(responseCode = "404", description = "The save does not exist."),
+            @ApiResponse(responseCode = "409", description = "The target directory already contains a save with that name.") })
+    @PutMapping(value = "/int/api/1.0/copyfile")
+    public ResponseEntity<Void> copyfile(@RequestBody MoveFileRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Copying save file.");
+        return this.fileOrganizerService(root).transferFile(request.getDirectory(), request.getFile(), request.getTargetDirectory(), request.getNewName(), true);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Renames selected directory.", description = "Renames the directory with all of its saves.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Renames selected directory."),
+            @ApiResponse(responseCode = "404", description = "The directory does not exist."),
+            @ApiResponse(responseCode = "409", description = "A directory with the new name already exists.") })
+    @PutMapping(value = "/int/api/1.0/renamedirectory")
+    public ResponseEntity<Void> renamedirectory(@RequestBody RenameDirectoryRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Renaming directory.");
+        return this.fileOrganizerService(root).renameDirectory(request.getOldName(), request.getNewName());
+    }
+
+    private FileOrganizerService fileOrganizerService(String root) {
+        return this.saveFileRoots.get(root, FileOrganizerService.class);
     }
 }
@@ -0,0 +1,44 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.services.SaveFileEventService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveFileEventEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileEventEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveFileEventEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Subscribes to changes of the save files.",
+            description = "Opens a Server-Sent Events stream that pushes saved, loaded, deleted, renamed, directory-deleted and external-change events. "
+                    + "Bursts are coalesced and a client that cannot keep up receives a resync event instead of the missed events.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Stream of save file events.",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)) })
+    @GetMapping(value = "/int/api/1.0/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestParam(required = false) String root) {
+        LOGGER.debug("Subscribing to save file events.");
+        return this.saveFileEventService(root).subscribe(new SseEmitter(0L));
+    }
+
+    private SaveFileEventService saveFileEventService(String root) {
+        return this.saveFileRoots.get(root, SaveFileEventService.class);
+    }
+}
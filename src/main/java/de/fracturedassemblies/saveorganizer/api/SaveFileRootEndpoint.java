@@ -0,0 +1,63 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.SaveRoot;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveFileRootEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileRootEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveFileRootEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Returns the registered save roots.",
+            description = "Lists the default root and every named root. The name can be passed as root parameter to all other endpoints.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the roots.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = SaveRoot.class)))) })
+    @GetMapping(value = "/int/api/1.0/roots", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SaveRoot>> roots() {
+        return new ResponseEntity<>(this.saveFileRoots.getRoots(), HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Registers a save root.",
+            description = "Opens an existing directory as named root with its own index, watcher and locks.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "201", description = "The root was registered.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SaveRoot.class))),
+            @ApiResponse(responseCode = "400", description = "The name is invalid or the path is no directory."),
+            @ApiResponse(responseCode = "409", description = "The name is taken or the path overlaps with another root.") })
+    @PostMapping(value = "/int/api/1.0/roots", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SaveRoot> register(@RequestBody SaveRoot request) {
+        LOGGER.debug("Registering save root {} at {}.", request.name(), request.path());
+        return this.saveFileRoots.register(request.name(), request.path());
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Unregisters a save root.", description = "Closes the root, its saves stay on disk. The default root cannot be removed.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "The root was closed."),
+            @ApiResponse(responseCode = "404", description = "The root does not exist.") })
+    @DeleteMapping(value = "/int/api/1.0/roots/{name}")
+    public ResponseEntity<Void> unregister(@PathVariable String name) {
+        LOGGER.debug("Unregistering save root {}.", name);
+        return this.saveFileRoots.unregister(name);
+    }
+}
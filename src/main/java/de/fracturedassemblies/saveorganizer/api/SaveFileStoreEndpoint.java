@@ -0,0 +1,88 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.StoreMigrationResult;
+import de.fracturedassemblies.saveorganizer.data.StoreReport;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import de.fracturedassemblies.saveorganizer.services.SaveFileStoreService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveFileStoreEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileStoreEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveFileStoreEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Migrates save files into the deduplicated chunk store.",
+            description = "Replaces the plain save files of the given directory, or of all directories if none is given, with manifests of deduplicated chunks.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the number of migrated files and the bytes written.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = StoreMigrationResult.class))) })
+    @PostMapping(value = "/int/api/1.0/store/migrate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StoreMigrationResult> migrate(@RequestParam(required = false) String directory,
+                                                        @RequestParam(required = false) String root) {
+        LOGGER.debug("Migrating save files of {} into the chunk store.", directory == null ? "all directories" : directory);
+        try {
+            return new ResponseEntity<>(this.saveFileStoreService(root).migrate(directory), HttpStatus.OK);
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid directory {}. {}", directory, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            LOGGER.error("Migrating save files failed. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Deletes chunks that are no longer referenced.",
+            description = "Removes chunks of the deduplicated store that no manifest refers to anymore.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the number of deleted chunks.") })
+    @PostMapping(value = "/int/api/1.0/store/gc", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Integer> collectGarbage(@RequestParam(required = false) String root) {
+        LOGGER.debug("Collecting unreferenced chunks.");
+        try {
+            return new ResponseEntity<>(this.saveFileStoreService(root).collectGarbage(), HttpStatus.OK);
+        } catch (IOException e) {
+            LOGGER.error("Collecting unreferenced chunks failed. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Reports the space saved by the chunk store.",
+            description = "Returns logical and stored bytes of all saves and the measured save/load latency of the copy and dedup mode. "
+                    + "With benchmark=true both modes are measured once against the current ER0000.sl2 first.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the store report.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = StoreReport.class))) })
+    @GetMapping(value = "/int/api/1.0/store/report", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StoreReport> report(@RequestParam(defaultValue = "false") boolean benchmark, @RequestParam(required = false) String root) {
+        LOGGER.debug("Creating chunk store report.");
+        try {
+            return new ResponseEntity<>(this.saveFileStoreService(root).getReport(benchmark), HttpStatus.OK);
+        } catch (IOException e) {
+            LOGGER.error("Creating chunk store report failed. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private SaveFileStoreService saveFileStoreService(String root) {
+        return this.saveFileRoots.get(root, SaveFileStoreService.class);
+    }
+}
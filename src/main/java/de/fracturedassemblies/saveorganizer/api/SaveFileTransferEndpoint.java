@@ -0,0 +1,69 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import de.fracturedassemblies.saveorganizer.services.SaveFileTransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveFileTransferEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileTransferEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveFileTransferEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200", exposedHeaders = { HttpHeaders.ETAG, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES })
+    @Operation(summary = "Downloads a save.",
+            description = "Streams the selected save as .sl2 file. Supports a single byte range to resume a download, If-Range, and "
+                    + "If-None-Match or If-Modified-Since to skip unchanged saves. The ETag is the SHA-256 of the content.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the save.",
+            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+            @ApiResponse(responseCode = "206", description = "Returns the requested range of the save.",
+                    content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+            @ApiResponse(responseCode = "304", description = "The save did not change."),
+            @ApiResponse(responseCode = "404", description = "The save does not exist."),
+            @ApiResponse(responseCode = "416", description = "The range is outside of the save.") })
+    @GetMapping(value = "/int/api/1.0/savefile/content", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> download(@RequestParam String directory, @RequestParam String fileName,
+                                                          @RequestHeader HttpHeaders headers, @RequestParam(required = false) String root) {
+        LOGGER.debug("Downloading save file {} in directory {}.", fileName, directory);
+        return this.saveFileTransferService(root).download(directory, fileName, headers);
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200", exposedHeaders = { HttpHeaders.ETAG, HttpHeaders.RANGE })
+    @Operation(summary = "Uploads a save.",
+            description = "Stores the request body as save. A large save can be sent in parts with Content-Range, every part continuing "
+                    + "where the last one ended. With If-Match the save is only replaced if it still has the given ETag.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "The save was stored, the ETag header holds its hash."),
+            @ApiResponse(responseCode = "202", description = "The part was received, the Range header holds everything received so far."),
+            @ApiResponse(responseCode = "400", description = "The upload is no valid save or a part has the wrong length."),
+            @ApiResponse(responseCode = "409", description = "The save is being uploaded by another request."),
+            @ApiResponse(responseCode = "412", description = "The save changed since the client read it."),
+            @ApiResponse(responseCode = "413", description = "The save is too large."),
+            @ApiResponse(responseCode = "416", description = "The part does not continue the received content, see the Range header.") })
+    @PutMapping(value = "/int/api/1.0/savefile/content", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> upload(@RequestParam String directory, @RequestParam String fileName, @RequestHeader HttpHeaders headers,
+                                       InputStream body, @RequestParam(required = false) String root) {
+        LOGGER.debug("Uploading save file {} in directory {}.", fileName, directory);
+        return this.saveFileTransferService(root).upload(directory, fileName, headers, body);
+    }
+
+    private SaveFileTransferService saveFileTransferService(String root) {
+        return this.saveFileRoots.get(root, SaveFileTransferService.class);
+    }
+}
@@ -0,0 +1,45 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.IndexState;
+import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileIndex;
+import de.fracturedassemblies.saveorganizer.services.SaveFileMetrics;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import de.fracturedassemblies.saveorganizer.services.SaveFileSnapshot;
+import de.fracturedassemblies.saveorganizer.services.SaveFileStoreService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at /actuator/saveorganizer showing the state of the save file index, /actuator/saveorganizer/{root} shows the
+ * index of a named root.
+ */
+@Component
+@Endpoint(id = "saveorganizer")
+public class SaveOrganizerActuatorEndpoint {
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveOrganizerActuatorEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @ReadOperation
+    public IndexState indexState() {
+        return this.indexState(SaveFileRoots.DEFAULT_ROOT);
+    }
+
+    @ReadOperation
+    public IndexState indexState(@Selector String root) {
+        if (!this.saveFileRoots.isRegistered(root)) {
+            // Answered with 404
+            return null;
+        }
+        SaveFileIndex saveFileIndex = this.saveFileRoots.get(root, SaveFileIndex.class);
+        SaveFileSnapshot snapshot = saveFileIndex.getSnapshot();
+        return new IndexState(this.saveFileRoots.get(root, FileOrganizerService.class).getSaveFilePath().getBody(), saveFileIndex.isWatching(),
+                snapshot.getVersion(), snapshot.getSaveFileResult().saveFileResult().size(), SaveFileMetrics.countSaveFiles(snapshot),
+                this.saveFileRoots.get(root, SaveFileStoreService.class).getMode().name().toLowerCase(), this.saveFileRoots.get(root, SaveFileMetrics.class).getActiveOperations());
+    }
+}
@@ -0,0 +1,84 @@
+package de.fracturedassemblies.saveorganizer.api;
+
+import de.fracturedassemblies.saveorganizer.data.SlotTransplantRequest;
+import de.fracturedassemblies.saveorganizer.services.SaveFileRoots;
+import de.fracturedassemblies.saveorganizer.services.SaveSlotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+
+@Tag(name = "save-organizer-interface", description = "Save organizer for Elden Ring")
+@RestController
+public class SaveSlotEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveSlotEndpoint.class);
+    private final SaveFileRoots saveFileRoots;
+
+    public SaveSlotEndpoint(SaveFileRoots saveFileRoots) {
+        this.saveFileRoots = saveFileRoots;
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Extracts a single character slot of a save.",
+            description = "Returns the raw slot entry (0-9) of the selected save, including its leading MD5 checksum.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Returns the slot.",
+            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+            @ApiResponse(responseCode = "400", description = "The save has no such slot."),
+            @ApiResponse(responseCode = "404", description = "The save does not exist.") })
+    @GetMapping(value = "/int/api/1.0/slot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> slot(@RequestParam String directory, @RequestParam String file, @RequestParam int slot,
+                                       @RequestParam(required = false) String root) {
+        LOGGER.debug("Extracting slot {} of save file {} in directory {}.", slot, file, directory);
+        try {
+            ByteBuffer entry = this.saveSlotService(root).extractSlot(directory, file, slot);
+            return new ResponseEntity<>(entry.array(), HttpStatus.OK);
+        } catch (IOException e) {
+            return this.errorResponse(e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid slot request. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @CrossOrigin(origins = "http://localhost:4200")
+    @Operation(summary = "Copies a character slot from a save into another save.",
+            description = "Writes the source slot with its profile summary into the target slot and recomputes the checksums. Without target "
+                    + "directory the slot is written into the current ER0000.sl2, which is replaced atomically and backed up.")
+    @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "The slot was copied."),
+            @ApiResponse(responseCode = "400", description = "One of the saves has no such slot or the slots differ in size."),
+            @ApiResponse(responseCode = "404", description = "One of the saves does not exist.") })
+    @PutMapping(value = "/int/api/1.0/slot")
+    public ResponseEntity<Void> transplantSlot(@RequestBody SlotTransplantRequest request, @RequestParam(required = false) String root) {
+        LOGGER.debug("Copying slot {} of save file {} into slot {}.", request.getSourceSlot(), request.getSourceFile(), request.getTargetSlot());
+        try {
+            this.saveSlotService(root).transplantSlot(request.getSourceDirectory(), request.getSourceFile(), request.getSourceSlot(),
+                    request.getTargetDirectory(), request.getTargetFile(), request.getTargetSlot());
+            return new ResponseEntity<>(HttpStatus.OK);
+        } catch (IOException e) {
+            return this.errorResponse(e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid slot request. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private <T> ResponseEntity<T> errorResponse(IOException e) {
+        LOGGER.error("Slot operation failed. {}", e.getMessage());
+        return new ResponseEntity<>(e instanceof NoSuchFileException ? HttpStatus.NOT_FOUND : HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private SaveSlotService saveSlotService(String root) {
+        return this.saveFileRoots.get(root, SaveSlotService.class);
+    }
+}
@@ -0,0 +1,6 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public record ArchiveImportResult(int importedFiles, int skippedFiles, long importedBytes, List<String> rejected) {
+}
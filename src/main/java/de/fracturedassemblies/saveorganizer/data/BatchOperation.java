@@ -0,0 +1,44 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public class BatchOperation {
+    BatchOperationType type;
+    String directory;
+    String file;
+    String newName;
+
+    public BatchOperationType getType() {
+        return type;
+    }
+
+    public void setType(BatchOperationType type) {
+        this.type = type;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getNewName() {
+        return newName;
+    }
+
+    public void setNewName(String newName) {
+        this.newName = newName;
+    }
+
+    public String toString() {
+        return "BatchOperation [type=" + type + ", directory=" + directory + ", file=" + file + ", newName=" + newName + "]";
+    }
+}
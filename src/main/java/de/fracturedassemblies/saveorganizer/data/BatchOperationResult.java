@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record BatchOperationResult(int index, BatchOperationType type, int status, boolean rolledBack) {
+}
@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public enum BatchOperationType {
+    SAVE,
+    LOAD,
+    DELETE,
+    RENAME,
+    DELETE_DIRECTORY
+}
@@ -0,0 +1,24 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public class BatchRequest {
+    List<BatchOperation> operations;
+    boolean atomic;
+
+    public List<BatchOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BatchOperation> operations) {
+        this.operations = operations;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public void setAtomic(boolean atomic) {
+        this.atomic = atomic;
+    }
+}
@@ -0,0 +1,6 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public record BatchResult(boolean success, boolean rolledBack, List<BatchOperationResult> results) {
+}
@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+/**
+ * A save that is not a complete BND4 container or whose listed entries do not match their embedded MD5 checksums.
+ */
+public record DamagedSaveFile(String directory, String file, String problem, List<Integer> badEntries) {
+}
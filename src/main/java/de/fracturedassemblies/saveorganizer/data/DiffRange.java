@@ -0,0 +1,7 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+/**
+ * A differing byte range. {@code entry} is the container entry it lies in, {@code null} for the header or space between entries.
+ */
+public record DiffRange(long offset, long length, Integer entry) {
+}
@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+/**
+ * Saves with identical content, given as {@code directory/file}.
+ */
+public record DuplicateGroup(String hash, long size, List<String> files) {
+}
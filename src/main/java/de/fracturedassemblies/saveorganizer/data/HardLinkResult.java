@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record HardLinkResult(int linkedFiles, int failedFiles, long savedBytes) {
+}
@@ -0,0 +1,7 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.SortedMap;
+
+public record IndexState(String saveFilePath, boolean watching, long version, int directories, long saveFiles, String storeMode,
+                         SortedMap<String, Integer> activeOperations) {
+}
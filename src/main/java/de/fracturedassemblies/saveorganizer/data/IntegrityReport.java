@@ -0,0 +1,7 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public record IntegrityReport(boolean running, long startedAt, long finishedAt, int scannedFiles, int hashedFiles, long duplicateBytes,
+                              List<DuplicateGroup> duplicates, List<DamagedSaveFile> damaged) {
+}
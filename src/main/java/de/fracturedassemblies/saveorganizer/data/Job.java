@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+/**
+ * Progress of a background job. Totals are -1 while they are unknown, {@code status} is the HTTP status the operation finished
+ * with and 0 while it has not finished.
+ */
+public record Job(String id, String type, String subject, JobState state, long files, long bytes, long totalFiles, long totalBytes,
+                  int status, String message, long createdAt, long startedAt, long finishedAt) {
+}
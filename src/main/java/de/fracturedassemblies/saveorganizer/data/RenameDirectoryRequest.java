@@ -0,0 +1,22 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public class RenameDirectoryRequest {
+    String oldName;
+    String newName;
+
+    public String getOldName() {
+        return oldName;
+    }
+
+    public void setOldName(String oldName) {
+        this.oldName = oldName;
+    }
+
+    public String getNewName() {
+        return newName;
+    }
+
+    public void setNewName(String newName) {
+        this.newName = newName;
+    }
+}
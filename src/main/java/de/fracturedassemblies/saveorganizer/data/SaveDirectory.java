@@ -1,10 +1,14 @@
 package de.fracturedassemblies.saveorganizer.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class SaveDirectory {
     private String directory;
     private List<String> saveFiles;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<SaveFileMetadata> metadata;
 
     public String getDirectory() {
         return directory;
@@ -22,6 +26,14 @@ public class SaveDirectory {
         this.saveFiles = saveFiles;
     }
 
+    public List<SaveFileMetadata> getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(List<SaveFileMetadata> metadata) {
+        this.metadata = metadata;
+    }
+
     @Override
     public String toString() {
         return "SaveDirectory [directory=" + directory + ", saveFiles=" + saveFiles + "]";
@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record SaveFileChange(long version, SaveFileChangeType type, String directory, String file, String previousFile) {
+}
@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public enum SaveFileChangeType {
+    DIRECTORY_ADDED,
+    DIRECTORY_REMOVED,
+    FILE_ADDED,
+    FILE_REMOVED,
+    FILE_RENAMED
+}
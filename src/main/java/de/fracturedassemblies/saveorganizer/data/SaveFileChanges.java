@@ -0,0 +1,6 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public record SaveFileChanges(long since, long version, boolean resync, List<SaveFileChange> changes) {
+}
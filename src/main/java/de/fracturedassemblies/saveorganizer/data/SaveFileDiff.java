@@ -0,0 +1,10 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+/**
+ * Differences between two saves. {@code ranges} is cut off after a maximum number of ranges, which is flagged by {@code truncated}.
+ */
+public record SaveFileDiff(String directoryA, String fileA, String directoryB, String fileB, long sizeA, long sizeB, boolean identical,
+                           List<Integer> changedSlots, List<DiffRange> ranges, boolean truncated) {
+}
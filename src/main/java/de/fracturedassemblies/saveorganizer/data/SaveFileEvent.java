@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record SaveFileEvent(SaveFileEventType type, String directory, String file, String previousDirectory, String previousFile, int count,
+                            long version) {
+
+    public SaveFileEvent(SaveFileEventType type, String directory, String file, String previousFile, int count, long version) {
+        this(type, directory, file, null, previousFile, count, version);
+    }
+}
@@ -0,0 +1,18 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public enum SaveFileEventType {
+    SAVED,
+    LOADED,
+    DELETED,
+    RENAMED,
+    MOVED,
+    COPIED,
+    DIRECTORY_DELETED,
+    DIRECTORY_RENAMED,
+    EXTERNAL_CHANGE,
+    RESYNC;
+
+    public String eventName() {
+        return this.name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,9 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+/**
+ * Summary of a stored save. {@code slots} lists the active character slots and is {@code null} if the file could not be parsed.
+ */
+public record SaveFileMetadata(String file, long size, long lastModified, List<SlotSummary> slots) {
+}
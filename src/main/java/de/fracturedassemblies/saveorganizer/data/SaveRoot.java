@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record SaveRoot(String name, String path) {
+}
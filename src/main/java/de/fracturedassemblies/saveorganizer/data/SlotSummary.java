@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record SlotSummary(int slot, String characterName, int level, long playtimeSeconds) {
+}
@@ -0,0 +1,58 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public class SlotTransplantRequest {
+    String sourceDirectory;
+    String sourceFile;
+    int sourceSlot;
+    String targetDirectory;
+    String targetFile;
+    int targetSlot;
+
+    public String getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    public void setSourceDirectory(String sourceDirectory) {
+        this.sourceDirectory = sourceDirectory;
+    }
+
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    public void setSourceFile(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    public int getSourceSlot() {
+        return sourceSlot;
+    }
+
+    public void setSourceSlot(int sourceSlot) {
+        this.sourceSlot = sourceSlot;
+    }
+
+    public String getTargetDirectory() {
+        return targetDirectory;
+    }
+
+    public void setTargetDirectory(String targetDirectory) {
+        this.targetDirectory = targetDirectory;
+    }
+
+    public String getTargetFile() {
+        return targetFile;
+    }
+
+    public void setTargetFile(String targetFile) {
+        this.targetFile = targetFile;
+    }
+
+    public int getTargetSlot() {
+        return targetSlot;
+    }
+
+    public void setTargetSlot(int targetSlot) {
+        this.targetSlot = targetSlot;
+    }
+}
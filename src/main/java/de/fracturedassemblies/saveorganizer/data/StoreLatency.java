@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record StoreLatency(String mode, String operation, long count, double averageMillis) {
+}
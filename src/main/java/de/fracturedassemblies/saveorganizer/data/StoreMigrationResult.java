@@ -0,0 +1,4 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+public record StoreMigrationResult(int migratedFiles, int failedFiles, long logicalBytes, long storedBytes) {
+}
@@ -0,0 +1,7 @@
+package de.fracturedassemblies.saveorganizer.data;
+
+import java.util.List;
+
+public record StoreReport(String mode, long saveFiles, long manifests, long logicalBytes, long storedBytes, long savedBytes,
+                          List<StoreLatency> latencies) {
+}
@@ -0,0 +1,323 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.ArchiveImportResult;
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Exports save directories as gzip compressed tar archives and imports them again. An archive holds every save as
+ * {@code <directory>/<name>.sl2} and ends with a {@code SHA256SUMS} manifest in the format of {@code sha256sum}, so it can be
+ * unpacked and checked with standard tools as well.
+ * <p>
+ * Exports are streamed straight into the response through a {@link ParallelGzipOutputStream}, the saves are read from snapshots and
+ * hashed on the way, nothing is staged on disk. Imports stage the entries next to the store while hashing them, the manifest comes
+ * last, and only store entries that are valid BND4 containers matching their manifest hash. Since nothing can be verified before
+ * the manifest, the number of entries and their total size are capped, an archive beyond either is rejected as a whole.
+ */
+@Service
+public class ArchiveService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveService.class);
+    private static final String MANIFEST = "SHA256SUMS";
+    private static final int MAX_MANIFEST_BYTES = 1024 * 1024;
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private record Staged(String directory, String fileName, Path file, long size, String hash) {
+    }
+
+    private static final class TooLargeException extends IOException {
+        private TooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileLocks saveFileLocks;
+    private final SaveFileMetrics saveFileMetrics;
+    private final int parallelism;
+    private final int level;
+    private final long maxEntryBytes;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ExecutorService compressExecutor;
+
+    public ArchiveService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService,
+                          SaveFileLocks saveFileLocks, SaveFileMetrics saveFileMetrics,
+                          @Value("${save.archive.parallelism:0}") int parallelism,
+                          @Value("${save.archive.level:6}") int level,
+                          @Value("${save.transfer.max.upload.bytes:67108864}") long maxEntryBytes,
+                          @Value("${save.archive.max.entries:10000}") int maxEntries,
+                          @Value("${save.archive.max.bytes:4294967296}") long maxBytes) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileLocks = saveFileLocks;
+        this.saveFileMetrics = saveFileMetrics;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.level = level;
+        this.maxEntryBytes = maxEntryBytes;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        // Deflating is pure CPU work, platform threads sized to the cores fit it better than virtual ones
+        this.compressExecutor = ThreadPools.newFixedThreadPool("save-archive", this.parallelism, false);
+    }
+
+    /**
+     * Streams the given directory, or every directory if {@code null}, as archive. The saves are listed when the export starts and
+     * each is read from a snapshot taken when the export reaches it, a save deleted in between is left out.
+     */
+    public ResponseEntity<StreamingResponseBody> export(String directory) {
+        List<SaveDirectory> saveDirectories = this.fileOrganizerService.getSaveFiles().saveFileResult().stream()
+                .filter(saveDirectory -> directory == null || saveDirectory.getDirectory().equals(directory))
+                .toList();
+        if (directory != null && saveDirectories.isEmpty()) {
+            LOGGER.error("Directory {} cannot be exported, it does not exist.", directory);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(GZIP);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename((directory == null ? "saves" : directory) + ".tar.gz", StandardCharsets.UTF_8).build());
+        StreamingResponseBody body = out -> this.writeArchive(saveDirectories, out);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private void writeArchive(List<SaveDirectory> saveDirectories, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, this.compressExecutor, this.parallelism, this.level);
+        Tar.Writer tar = new Tar.Writer(gzip);
+        StringBuilder manifest = new StringBuilder();
+        long bytes = 0;
+        int files = 0;
+        for (SaveDirectory saveDirectory : saveDirectories) {
+            for (String fileName : saveDirectory.getSaveFiles()) {
+                String entryName = saveDirectory.getDirectory() + "/" + fileName + SaveFileStoreService.SAVE_FILE_SUFFIX;
+                SaveFileStoreService.Snapshot snapshot;
+                try (SaveFileLocks.Held held = this.saveFileLocks.read(saveDirectory.getDirectory())) {
+                    snapshot = this.saveFileStoreService.snapshot(
+                            this.fileOrganizerService.resolveSaveFile(saveDirectory.getDirectory(), fileName));
+                } catch (NoSuchFileException e) {
+                    LOGGER.warn("Save file {} was deleted during the export, leaving it out.", entryName);
+                    continue;
+                }
+                try (snapshot) {
+                    MessageDigest sha256 = ChunkStore.sha256();
+                    tar.putEntry(entryName, snapshot.size(), snapshot.lastModified());
+                    snapshot.transferTo(0, snapshot.size(), new TarChannel(tar, sha256));
+                    manifest.append(HexFormat.of().formatHex(sha256.digest())).append("  ").append(entryName).append('\n');
+                    bytes += snapshot.size();
+                    files++;
+                }
+            }
+        }
+        byte[] sums = manifest.toString().getBytes(StandardCharsets.UTF_8);
+        tar.putEntry(MANIFEST, sums.length, System.currentTimeMillis());
+        tar.write(sums, 0, sums.length);
+        tar.finish();
+        // The response stream belongs to the container, only the gzip trailer is written
+        gzip.finish();
+        this.saveFileMetrics.bytesCopied("export", bytes);
+        LOGGER.info("Exported {} save files with {} bytes in {} ms.", files, bytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Imports an archive as written by {@link #export}. Saves that already exist are skipped unless {@code overwrite} is set,
+     * entries that are no save, too large, no BND4 container or do not match the manifest are rejected. An archive that cannot be
+     * read or has no manifest is rejected as a whole and nothing is stored, as is one with too many entries or bytes.
+     */
+    public ResponseEntity<ArchiveImportResult> importArchive(InputStream body, boolean overwrite) {
+        List<Staged> staged = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        try {
+            Map<String, String> manifest;
+            try {
+                manifest = this.stage(body, staged, rejected);
+            } catch (TooLargeException e) {
+                LOGGER.error("Archive is too large. {}", e.getMessage());
+                return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+            } catch (IOException e) {
+                LOGGER.error("Archive cannot be read. {}", e.getMessage());
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (manifest == null) {
+                LOGGER.error("Archive has no " + MANIFEST + " manifest.");
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+
+            int imported = 0;
+            int skipped = 0;
+            long bytes = 0;
+            for (Staged entry : staged) {
+                String entryName = entry.directory() + "/" + entry.fileName() + SaveFileStoreService.SAVE_FILE_SUFFIX;
+                if (!entry.hash().equals(manifest.get(entryName))) {
+                    LOGGER.warn("Archive entry {} does not match the manifest.", entryName);
+                    rejected.add(entryName);
+                } else if (!overwrite && Files.exists(this.fileOrganizerService.resolveSaveFile(entry.directory(), entry.fileName()))) {
+                    skipped++;
+                } else if (this.fileOrganizerService.saveFile(entry.file(), entry.directory(), entry.fileName()).getStatusCode().is2xxSuccessful()) {
+                    imported++;
+                    bytes += entry.size();
+                } else {
+                    rejected.add(entryName);
+                }
+            }
+            this.saveFileMetrics.bytesCopied("import", bytes);
+            LOGGER.info("Imported {} save files with {} bytes, skipped {}, rejected {}.", imported, bytes, skipped, rejected.size());
+            return new ResponseEntity<>(new ArchiveImportResult(imported, skipped, bytes, rejected), HttpStatus.OK);
+        } finally {
+            for (Staged entry : staged) {
+                try {
+                    Files.deleteIfExists(entry.file());
+                } catch (IOException e) {
+                    LOGGER.debug("Could not delete staged archive entry {}. {}", entry.file(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the archive, stages every acceptable save and returns the manifest, or {@code null} if there was none. Every entry
+     * counts against the limits, also the rejected ones, which are decompressed as well to skip them.
+     */
+    private Map<String, String> stage(InputStream body, List<Staged> staged, List<String> rejected) throws IOException {
+        Tar.Reader tar = new Tar.Reader(new GZIPInputStream(body, 64 * 1024));
+        Map<String, String> manifest = null;
+        int entries = 0;
+        long bytes = 0;
+        Tar.Entry entry;
+        while ((entry = tar.next()) != null) {
+            if (entry.directory()) {
+                continue;
+            }
+            entries++;
+            bytes += entry.size();
+            if (entries > this.maxEntries) {
+                throw new TooLargeException("More than " + this.maxEntries + " entries.");
+            }
+            if (bytes > this.maxBytes) {
+                throw new TooLargeException("More than " + this.maxBytes + " bytes.");
+            }
+            if (entry.name().equals(MANIFEST)) {
+                if (entry.size() > MAX_MANIFEST_BYTES) {
+                    throw new IOException("Manifest has " + entry.size() + " bytes.");
+                }
+                manifest = parseManifest(new String(tar.content().readAllBytes(), StandardCharsets.UTF_8));
+                continue;
+            }
+            String[] segments = entry.name().split("/", -1);
+            if (segments.length != 2 || !segments[1].toLowerCase().endsWith(SaveFileStoreService.SAVE_FILE_SUFFIX)
+                    || entry.size() > this.maxEntryBytes) {
+                LOGGER.warn("Rejecting archive entry {} with {} bytes.", entry.name(), entry.size());
+                rejected.add(entry.name());
+                continue;
+            }
+            String fileName = SaveFileStoreService.toSaveName(segments[1]);
+            try {
+                this.fileOrganizerService.resolveSaveFile(segments[0], fileName);
+            } catch (InvalidPathException e) {
+                LOGGER.warn("Rejecting archive entry {}. {}", entry.name(), e.getMessage());
+                rejected.add(entry.name());
+                continue;
+            }
+
+            Path file = this.saveFileStoreService.temporaryFile();
+            MessageDigest sha256 = ChunkStore.sha256();
+            try (InputStream content = new DigestInputStream(tar.content(), sha256)) {
+                Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            if (!SaveFileLayout.read(file).isBnd4()) {
+                LOGGER.warn("Rejecting archive entry {}, it is not a BND4 container.", entry.name());
+                rejected.add(entry.name());
+                Files.deleteIfExists(file);
+                continue;
+            }
+            staged.add(new Staged(segments[0], fileName, file, entry.size(), HexFormat.of().formatHex(sha256.digest())));
+        }
+        return manifest;
+    }
+
+    private static Map<String, String> parseManifest(String content) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        for (String line : content.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int separator = line.indexOf("  ");
+            if (separator != 64) {
+                throw new IOException("Invalid manifest line " + line);
+            }
+            hashes.put(line.substring(separator + 2), line.substring(0, separator).toLowerCase());
+        }
+        return hashes;
+    }
+
+    @PreDestroy
+    public void close() {
+        this.compressExecutor.shutdownNow();
+    }
+
+    /**
+     * Writes transferred content into the current tar entry and the digest.
+     */
+    private static final class TarChannel implements WritableByteChannel {
+        private final Tar.Writer tar;
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[64 * 1024];
+
+        private TarChannel(Tar.Writer tar, MessageDigest digest) {
+            this.tar = tar;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            while (source.hasRemaining()) {
+                int count = Math.min(source.remaining(), this.buffer.length);
+                source.get(this.buffer, 0, count);
+                this.digest.update(this.buffer, 0, count);
+                this.tar.write(this.buffer, 0, count);
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
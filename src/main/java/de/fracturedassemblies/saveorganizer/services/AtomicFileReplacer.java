@@ -0,0 +1,93 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+
+/**
+ * Replaces a file without ever exposing a partially written version of it. The new content is written to a temporary file in
+ * the same directory, forced to disk and then moved over the target in one atomic rename. The previous content can be kept as
+ * {@code <name>.bak}.
+ */
+public final class AtomicFileReplacer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtomicFileReplacer.class);
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(FileChannel target) throws IOException;
+    }
+
+    private AtomicFileReplacer() {
+    }
+
+    public static void replace(Path target, ContentWriter writer, boolean keepBackup) throws IOException {
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName() + ".", TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.write(channel);
+                channel.force(true);
+            }
+            if (keepBackup && Files.exists(target)) {
+                rotateBackup(target);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(target.toAbsolutePath().getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static void copy(Path source, Path target, boolean keepBackup) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            replace(target, out -> transfer(channel, out), keepBackup);
+        }
+    }
+
+    public static long transfer(FileChannel source, WritableByteChannel target) throws IOException {
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+            long transferred = source.transferTo(position, size - position, target);
+            if (transferred <= 0 && source.size() <= position) {
+                break;
+            }
+            position += transferred;
+        }
+        return position;
+    }
+
+    public static Path backupOf(Path target) {
+        return target.resolveSibling(target.getFileName() + BACKUP_SUFFIX);
+    }
+
+    private static void rotateBackup(Path target) throws IOException {
+        Path backup = backupOf(target);
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), backup.getFileName() + ".", TEMP_SUFFIX);
+        try {
+            Files.delete(temp);
+            try {
+                Files.createLink(temp, target);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(target, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, backup, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        // Persists the rename itself. Directories cannot be opened as channels on every platform, the move is atomic either way.
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Could not sync directory {}. {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Snapshots the live save on its own once the game is done writing it. The live save is only ever stat'ed while the game writes,
+ * a burst of writes keeps moving its size or modification time, and a copy is taken after both stayed unchanged for the quiet
+ * period. The copy is read into a temporary file on a low priority thread and discarded if the save changed meanwhile, so a torn
+ * write is never stored. Copies with the same content as the newest snapshot are skipped.
+ * <p>
+ * Snapshots are named by their time and kept in a rolling directory of the profile. Besides the newest ones, the newest snapshot of
+ * each of the last hours and days is kept, everything else is deleted a few snapshots at a time.
+ */
+@Service
+public class AutoSnapshotService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutoSnapshotService.class);
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+    private static final int PRUNE_BATCH = 20;
+
+    record Stat(long size, long lastModified) {
+        private static Stat of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new Stat(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final String directory;
+    private final long pollMillis;
+    private final long quietMillis;
+    private final int keepLast;
+    private final int keepHourly;
+    private final int keepDaily;
+    private final ScheduledExecutorService executor;
+
+    private Path liveSaveFile;
+    private Stat lastSeen;
+    private long changedAt;
+    private Stat lastSnapshot;
+    private String lastHash;
+
+    public AutoSnapshotService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService,
+                               @Value("${save.autosnapshot.enabled:false}") boolean enabled,
+                               @Value("${save.autosnapshot.directory:Autosnapshots}") String directory,
+                               @Value("${save.autosnapshot.poll.millis:1000}") long pollMillis,
+                               @Value("${save.autosnapshot.quiet.millis:5000}") long quietMillis,
+                               @Value("${save.autosnapshot.keep.last:10}") int keepLast,
+                               @Value("${save.autosnapshot.keep.hourly:24}") int keepHourly,
+                               @Value("${save.autosnapshot.keep.daily:7}") int keepDaily) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.directory = directory;
+        this.pollMillis = Math.max(100, pollMillis);
+        this.quietMillis = quietMillis;
+        this.keepLast = Math.max(1, keepLast);
+        this.keepHourly = keepHourly;
+        this.keepDaily = keepDaily;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save-file-autosnapshot");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (enabled) {
+            this.executor.scheduleWithFixedDelay(this::poll, this.pollMillis, this.pollMillis, TimeUnit.MILLISECONDS);
+            LOGGER.info("Automatic snapshots of the live save into {} are enabled.", directory);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    void poll() {
+        try {
+            Path live = this.fileOrganizerService.getLiveSaveFile();
+            if (!live.equals(this.liveSaveFile)) {
+                this.liveSaveFile = live;
+                this.lastSeen = null;
+                this.lastSnapshot = null;
+                this.lastHash = null;
+            }
+            Stat stat = Stat.of(live);
+            long now = System.currentTimeMillis();
+            if (!Objects.equals(stat, this.lastSeen)) {
+                this.lastSeen = stat;
+                this.changedAt = now;
+            } else if (stat != null && !stat.equals(this.lastSnapshot) && now - this.changedAt >= this.quietMillis) {
+                this.snapshot(live, stat);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Automatic snapshot failed, retrying once the save is stable again. {}", e.getMessage());
+            this.changedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the live save as it was at {@code stat}. The save counts as snapshotted only once the copy is stored or
+     * found to be a duplicate, a copy that could not be stored is tried again after the next quiet period.
+     */
+    void snapshot(Path live, Stat stat) throws IOException {
+        Path temp = this.saveFileStoreService.temporaryFile();
+        try {
+            String hash = copy(live, temp);
+            Stat after = Stat.of(live);
+            if (!stat.equals(after)) {
+                LOGGER.debug("Live save changed while copying, waiting for it to settle.");
+                this.lastSeen = after;
+                this.changedAt = System.currentTimeMillis();
+                return;
+            }
+            if (hash.equals(this.newestHash())) {
+                LOGGER.debug("Live save is unchanged since the last snapshot.");
+                this.lastSnapshot = stat;
+                return;
+            }
+            String name = NAME_FORMAT.format(LocalDateTime.now());
+            ResponseEntity<Void> response = this.fileOrganizerService.saveFile(temp, this.directory, name);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new IOException("Storing snapshot " + name + " failed with " + response.getStatusCode() + ".");
+            }
+            this.lastSnapshot = stat;
+            this.lastHash = hash;
+            LOGGER.info("Took automatic snapshot {} of the live save.", name);
+            this.prune();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copies the live save with plain sequential reads, shared with the game's writer, and hashes it on the way.
+     */
+    private static String copy(Path source, Path target) throws IOException {
+        MessageDigest sha256 = ChunkStore.sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                sha256.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    /**
+     * Content hash of the newest snapshot, read from the store once after a start and remembered afterwards.
+     */
+    private String newestHash() throws IOException {
+        if (this.lastHash == null) {
+            Map.Entry<LocalDateTime, String> newest = this.snapshots().lastEntry();
+            if (newest != null) {
+                Path saveFile = this.fileOrganizerService.resolveSaveFile(this.directory, newest.getValue());
+                this.lastHash = this.saveFileStoreService.read(saveFile, (size, content) -> {
+                    MessageDigest sha256 = ChunkStore.sha256();
+                    for (long offset = 0; offset < size; offset += COPY_BUFFER_SIZE) {
+                        sha256.update(content.read(offset, (int) Math.min(COPY_BUFFER_SIZE, size - offset)));
+                    }
+                    return HexFormat.of().formatHex(sha256.digest());
+                });
+            }
+        }
+        return this.lastHash;
+    }
+
+    /**
+     * Deletes a batch of expired snapshots and schedules the next batch, so a large backlog never holds up the next snapshot.
+     */
+    private void prune() {
+        TreeMap<LocalDateTime, String> snapshots = this.snapshots();
+        Iterator<LocalDateTime> expired = expired(snapshots.keySet(), this.keepLast, this.keepHourly, this.keepDaily).iterator();
+        for (int deleted = 0; expired.hasNext() && deleted < PRUNE_BATCH; deleted++) {
+            this.fileOrganizerService.deleteFile(this.directory, snapshots.get(expired.next()));
+        }
+        if (expired.hasNext()) {
+            this.executor.schedule(this::prune, this.pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The snapshots of the rolling directory by time. Saves whose names are not snapshot times were put there by hand and are kept.
+     */
+    private TreeMap<LocalDateTime, String> snapshots() {
+        TreeMap<LocalDateTime, String> snapshots = new TreeMap<>();
+        this.fileOrganizerService.getSaveFiles().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(this.directory))
+                .map(SaveDirectory::getSaveFiles)
+                .flatMap(List::stream)
+                .forEach(name -> {
+                    try {
+                        snapshots.put(LocalDateTime.parse(name, NAME_FORMAT), name);
+                    } catch (DateTimeParseException e) {
+                        LOGGER.debug("Keeping {} in the snapshot directory, it is no automatic snapshot.", name);
+                    }
+                });
+        return snapshots;
+    }
+
+    /**
+     * The snapshots outside of the retention policy, oldest first. Kept are the newest {@code keepLast} snapshots and the newest
+     * snapshot of each of the newest {@code keepHourly} hours and {@code keepDaily} days that have a snapshot.
+     */
+    static SortedSet<LocalDateTime> expired(Collection<LocalDateTime> snapshots, int keepLast, int keepHourly, int keepDaily) {
+        List<LocalDateTime> newestFirst = snapshots.stream().sorted(Comparator.reverseOrder()).toList();
+        Set<LocalDateTime> keep = new HashSet<>(newestFirst.subList(0, Math.min(keepLast, newestFirst.size())));
+        keepNewestPerPeriod(newestFirst, keepHourly, time -> time.truncatedTo(ChronoUnit.HOURS), keep);
+        keepNewestPerPeriod(newestFirst, keepDaily, time -> time.truncatedTo(ChronoUnit.DAYS), keep);
+
+        SortedSet<LocalDateTime> expired = new TreeSet<>(snapshots);
+        expired.removeAll(keep);
+        return expired;
+    }
+
+    private static void keepNewestPerPeriod(List<LocalDateTime> newestFirst, int periods, UnaryOperator<LocalDateTime> period, Set<LocalDateTime> keep) {
+        Set<LocalDateTime> seen = new HashSet<>();
+        for (LocalDateTime time : newestFirst) {
+            if (seen.size() >= periods) {
+                break;
+            }
+            if (seen.add(period.apply(time))) {
+                keep.add(time);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.BatchOperation;
+import de.fracturedassemblies.saveorganizer.data.BatchOperationResult;
+import de.fracturedassemblies.saveorganizer.data.BatchOperationType;
+import de.fracturedassemblies.saveorganizer.data.BatchResult;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEvent;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEventType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Runs a list of save file operations with a single index update at the end. Operations that touch different directories run
+ * concurrently, operations on the same directory or on the live save keep their order. In atomic mode the operations run one
+ * after another and as soon as one fails, it and all before it are undone. Every undo restores what the operation could have
+ * changed, so it also undoes an operation that only partly happened, and takes the locks of what it restores.
+ * <p>
+ * The events of the operations are published with the version of the batch once it has ended. A rolled back batch publishes
+ * none, or a single resync if not everything could be undone.
+ */
+@Service
+public class BatchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchService.class);
+    private static final String LIVE_SAVE = "ER0000" + SaveFileStoreService.SAVE_FILE_SUFFIX;
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileIndex saveFileIndex;
+    private final SaveFileLocks saveFileLocks;
+    private final SaveFileEventService saveFileEventService;
+    private final ExecutorService executor;
+
+    @FunctionalInterface
+    private interface Undo {
+        void undo() throws IOException;
+    }
+
+    public BatchService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService, SaveFileIndex saveFileIndex,
+            SaveFileLocks saveFileLocks, SaveFileEventService saveFileEventService, @Value("${save.batch.threads:4}") int threads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileIndex = saveFileIndex;
+        this.saveFileLocks = saveFileLocks;
+        this.saveFileEventService = saveFileEventService;
+        this.executor = ThreadPools.newFixedThreadPool("save-file-batch", threads, virtualThreads);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    public BatchResult execute(List<BatchOperation> operations, boolean atomic) {
+        SaveFileIndex.Batch batch = this.saveFileIndex.beginBatch();
+        try {
+            return atomic ? this.executeAtomic(operations, batch) : this.executeConcurrently(operations, batch);
+        } finally {
+            this.saveFileIndex.endBatch(batch);
+        }
+    }
+
+    private BatchResult executeConcurrently(List<BatchOperation> operations, SaveFileIndex.Batch batch) {
+        List<CompletableFuture<BatchOperationResult>> futures = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            List<CompletableFuture<?>> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (conflicts(operations.get(j), operation)) {
+                    dependencies.add(futures.get(j));
+                }
+            }
+            int index = i;
+            futures.add(CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .handleAsync((ignored, error) -> new BatchOperationResult(index, operation.getType(),
+                            this.saveFileIndex.joinBatch(batch, () -> this.run(operation)), false), this.executor));
+        }
+        List<BatchOperationResult> results = futures.stream().map(CompletableFuture::join).toList();
+        return new BatchResult(results.stream().allMatch(BatchService::isSuccessful), false, results);
+    }
+
+    private BatchResult executeAtomic(List<BatchOperation> operations, SaveFileIndex.Batch batch) {
+        Path staging = this.fileOrganizerService.getSaveFileRoot()
+                .resolve(SaveFileStoreService.STORE_DIRECTORY)
+                .resolve("batch")
+                .resolve(UUID.randomUUID().toString());
+        Deque<Undo> undos = new ArrayDeque<>();
+        List<BatchOperationResult> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BatchOperation operation = operations.get(i);
+                Undo undo;
+                try {
+                    undo = this.prepareUndo(operation, staging.resolve(String.valueOf(i)));
+                } catch (NoSuchFileException e) {
+                    LOGGER.error("Preparing batch operation {} failed, no such file {}.", operation, e.getMessage());
+                    results.add(new BatchOperationResult(i, operation.getType(), HttpStatus.NOT_FOUND.value(), false));
+                    return this.rollback(undos, results, batch);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Preparing batch operation {} failed. {}", operation, e.getMessage());
+                    results.add(new BatchOperationResult(i, operation.getType(), HttpStatus.BAD_REQUEST.value(), false));
+                    return this.rollback(undos, results, batch);
+                }
+                // Pushed before running, a failing operation may have changed some files already
+                undos.push(undo);
+                BatchOperationResult result = new BatchOperationResult(i, operation.getType(), this.run(operation), false);
+                results.add(result);
+                if (!isSuccessful(result)) {
+                    return this.rollback(undos, results, batch);
+                }
+            }
+            return new BatchResult(true, false, results);
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    private BatchResult rollback(Deque<Undo> undos, List<BatchOperationResult> results, SaveFileIndex.Batch batch) {
+        int index = undos.size() - 1;
+        boolean rolledBack = true;
+        while (!undos.isEmpty()) {
+            BatchOperationResult result = results.get(index);
+            try {
+                undos.pop().undo();
+                results.set(index, new BatchOperationResult(result.index(), result.type(), result.status(), true));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Rolling back batch operation {} failed. {}", result.index(), e.getMessage());
+                rolledBack = false;
+            }
+            index--;
+        }
+        // Subscribers never heard of the undone operations, only a partial rollback leaves them something to catch up with
+        this.saveFileIndex.discardAfterBatch(batch);
+        if (!rolledBack) {
+            this.saveFileIndex.afterBatch(version -> this.saveFileEventService.publish(
+                    new SaveFileEvent(SaveFileEventType.RESYNC, null, null, null, 0, version)));
+        }
+        return new BatchResult(false, rolledBack, results);
+    }
+
+    private int run(BatchOperation operation) {
+        try {
+            ResponseEntity<Void> response = switch (Objects.requireNonNull(operation.getType(), "Operation type is missing")) {
+                case SAVE -> this.fileOrganizerService.saveFile(operation.getDirectory(), operation.getFile());
+                case LOAD -> this.fileOrganizerService.loadFile(operation.getDirectory(), operation.getFile());
+                case DELETE -> this.fileOrganizerService.deleteFile(operation.getDirectory(), operation.getFile());
+                case RENAME -> this.fileOrganizerService.renameFile(operation.getDirectory(), operation.getFile(), operation.getNewName());
+                case DELETE_DIRECTORY -> this.fileOrganizerService.deleteDirectory(operation.getDirectory());
+            };
+            return response.getStatusCode().value();
+        } catch (RuntimeException e) {
+            LOGGER.error("Batch operation {} failed. {}", operation, e.getMessage());
+            return HttpStatus.BAD_REQUEST.value();
+        }
+    }
+
+    /**
+     * Stages what an operation is going to change under the read locks of its directory and returns the undo that restores it.
+     * Staged files are hard links where the file system has them, so staging costs no copies.
+     */
+    private Undo prepareUndo(BatchOperation operation, Path staging) throws IOException {
+        switch (Objects.requireNonNull(operation.getType(), "Operation type is missing")) {
+            case SAVE -> {
+                String directory = this.fileOrganizerService.checkDirectory(operation.getDirectory());
+                Path existing = this.fileOrganizerService.resolveSaveFile(directory, operation.getFile());
+                Path saveDirectory = existing.getParent();
+                boolean directoryExisted;
+                Path staged;
+                try (SaveFileLocks.Held held = this.saveFileLocks.read(directory)) {
+                    directoryExisted = Files.isDirectory(saveDirectory);
+                    staged = Files.exists(existing) ? link(existing, staging.resolve(existing.getFileName())) : null;
+                }
+                return () -> {
+                    try (SaveFileLocks.Held held = this.saveFileLocks.write(directory)) {
+                        Files.deleteIfExists(saveDirectory.resolve(operation.getFile() + SaveFileStoreService.SAVE_FILE_SUFFIX));
+                        Files.deleteIfExists(saveDirectory.resolve(operation.getFile() + SaveFileStoreService.MANIFEST_SUFFIX));
+                        if (staged != null) {
+                            Files.move(staged, existing, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                        if (!directoryExisted) {
+                            Files.deleteIfExists(saveDirectory);
+                        }
+                        this.saveFileIndex.refreshDirectory(directory);
+                    }
+                };
+            }
+            case LOAD -> {
+                Path liveSave = this.fileOrganizerService.getLiveSaveFile();
+                Path staged;
+                try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(), List.of(), SaveFileLocks.Access.READ)) {
+                    staged = link(liveSave, staging.resolve(LIVE_SAVE));
+                }
+                return () -> {
+                    try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(), List.of(), SaveFileLocks.Access.WRITE)) {
+                        AtomicFileReplacer.copy(staged, liveSave, false);
+                    }
+                };
+            }
+            case DELETE -> {
+                String directory = this.fileOrganizerService.checkDirectory(operation.getDirectory());
+                Path existing = this.fileOrganizerService.resolveSaveFile(directory, operation.getFile());
+                Path staged;
+                try (SaveFileLocks.Held held = this.saveFileLocks.read(directory)) {
+                    staged = link(existing, staging.resolve(existing.getFileName()));
+                }
+                return () -> {
+                    try (SaveFileLocks.Held held = this.saveFileLocks.write(directory)) {
+                        if (Files.notExists(existing)) {
+                            Files.move(staged, existing, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                        this.saveFileIndex.refreshDirectory(directory);
+                    }
+                };
+            }
+            case RENAME -> {
+                String directory = operation.getDirectory();
+                Path existing = this.fileOrganizerService.resolveSaveFile(directory, operation.getFile());
+                boolean existed = Files.exists(existing);
+                return () -> {
+                    // A rename is a single move, if the old name is still there or never was it did not happen
+                    if (!existed || Files.exists(existing)) {
+                        return;
+                    }
+                    ResponseEntity<Void> response = this.fileOrganizerService.renameFile(directory, operation.getNewName(), operation.getFile());
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new IOException("Renaming " + operation.getNewName() + " back failed with " + response.getStatusCode());
+                    }
+                };
+            }
+            case DELETE_DIRECTORY -> {
+                String directory = this.fileOrganizerService.checkDirectory(operation.getDirectory());
+                Path saveDirectory = this.fileOrganizerService.getSaveFileRoot().resolve(directory);
+                try (SaveFileLocks.Held held = this.saveFileLocks.read(directory); Stream<Path> tree = Files.walk(saveDirectory)) {
+                    for (Path path : tree.toList()) {
+                        Path staged = staging.resolve(saveDirectory.relativize(path).toString());
+                        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            Files.createDirectories(staged);
+                        } else {
+                            link(path, staged);
+                        }
+                    }
+                }
+                return () -> {
+                    try (SaveFileLocks.Held held = this.saveFileLocks.write(directory); Stream<Path> tree = Files.walk(staging)) {
+                        // Parents come before their content, files the deletion did not get to are left as they are
+                        for (Path staged : tree.toList()) {
+                            Path path = saveDirectory.resolve(staging.relativize(staged).toString());
+                            if (Files.isDirectory(staged, LinkOption.NOFOLLOW_LINKS)) {
+                                Files.createDirectories(path);
+                            } else if (Files.notExists(path, LinkOption.NOFOLLOW_LINKS)) {
+                                Files.move(staged, path, StandardCopyOption.ATOMIC_MOVE);
+                            }
+                        }
+                        this.saveFileIndex.refreshDirectory(directory);
+                    }
+                };
+            }
+            default -> throw new IllegalArgumentException("Unknown operation type " + operation.getType());
+        }
+    }
+
+    private static boolean conflicts(BatchOperation first, BatchOperation second) {
+        if (first.getType() == null || second.getType() == null || Objects.equals(first.getDirectory(), second.getDirectory())) {
+            return true;
+        }
+        // Saving reads the live save, loading writes it. Two saves can share it.
+        boolean firstWritesLive = first.getType() == BatchOperationType.LOAD;
+        boolean secondWritesLive = second.getType() == BatchOperationType.LOAD;
+        boolean firstUsesLive = firstWritesLive || first.getType() == BatchOperationType.SAVE;
+        boolean secondUsesLive = secondWritesLive || second.getType() == BatchOperationType.SAVE;
+        return firstUsesLive && secondUsesLive && (firstWritesLive || secondWritesLive);
+    }
+
+    private static boolean isSuccessful(BatchOperationResult result) {
+        return result.status() >= 200 && result.status() < 300;
+    }
+
+    private static Path link(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cleaning up batch staging directory {} failed. {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for the chunks of deduplicated save files. Every chunk is stored once under its SHA-256 hash, a
+ * manifest lists the chunks a save file is made of.
+ */
+public class ChunkStore {
+    private static final String MANIFEST_HEADER = "SL2M 1";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path directory;
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    public record Chunk(String hash, long length) {
+    }
+
+    public record Manifest(long size, String contentHash, List<Chunk> chunks) {
+    }
+
+    public ChunkStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    public Manifest write(Path source, Path manifestPath) throws IOException {
+        MessageDigest content = sha256();
+        List<Chunk> chunks = new ArrayList<>();
+        long size;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            SaveFileLayout layout = SaveFileLayout.read(channel);
+            size = layout.size();
+            for (SaveFileLayout.Range range : layout.chunks()) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) range.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, range.offset() + buffer.position()) < 0) {
+                        throw new IOException("Save file " + source + " changed while it was stored.");
+                    }
+                }
+                content.update(buffer.array());
+                chunks.add(new Chunk(this.storeChunk(buffer.array()), range.size()));
+            }
+        }
+        Manifest manifest = new Manifest(size, HEX.formatHex(content.digest()), List.copyOf(chunks));
+        writeManifest(manifest, manifestPath);
+        return manifest;
+    }
+
+    public void restore(Path manifestPath, WritableByteChannel target) throws IOException {
+        for (Chunk chunk : readManifest(manifestPath).chunks()) {
+            try (FileChannel channel = FileChannel.open(this.chunkPath(chunk.hash()), StandardOpenOption.READ)) {
+                if (channel.size() != chunk.length()) {
+                    throw new IOException("Chunk " + chunk.hash() + " of " + manifestPath + " is damaged.");
+                }
+                long position = 0;
+                while (position < chunk.length()) {
+                    position += channel.transferTo(position, chunk.length() - position, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a region of the save file described by a manifest, opening only the chunks that overlap it.
+     */
+    public ByteBuffer read(Manifest manifest, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long chunkOffset = 0;
+        for (Chunk chunk : manifest.chunks()) {
+            long chunkEnd = chunkOffset + chunk.length();
+            long position = offset + buffer.position();
+            if (buffer.hasRemaining() && position < chunkEnd) {
+                try (FileChannel channel = FileChannel.open(this.chunkPath(chunk.hash()), StandardOpenOption.READ)) {
+                    int limit = (int) Math.min(buffer.capacity(), buffer.position() + chunkEnd - position);
+                    buffer.limit(limit);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, offset + buffer.position() - chunkOffset) < 0) {
+                            throw new IOException("Chunk " + chunk.hash() + " is damaged.");
+                        }
+                    }
+                    buffer.limit(buffer.capacity());
+                }
+            }
+            chunkOffset = chunkEnd;
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Region " + offset + "+" + length + " is outside of the save file.");
+        }
+        return buffer.flip();
+    }
+
+    public String digest(Path manifestPath) throws IOException {
+        MessageDigest content = sha256();
+        for (Chunk chunk : readManifest(manifestPath).chunks()) {
+            content.update(Files.readAllBytes(this.chunkPath(chunk.hash())));
+        }
+        return HEX.formatHex(content.digest());
+    }
+
+    public long storedBytes() throws IOException {
+        if (!Files.isDirectory(this.directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    public int collectGarbage(Set<String> referencedHashes, Duration gracePeriod) throws IOException {
+        if (!Files.isDirectory(this.directory)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        List<Path> unreferenced;
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            unreferenced = files.filter(Files::isRegularFile)
+                    .filter(file -> !referencedHashes.contains(file.getFileName().toString()))
+                    .toList();
+        }
+        int deleted = 0;
+        for (Path chunk : unreferenced) {
+            if (Files.getLastModifiedTime(chunk).toInstant().isBefore(cutoff) && Files.deleteIfExists(chunk)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public static Manifest readManifest(Path manifestPath) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.US_ASCII)) {
+            if (!MANIFEST_HEADER.equals(reader.readLine())) {
+                throw new IOException("Unknown manifest format in " + manifestPath);
+            }
+            String[] header = Objects.requireNonNull(reader.readLine(), "Manifest without size").split(" ");
+            List<Chunk> chunks = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] chunk = line.split(" ");
+                chunks.add(new Chunk(chunk[0], Long.parseLong(chunk[1])));
+            }
+            return new Manifest(Long.parseLong(header[0]), header[1], List.copyOf(chunks));
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged manifest " + manifestPath, e);
+        }
+    }
+
+    private static void writeManifest(Manifest manifest, Path manifestPath) throws IOException {
+        Path temp = Files.createTempFile(manifestPath.getParent(), manifestPath.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.US_ASCII)) {
+                writer.write(MANIFEST_HEADER);
+                writer.newLine();
+                writer.write(manifest.size() + " " + manifest.contentHash());
+                writer.newLine();
+                for (Chunk chunk : manifest.chunks()) {
+                    writer.write(chunk.hash() + " " + chunk.length());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String storeChunk(byte[] data) throws IOException {
+        String hash = HEX.formatHex(sha256().digest(data));
+        Path chunk = this.chunkPath(hash);
+        if (Files.exists(chunk)) {
+            // Refresh the timestamp so a concurrent garbage collection keeps the chunk within its grace period.
+            Files.setLastModifiedTime(chunk, FileTime.from(Instant.now()));
+            return hash;
+        }
+        Files.createDirectories(chunk.getParent());
+        Path temp = Files.createTempFile(chunk.getParent(), hash, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, chunk, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            this.writtenBytes.addAndGet(data.length);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return hash;
+    }
+
+    private Path chunkPath(String hash) {
+        return this.directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content hashes and check results of saves, persisted as a text file in the store directory. An entry is only valid as long as
+ * size and modification time of the save are unchanged. Each line is {@code hash size mtime status path}, the path being relative
+ * to the save root and last, so it may contain spaces.
+ */
+public class ContentHashCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentHashCache.class);
+    private static final String HEADER = "HASHES 1";
+
+    public record Entry(String hash, long size, long lastModified, String status) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ContentHashCache(Path file) {
+        this.file = file;
+    }
+
+    public static ContentHashCache load(Path file) {
+        ContentHashCache cache = new ContentHashCache(file);
+        if (!Files.exists(file)) {
+            return cache;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                LOGGER.warn("Ignoring hash cache {} with unknown format.", file);
+                return cache;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 5);
+                if (fields.length == 5) {
+                    cache.entries.put(fields[4], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring damaged hash cache {}. {}", file, e.getMessage());
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    public Entry get(String path, long size, long lastModified) {
+        Entry entry = this.entries.get(path);
+        return entry != null && entry.size() == size && entry.lastModified() == lastModified ? entry : null;
+    }
+
+    public void put(String path, Entry entry) {
+        this.entries.put(path, entry);
+    }
+
+    public void retain(Set<String> paths) {
+        this.entries.keySet().retainAll(paths);
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(this.file.getParent());
+        Path temp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+                    Entry value = entry.getValue();
+                    writer.write(value.hash() + " " + value.size() + " " + value.lastModified() + " " + value.status() + " " + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
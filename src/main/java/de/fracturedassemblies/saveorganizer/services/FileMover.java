@@ -0,0 +1,151 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Moves and copies saves and save directories. A move on the same file system is a single atomic rename. Only when the target
+ * lives on another file system the content is streamed over, verified against the source and the source deleted afterwards.
+ * <p>
+ * Existing targets are never replaced. Files are published by hard linking them to the target name, which fails on an existing
+ * target even if it was created after the check, unlike a rename, which silently replaces it on POSIX. Directories, and files on
+ * file systems without hard links, are renamed after checking that the target does not exist, the callers hold the write lock
+ * of the target directory so nothing can create it in between.
+ */
+public final class FileMover {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMover.class);
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private FileMover() {
+    }
+
+    public static void move(Path source, Path target) throws IOException {
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        if (!Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS) && link(source, target)) {
+            Files.delete(source);
+            return;
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOGGER.info("{} and {} are on different file systems, copying instead of renaming.", source, target);
+            if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+                copyDirectory(source, target);
+                deleteDirectory(source);
+            } else {
+                copy(source, target);
+                Files.delete(source);
+            }
+        }
+    }
+
+    /**
+     * Copies a single file through a temporary file next to the target, so the target only appears once the copy is complete and
+     * matches the source.
+     */
+    public static void copy(Path source, Path target) throws IOException {
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            byte[] expected;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                expected = stream(in, out);
+                out.force(true);
+            }
+            byte[] actual;
+            try (FileChannel in = FileChannel.open(temp, StandardOpenOption.READ)) {
+                actual = stream(in, null);
+            }
+            if (!Arrays.equals(expected, actual)) {
+                throw new IOException("Copy of " + source + " does not match its source.");
+            }
+            if (!link(temp, target)) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Adds {@code target} as a name of {@code file}, failing with {@link FileAlreadyExistsException} if it is taken. Returns false
+     * if the file system has no hard links or the two are on different file systems.
+     */
+    private static boolean link(Path file, Path target) throws IOException {
+        try {
+            Files.createLink(target, file);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectory(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                copy(file, target.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Reads the whole channel, optionally writing it to {@code target}, and returns the SHA-256 of what was read.
+     */
+    private static byte[] stream(FileChannel source, FileChannel target) throws IOException {
+        MessageDigest digest = ChunkStore.sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (source.read(buffer) >= 0) {
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            if (target != null) {
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+            buffer.clear();
+        }
+        return digest.digest();
+    }
+}
@@ -1,7 +1,14 @@
 package de.fracturedassemblies.saveorganizer.services;
 
+import de.fracturedassemblies.saveorganizer.data.Job;
 import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChange;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChanges;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEvent;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEventType;
+import de.fracturedassemblies.saveorganizer.data.SaveFileMetadata;
 import de.fracturedassemblies.saveorganizer.data.SaveFileResult;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,20 +18,22 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @EnableScheduling
 @Service
 public class FileOrganizerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileOrganizerService.class);
+    private static final int DELETE_PROGRESS_INTERVAL = 1000;
 
-    private String saveFilePath;
-    private String delimiter;
+    private volatile String saveFilePath;
+    private volatile String delimiter = "/";
 
     @Value(value = "${save.file.path.windows}")
     private String windowsFilePath;
@@ -35,166 +44,496 @@ public class FileOrganizerService {
     @Value(value = "${save.file.path.linux}")
     private String linuxFilePath;
 
-    private SaveFileResult saveFiles;
+    private final SaveFileIndex saveFileIndex;
+    private final SaveFileEventService saveFileEventService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileMetadataCache saveFileMetadataCache;
+    private final SaveFileMetrics saveFileMetrics;
+    private final SaveFileLocks saveFileLocks;
+    private final JobService jobService;
+    private final ExecutorService deleteExecutor;
+    private final int deleteParallelism;
+
+    public FileOrganizerService(SaveFileIndex saveFileIndex, SaveFileEventService saveFileEventService, SaveFileStoreService saveFileStoreService,
+                                SaveFileMetadataCache saveFileMetadataCache, SaveFileMetrics saveFileMetrics, SaveFileLocks saveFileLocks,
+                                JobService jobService,
+                                @Value("${save.delete.parallelism:8}") int deleteParallelism,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.saveFileIndex = saveFileIndex;
+        this.saveFileEventService = saveFileEventService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileMetadataCache = saveFileMetadataCache;
+        this.saveFileMetrics = saveFileMetrics;
+        this.saveFileLocks = saveFileLocks;
+        this.jobService = jobService;
+        this.deleteParallelism = Math.max(1, deleteParallelism);
+        this.deleteExecutor = ThreadPools.newFixedThreadPool("save-file-delete", this.deleteParallelism, virtualThreads);
+        this.saveFileIndex.addExternalChangeListener(this::publishExternalChanges);
+    }
 
     @Scheduled(fixedDelay = Long.MAX_VALUE, timeUnit = TimeUnit.SECONDS)
     public void initialSaveFilePathLoad() {
-        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
-            saveFilePath = this.windowsFilePath;
-            delimiter = "/";
-        } else if (System.getProperty("os.name").toLowerCase().contains("mac")) {
-            saveFilePath = this.macFilePath;
-            delimiter = "/";
-        } else {
-            saveFilePath = this.linuxFilePath;
-            delimiter = "/";
-        }
+        try (SaveFileLocks.Held held = this.saveFileLocks.exclusive()) {
+            if (this.saveFilePath != null) {
+                // Opened already, by setSaveFilePath or by SaveFileRoots when registering a root
+                return;
+            }
+            if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+                saveFilePath = this.windowsFilePath;
+                delimiter = "/";
+            } else if (System.getProperty("os.name").toLowerCase().contains("mac")) {
+                saveFilePath = this.macFilePath;
+                delimiter = "/";
+            } else {
+                saveFilePath = this.linuxFilePath;
+                delimiter = "/";
+            }
 
-        this.loadSaveFiles();
+            this.saveFileStoreService.open(Path.of(this.saveFilePath));
+            this.saveFileIndex.open(Path.of(this.saveFilePath));
+        }
     }
 
     @Scheduled(fixedDelayString = "10", initialDelayString = "10", timeUnit = TimeUnit.SECONDS)
     public void scheduledLoadLatestSaveFiles() {
-        this.loadSaveFiles();
+        if (!this.saveFileIndex.isWatching()) {
+            this.loadSaveFiles();
+        }
     }
 
     public ResponseEntity<Void> setSaveFilePath(String saveFilePath) {
-        try {
-            String path = Path.of(saveFilePath).toString();
-            LOGGER.info("Trying to save new save file path: {}", path);
-            this.saveFilePath = saveFilePath;
-            this.loadSaveFiles();
-            return new ResponseEntity<>(HttpStatus.OK);
-        } catch (InvalidPathException e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
+        return this.run("setPath", "path=" + saveFilePath, this.saveFileLocks::exclusive, () -> {
+            try {
+                Path path = Path.of(saveFilePath);
+                this.saveFilePath = saveFilePath;
+                this.saveFileStoreService.open(path);
+                this.saveFileIndex.open(path);
+                // The whole listing was replaced, subscribers have to load it again
+                this.publishEvent(SaveFileEventType.RESYNC, null, null, null, 0);
+                return new ResponseEntity<>(HttpStatus.OK);
+            } catch (InvalidPathException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        });
     }
 
     public void loadSaveFiles() {
-        List<File> directories = Arrays.asList(Objects.requireNonNull(new File(this.saveFilePath).listFiles(File::isDirectory)));
-        directories = directories.stream().filter(file -> !file.getName().contains(".git")).toList();
+        long start = System.nanoTime();
+        this.saveFileIndex.reconcile();
+        this.saveFileMetrics.scanned(System.nanoTime() - start, this.saveFileIndex.getSnapshot());
+    }
 
-        List<SaveDirectory> saveList = new ArrayList<>();
-        for (File directory : directories) {
-            SaveDirectory saveDirectory = this.getSaveDirectory(directory);
-            saveList.add(saveDirectory);
-        }
-        saveFiles = new SaveFileResult(saveList);
-        LOGGER.info("Following files were found: {}", this.saveFiles);
+    public ResponseEntity<Void> saveFile(String directory, String fileName) {
+        return this.saveFile(this.getLiveSaveFile(), directory, fileName);
     }
 
-    private SaveDirectory getSaveDirectory(File directory) {
-        SaveDirectory saveDirectory = new SaveDirectory();
-        List<String> files = new ArrayList<>();
-        for (File file : Objects.requireNonNull(directory.listFiles())) {
-            if (file.getName().toLowerCase().endsWith(".sl2")) {
-                files.add(file.getName().substring(0, file.getName().length() - 4));
-            }
-        }
-        saveDirectory.setDirectory(directory.getName());
-        saveDirectory.setSaveFiles(files);
-        return saveDirectory;
+    /**
+     * Stores the given save instead of the live one, for example a copy that was verified to be complete.
+     */
+    public ResponseEntity<Void> saveFile(Path source, String directory, String fileName) {
+        return this.validated(() -> {
+            String saveDirectory = this.checkDirectory(directory);
+            String name = this.checkName(fileName);
+            return this.run("save", subject(saveDirectory, name),
+                    () -> this.saveFileLocks.acquire(List.of(), List.of(saveDirectory), SaveFileLocks.Access.READ), () -> {
+                try {
+                    Path directoryPath = Files.createDirectories(this.resolveDirectory(saveDirectory));
+                    this.saveFileStoreService.save(source, directoryPath, name);
+                    this.saveFileMetrics.bytesCopied("save", sizeOf(source));
+                } catch (IOException e) {
+                    LOGGER.error("Saving file {} failed. {}", name, e.getMessage());
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                }
+                this.saveFileIndex.addFile(saveDirectory, name);
+                this.publishEvent(SaveFileEventType.SAVED, saveDirectory, name, null, 1);
+                return new ResponseEntity<>(HttpStatus.OK);
+            });
+        });
     }
 
-    public ResponseEntity<Void> saveFile(String directory, String fileName) {
-        this.loadSaveFiles();
+    public ResponseEntity<Void> loadFile(String directory, String fileName) {
+        return this.validated(() -> {
+            String saveDirectory = this.checkDirectory(directory);
+            String name = this.checkName(fileName);
+            return this.run("load", subject(saveDirectory, name),
+                    () -> this.saveFileLocks.acquire(List.of(saveDirectory), List.of(), SaveFileLocks.Access.WRITE), () -> {
+                try {
+                    Path mainPath = this.getLiveSaveFile();
+                    this.saveFileStoreService.load(this.resolveDirectory(saveDirectory), name, mainPath);
+                    this.saveFileMetrics.bytesCopied("load", sizeOf(mainPath));
+                } catch (IOException e) {
+                    LOGGER.error("Loading file {} was not successful. {}", name, e.getMessage());
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                }
+                this.publishEvent(SaveFileEventType.LOADED, saveDirectory, name, null, 1);
+                return new ResponseEntity<>(HttpStatus.OK);
+            });
+        });
+    }
+
+    public ResponseEntity<Void> deleteFile(String directory, String fileName) {
+        return this.validated(() -> {
+            String saveDirectory = this.checkDirectory(directory);
+            String name = this.checkName(fileName);
+            return this.run("delete", subject(saveDirectory, name), () -> this.saveFileLocks.write(saveDirectory), () -> {
+                ResponseEntity<Void> response = this.deleteSaveFile(saveDirectory, name);
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    this.publishEvent(SaveFileEventType.DELETED, saveDirectory, name, null, 1);
+                }
+                return response;
+            });
+        });
+    }
+
+    private ResponseEntity<Void> deleteSaveFile(String directory, String fileName) {
         try {
-            if (directory.isEmpty()) {
-                throw new InvalidPathException(directory, "Directory cannot be empty");
-            }
-            Files.createDirectories(Paths.get(this.saveFilePath + delimiter + directory));
-            Path copied = Paths.get(this.saveFilePath + "/ER0000.sl2");
-            Path pasteDirectory = Path.of(this.saveFilePath + delimiter + directory + delimiter + fileName + ".sl2");
-            Files.copy(copied, pasteDirectory, StandardCopyOption.REPLACE_EXISTING);
+            this.cleanUp(this.resolveSaveFile(directory, fileName));
+            this.saveFileIndex.removeFile(directory, fileName);
+            return new ResponseEntity<>(HttpStatus.OK);
         } catch (IOException e) {
-            LOGGER.error("Saving file {} failed. {}", fileName, e.getMessage());
+            LOGGER.error("No such file: {}. {}", fileName, e.getMessage());
+            this.saveFileIndex.refreshDirectory(directory);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (InvalidPathException e) {
-            return this.invalidPathResponse(e);
         }
-        this.loadSaveFiles();
-        return new ResponseEntity<>(HttpStatus.OK);
     }
 
-    public ResponseEntity<Void> loadFile(String directory, String fileName) {
-        this.loadSaveFiles();
-        Path copied = Paths.get(this.saveFilePath + delimiter + directory + delimiter + fileName + ".sl2");
-        Path mainPath = Path.of(this.saveFilePath + delimiter + "ER0000.sl2");
+    public ResponseEntity<Void> deleteDirectory(String directory) {
+        return this.deleteDirectory(directory, (files, bytes) -> {
+            if (files % DELETE_PROGRESS_INTERVAL == 0) {
+                LOGGER.info("Deleting directory {}: {} files ({} bytes) deleted so far.", directory, files, bytes);
+            }
+        });
+    }
+
+    /**
+     * Checks the directory and deletes it as a background job, so the request returns right away no matter how large it is. The
+     * number of saves in the index is reported as total, other files in the directory are counted on top while deleting.
+     */
+    public ResponseEntity<Job> startDeleteDirectory(String requestedDirectory) {
+        String directory;
         try {
-            Files.copy(copied, mainPath, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            LOGGER.error("Loading file {} was not successful. {}", fileName, e.getMessage());
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            directory = this.checkDirectory(requestedDirectory);
+            if (!Files.isDirectory(this.resolveDirectory(directory))) {
+                LOGGER.error("Directory to delete {} does not exist.", directory);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
         } catch (InvalidPathException e) {
             return this.invalidPathResponse(e);
         }
-        LOGGER.info("Loading of file {} was successful.", fileName);
-        this.loadSaveFiles();
-        return new ResponseEntity<>(HttpStatus.OK);
+        long saveFiles = this.getSaveFiles().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(directory))
+                .mapToLong(saveDirectory -> saveDirectory.getSaveFiles().size())
+                .sum();
+        return this.jobService.submit("deleteDirectory", this.saveFilePath + delimiter + directory, context -> {
+                    context.total(saveFiles, -1);
+                    return this.deleteDirectory(directory, (files, bytes) -> {
+                        context.progress(files, bytes);
+                        if (files % DELETE_PROGRESS_INTERVAL == 0) {
+                            LOGGER.info("Deleting directory {}: {} files ({} bytes) deleted so far.", directory, files, bytes);
+                        }
+                    });
+                })
+                .map(job -> new ResponseEntity<>(job, HttpStatus.ACCEPTED))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
     }
 
-    public ResponseEntity<Void> deleteFile(String directory, String fileName) {
-        this.loadSaveFiles();
-        try {
-            this.cleanUp(Path.of(this.saveFilePath + delimiter + directory + delimiter + fileName + ".sl2"));
-            LOGGER.info("Deleting file {} from directory: {}", fileName, directory);
-            this.loadSaveFiles();
+    /**
+     * Deletes a save directory with everything in it, including subdirectories and files that are not saves. The index is updated
+     * once up front instead of per file and refreshed from disk again if anything could not be deleted.
+     */
+    public ResponseEntity<Void> deleteDirectory(String requestedDirectory, RecursiveDeleter.Progress progress) {
+        return this.validated(() -> this.deleteCheckedDirectory(this.checkDirectory(requestedDirectory), progress));
+    }
+
+    private ResponseEntity<Void> deleteCheckedDirectory(String directory, RecursiveDeleter.Progress progress) {
+        return this.run("deleteDirectory", subject(directory, null), () -> this.saveFileLocks.write(directory), () -> {
+            RecursiveDeleter.Result result;
+            try {
+                Path directoryPath = this.resolveDirectory(directory);
+                if (!Files.isDirectory(directoryPath)) {
+                    throw new NoSuchFileException(directoryPath.toString());
+                }
+                this.saveFileIndex.removeDirectory(directory);
+                result = RecursiveDeleter.delete(directoryPath, this.deleteExecutor, this.deleteParallelism, progress);
+            } catch (InterruptedIOException e) {
+                LOGGER.warn("Deleting directory {} was cancelled, the rest of it is kept.", directory);
+                Thread.currentThread().interrupt();
+                this.saveFileIndex.refreshDirectory(directory);
+                return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+            } catch (IOException e) {
+                LOGGER.error("Error deleting directory: {}. {}", directory, e.getMessage());
+                this.saveFileIndex.refreshDirectory(directory);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (!result.failures().isEmpty()) {
+                LOGGER.error("Could not delete everything in directory {}: {}", directory, result.failures());
+                this.saveFileIndex.refreshDirectory(directory);
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            LOGGER.info("Deleted directory {} with {} files ({} bytes).", directory, result.files(), result.bytes());
+            this.publishEvent(SaveFileEventType.DIRECTORY_DELETED, directory, null, null, (int) result.files());
             return new ResponseEntity<>(HttpStatus.OK);
-        } catch (IOException e) {
-            LOGGER.error("No such file: {}. {}", fileName, e.getStackTrace());
-            this.loadSaveFiles();
+        });
+    }
+
+    public ResponseEntity<Void> renameFile(String requestedDirectory, String oldName, String newName) {
+        return this.validated(() -> {
+            String directory = this.checkDirectory(requestedDirectory);
+            this.checkName(oldName);
+            this.checkName(newName);
+            return this.run("rename", subject(directory, oldName) + " newName=" + newName, () -> this.saveFileLocks.write(directory), () -> {
+                try {
+                    Path saveDirectory = this.resolveDirectory(directory);
+                    Path oldFile = this.saveFileStoreService.resolve(saveDirectory, oldName);
+                    FileMover.move(oldFile, this.targetFile(saveDirectory, newName, oldFile));
+                } catch (IOException e) {
+                    LOGGER.error("Error renaming file, {}, {}, {}. {}", directory, oldName, newName, e.getMessage());
+                    return this.fileErrorResponse(e);
+                }
+                this.saveFileIndex.renameFile(directory, oldName, newName);
+                this.publishEvent(SaveFileEventType.RENAMED, directory, newName, null, oldName, 1);
+                return new ResponseEntity<>(HttpStatus.OK);
+            });
+        });
+    }
+
+    /**
+     * Moves or copies a save into another save directory, which is created if necessary. Without a new name the save keeps its
+     * name.
+     */
+    public ResponseEntity<Void> transferFile(String requestedDirectory, String fileName, String requestedTargetDirectory, String newName, boolean copy) {
+        return this.validated(() -> this.transferCheckedFile(this.checkDirectory(requestedDirectory), this.checkName(fileName),
+                this.checkDirectory(requestedTargetDirectory), newName == null || newName.isBlank() ? fileName : this.checkName(newName), copy));
+    }
+
+    private ResponseEntity<Void> transferCheckedFile(String directory, String fileName, String targetDirectory, String targetName, boolean copy) {
+        String operation = copy ? "copy" : "move";
+        Supplier<SaveFileLocks.Held> locks = copy
+                ? () -> this.saveFileLocks.acquire(List.of(directory), List.of(targetDirectory), SaveFileLocks.Access.NONE)
+                : () -> this.saveFileLocks.write(directory, targetDirectory);
+        return this.run(operation, subject(directory, fileName) + " targetDirectory=" + targetDirectory, locks, () -> {
+            try {
+                Path sourceFile = this.saveFileStoreService.resolve(this.resolveDirectory(directory), fileName);
+                if (!Files.exists(sourceFile)) {
+                    throw new NoSuchFileException(sourceFile.toString());
+                }
+                Path targetPath = Files.createDirectories(this.resolveDirectory(targetDirectory));
+                Path targetFile = this.targetFile(targetPath, targetName, sourceFile);
+                if (copy) {
+                    FileMover.copy(sourceFile, targetFile);
+                    this.saveFileMetrics.bytesCopied("copy", sizeOf(targetFile));
+                } else {
+                    FileMover.move(sourceFile, targetFile);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error {} file {} from {} to {}. {}", copy ? "copying" : "moving", fileName, directory, targetDirectory, e.getMessage());
+                return this.fileErrorResponse(e);
+            }
+            SaveFileIndex.Batch batch = this.saveFileIndex.beginBatch();
+            try {
+                this.saveFileIndex.addFile(targetDirectory, targetName);
+                if (!copy) {
+                    this.saveFileIndex.removeFile(directory, fileName);
+                }
+            } finally {
+                this.saveFileIndex.endBatch(batch);
+            }
+            this.publishEvent(copy ? SaveFileEventType.COPIED : SaveFileEventType.MOVED, targetDirectory, targetName, directory, fileName, 1);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
+    }
+
+    public ResponseEntity<Void> renameDirectory(String requestedOldName, String requestedNewName) {
+        return this.validated(() -> this.renameCheckedDirectory(this.checkDirectory(requestedOldName), this.checkDirectory(requestedNewName)));
+    }
+
+    private ResponseEntity<Void> renameCheckedDirectory(String oldName, String newName) {
+        return this.run("renameDirectory", subject(oldName, null) + " newName=" + newName, () -> this.saveFileLocks.write(oldName, newName), () -> {
+            try {
+                Path oldDirectory = this.resolveDirectory(oldName);
+                if (!Files.isDirectory(oldDirectory)) {
+                    throw new NoSuchFileException(oldDirectory.toString());
+                }
+                FileMover.move(oldDirectory, this.resolveDirectory(newName));
+            } catch (IOException e) {
+                LOGGER.error("Error renaming directory {} to {}. {}", oldName, newName, e.getMessage());
+                this.saveFileIndex.refreshDirectory(oldName);
+                return this.fileErrorResponse(e);
+            }
+            SaveFileIndex.Batch batch = this.saveFileIndex.beginBatch();
+            try {
+                this.saveFileIndex.removeDirectory(oldName);
+                this.saveFileIndex.refreshDirectory(newName);
+            } finally {
+                this.saveFileIndex.endBatch(batch);
+            }
+            this.publishEvent(SaveFileEventType.DIRECTORY_RENAMED, newName, null, oldName, null, 0);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Target of a move or copy, keeping the stored variant of the source. Fails if the name is already taken by either variant.
+     */
+    private Path targetFile(Path directory, String name, Path source) throws IOException {
+        Path existing = this.saveFileStoreService.resolve(directory, name);
+        if (Files.exists(existing)) {
+            throw new FileAlreadyExistsException(existing.toString());
+        }
+        String suffix = SaveFileStoreService.isManifest(source) ? SaveFileStoreService.MANIFEST_SUFFIX : SaveFileStoreService.SAVE_FILE_SUFFIX;
+        return Path.of(directory + delimiter + name + suffix);
+    }
+
+    private String checkName(String name) {
+        if (name == null || name.isBlank()) {
+            throw new InvalidPathException(String.valueOf(name), "Name cannot be empty");
+        }
+        if (Path.of(name).getNameCount() != 1 || name.equals(".") || name.equals("..")) {
+            throw new InvalidPathException(name, "Name must not contain a path");
+        }
+        return name;
+    }
+
+    private ResponseEntity<Void> fileErrorResponse(IOException e) {
+        if (e instanceof NoSuchFileException) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (InvalidPathException e) {
-            return this.invalidPathResponse(e);
+        } else if (e instanceof FileAlreadyExistsException) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
-    public ResponseEntity<Void> deleteDirectory(String directory) {
-        this.loadSaveFiles();
+    private void publishEvent(SaveFileEventType type, String directory, String file, String previousFile, int count) {
+        this.publishEvent(type, directory, file, null, previousFile, count);
+    }
+
+    private void publishEvent(SaveFileEventType type, String directory, String file, String previousDirectory, String previousFile, int count) {
+        // Within a batch the change is published when the batch ends, the event must carry that version
+        this.saveFileIndex.afterBatch(version -> this.saveFileEventService.publish(
+                new SaveFileEvent(type, directory, file, previousDirectory, previousFile, count, version)));
+    }
+
+    private void publishExternalChanges(List<SaveFileChange> changes) {
+        for (SaveFileChange change : changes) {
+            this.saveFileEventService.publish(
+                    new SaveFileEvent(SaveFileEventType.EXTERNAL_CHANGE, change.directory(), change.file(), change.previousFile(), 1, change.version()));
+        }
+    }
+
+    private <T> ResponseEntity<T> invalidPathResponse(InvalidPathException e) {
+        LOGGER.error("Invalid file or path. {}", e.getMessage());
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Runs an operation that validates its names first, an invalid name is answered with 400 before any lock is taken.
+     */
+    private <T> ResponseEntity<T> validated(Supplier<ResponseEntity<T>> operation) {
         try {
-            File directoryFile = new File(this.saveFilePath + delimiter + directory);
-            for (File file : Objects.requireNonNull(directoryFile.listFiles())) {
-                deleteFile(directory, file.getName().substring(0, file.getName().length() - 4));
-            }
-            this.cleanUp(Path.of(this.saveFilePath + delimiter + directory));
-        } catch (IOException e) {
-            LOGGER.error("Error deleting directory: {}. {}", directory, e.getStackTrace());
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            return operation.get();
         } catch (InvalidPathException e) {
             return this.invalidPathResponse(e);
         }
-        this.loadSaveFiles();
-        return new ResponseEntity<>(HttpStatus.OK);
     }
 
-    public ResponseEntity<Void> renameFile(String directory, String oldName, String newName) {
-        this.loadSaveFiles();
-        Path oldFile = Paths.get(this.saveFilePath + delimiter + directory + delimiter + oldName + ".sl2");
-        Path newFile = Paths.get(this.saveFilePath + delimiter + directory + delimiter + newName + ".sl2");
+    /**
+     * Checks a save directory name and returns it the way locks, index and events key it, see
+     * {@link SaveFileStoreService#checkDirectory}.
+     */
+    public String checkDirectory(String directory) {
+        return SaveFileStoreService.checkDirectory(directory);
+    }
+
+    /**
+     * Resolves a save directory below the root, see {@link #checkDirectory}.
+     */
+    private Path resolveDirectory(String directory) {
+        return Path.of(this.saveFilePath + delimiter + this.checkDirectory(directory));
+    }
+
+    /**
+     * Runs a file operation under its locks. The time spent waiting for the locks counts towards the operation's latency.
+     */
+    private ResponseEntity<Void> run(String operation, String subject, Supplier<SaveFileLocks.Held> locks, Supplier<ResponseEntity<Void>> action) {
+        return this.saveFileMetrics.record(operation, subject, () -> {
+            try (SaveFileLocks.Held held = locks.get()) {
+                return action.get();
+            }
+        });
+    }
+
+    private static String subject(String directory, String file) {
+        return file == null ? "directory=" + directory : "directory=" + directory + " file=" + file;
+    }
+
+    private static long sizeOf(Path file) {
         try {
-            Files.copy(oldFile, newFile);
+            return Files.size(file);
         } catch (IOException e) {
-            LOGGER.error("Error renaming fil*~~e, {}, {}, {}", directory, oldName, newName);
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return 0;
         }
-        this.deleteFile(directory, oldName);
-        this.loadSaveFiles();
-        return new ResponseEntity<>(HttpStatus.OK);
-    }
-
-    private ResponseEntity<Void> invalidPathResponse(InvalidPathException e) {
-        LOGGER.error("Invalid file or path. {}", e.getMessage());
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
     private void cleanUp(Path path) throws IOException {
         Files.delete(path);
-        LOGGER.info("Deleted file/directory at: {}", path);
+        LOGGER.debug("Deleted file/directory at: {}", path);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.deleteExecutor.shutdown();
     }
 
     public SaveFileResult getSaveFiles() {
-        this.loadSaveFiles();
-        return saveFiles;
+        return this.saveFileIndex.getSaveFileResult();
+    }
+
+    /**
+     * The current save files with the parsed metadata of every save added. Unchanged saves are served from the metadata cache.
+     */
+    public SaveFileResult getEnrichedSaveFiles() {
+        List<SaveDirectory> saveDirectories = this.saveFileIndex.getSaveFileResult().saveFileResult();
+        Map<SaveDirectory, List<Path>> saveFiles = new LinkedHashMap<>();
+        for (SaveDirectory saveDirectory : saveDirectories) {
+            Path directoryPath = Path.of(this.saveFilePath + delimiter + saveDirectory.getDirectory());
+            saveFiles.put(saveDirectory, saveDirectory.getSaveFiles().stream()
+                    .map(fileName -> this.saveFileStoreService.resolve(directoryPath, fileName))
+                    .toList());
+        }
+        Map<Path, SaveFileMetadata> metadata = this.saveFileMetadataCache.get(saveFiles.values().stream().flatMap(List::stream).toList());
+
+        List<SaveDirectory> enriched = new ArrayList<>(saveDirectories.size());
+        saveFiles.forEach((saveDirectory, paths) -> {
+            SaveDirectory copy = new SaveDirectory();
+            copy.setDirectory(saveDirectory.getDirectory());
+            copy.setSaveFiles(saveDirectory.getSaveFiles());
+            copy.setMetadata(paths.stream().map(metadata::get).filter(Objects::nonNull).toList());
+            enriched.add(copy);
+        });
+        return new SaveFileResult(enriched);
+    }
+
+    public SaveFileSnapshot getSaveFileSnapshot() {
+        return this.saveFileIndex.getSnapshot();
+    }
+
+    public SaveFileChanges getSaveFileChanges(long since) {
+        return this.saveFileIndex.getChangesSince(since);
+    }
+
+    /**
+     * The stored variant of a save, validated like the paths of the other file operations.
+     */
+    public Path resolveSaveFile(String directory, String fileName) {
+        return this.saveFileStoreService.resolve(this.resolveDirectory(directory), this.checkName(fileName));
+    }
+
+    public Path getLiveSaveFile() {
+        return Path.of(this.saveFilePath + delimiter + "ER0000.sl2");
+    }
+
+    public Path getSaveFileRoot() {
+        return Path.of(this.saveFilePath);
     }
 
     public ResponseEntity<String> getSaveFilePath() {
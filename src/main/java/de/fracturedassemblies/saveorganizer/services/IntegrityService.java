@@ -0,0 +1,344 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.DamagedSaveFile;
+import de.fracturedassemblies.saveorganizer.data.DuplicateGroup;
+import de.fracturedassemblies.saveorganizer.data.HardLinkResult;
+import de.fracturedassemblies.saveorganizer.data.IntegrityReport;
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Background job that hashes every plain save of the library, verifies the MD5 checksums embedded in each container entry and
+ * groups byte-identical saves. The scan runs as a {@link JobService} job, directories and files are processed as fork-join tasks.
+ * Hashes are kept in a {@link ContentHashCache}, so a re-run only reads saves that changed since. Each save is read under the
+ * read lock of its directory like any other reader.
+ */
+@Service
+public class IntegrityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntegrityService.class);
+    private static final String HASH_FILE = "hashes";
+    private static final String STATUS_OK = "ok";
+    private static final String STATUS_INVALID = "invalid";
+    private static final String STATUS_ENTRIES = "entries=";
+
+    private record FileResult(String directory, String file, Path path, long size, long lastModified, Object fileKey, String hash, String status) {
+        String relativePath() {
+            return directory + "/" + path.getFileName();
+        }
+    }
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileLocks saveFileLocks;
+    private final JobService jobService;
+    private final ForkJoinPool pool;
+    private String scanJob;
+
+    private volatile IntegrityReport report = new IntegrityReport(false, 0, 0, 0, 0, 0, List.of(), List.of());
+    private volatile List<List<FileResult>> duplicates = List.of();
+
+    public IntegrityService(FileOrganizerService fileOrganizerService, SaveFileLocks saveFileLocks, JobService jobService,
+                            @Value("${save.integrity.parallelism:4}") int parallelism) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileLocks = saveFileLocks;
+        this.jobService = jobService;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Queues a scan as background job. Returns nothing if a scan is already queued or running, or the job queue is full.
+     */
+    public synchronized Optional<Job> startScan() {
+        if (this.isRunning()) {
+            return Optional.empty();
+        }
+        Optional<Job> job = this.jobService.submit("integrityScan", this.fileOrganizerService.getSaveFileRoot().toString(), context -> {
+            try {
+                this.scan(context);
+            } catch (CancellationException e) {
+                LOGGER.info("Integrity scan was cancelled.");
+                this.finishReport();
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Integrity scan failed. {}", e.getMessage());
+                this.finishReport();
+                throw e;
+            }
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
+        job.ifPresent(started -> this.scanJob = started.id());
+        return job;
+    }
+
+    /**
+     * The last report, flagged as running while a scan is queued or running.
+     */
+    public IntegrityReport getReport() {
+        IntegrityReport report = this.report;
+        boolean running = this.isRunning();
+        if (report.running() == running) {
+            return report;
+        }
+        return new IntegrityReport(running, report.startedAt(), report.finishedAt(), report.scannedFiles(), report.hashedFiles(),
+                report.duplicateBytes(), report.duplicates(), report.damaged());
+    }
+
+    public synchronized boolean isRunning() {
+        return this.scanJob != null && this.jobService.getJob(this.scanJob).map(job -> !job.state().isFinished()).orElse(false);
+    }
+
+    /**
+     * Replaces every duplicate found by the last scan with a hard link to the first save of its group. Saves that changed since
+     * the scan or no longer match byte by byte are left alone.
+     */
+    public HardLinkResult linkDuplicates() {
+        int linked = 0;
+        int failed = 0;
+        long savedBytes = 0;
+        for (List<FileResult> group : this.duplicates) {
+            FileResult canonical = group.get(0);
+            for (FileResult duplicate : group.subList(1, group.size())) {
+                Path temp = duplicate.path().resolveSibling("." + duplicate.path().getFileName() + "." + UUID.randomUUID() + ".tmp");
+                try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(canonical.directory()), List.of(duplicate.directory()),
+                        SaveFileLocks.Access.NONE)) {
+                    if (Files.isSameFile(canonical.path(), duplicate.path())) {
+                        continue;
+                    }
+                    if (!unchanged(canonical) || !unchanged(duplicate) || !sameContent(canonical.path(), duplicate.path())) {
+                        failed++;
+                        continue;
+                    }
+                    Files.createLink(temp, canonical.path());
+                    Files.move(temp, duplicate.path(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    linked++;
+                    savedBytes += duplicate.size();
+                } catch (IOException | UnsupportedOperationException e) {
+                    LOGGER.warn("Could not link {} to {}. {}", duplicate.path(), canonical.path(), e.getMessage());
+                    failed++;
+                } finally {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException e) {
+                        LOGGER.debug("Could not delete {}. {}", temp, e.getMessage());
+                    }
+                }
+            }
+        }
+        LOGGER.info("Replaced {} duplicates with hard links, saving {} bytes. {} could not be linked.", linked, savedBytes, failed);
+        return new HardLinkResult(linked, failed, savedBytes);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    private void finishReport() {
+        IntegrityReport failed = this.report;
+        this.report = new IntegrityReport(false, failed.startedAt(), System.currentTimeMillis(), failed.scannedFiles(), failed.hashedFiles(),
+                failed.duplicateBytes(), failed.duplicates(), failed.damaged());
+    }
+
+    private void scan(JobService.Context context) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        IntegrityReport previous = this.report;
+        this.report = new IntegrityReport(true, startedAt, 0, previous.scannedFiles(), previous.hashedFiles(),
+                previous.duplicateBytes(), previous.duplicates(), previous.damaged());
+        Path root = this.fileOrganizerService.getSaveFileRoot();
+        ContentHashCache cache = ContentHashCache.load(root.resolve(SaveFileStoreService.STORE_DIRECTORY).resolve(HASH_FILE));
+        ScanProgress progress = new ScanProgress(context);
+
+        List<SaveDirectory> saveDirectories = this.fileOrganizerService.getSaveFiles().saveFileResult();
+        context.total(saveDirectories.stream().mapToLong(saveDirectory -> saveDirectory.getSaveFiles().size()).sum(), -1);
+        List<DirectoryTask> tasks = new ArrayList<>();
+        for (SaveDirectory saveDirectory : saveDirectories) {
+            tasks.add(new DirectoryTask(root, saveDirectory, cache, progress));
+        }
+        List<FileResult> results;
+        try {
+            results = this.pool.invoke(new RecursiveTask<>() {
+                @Override
+                protected List<FileResult> compute() {
+                    return ForkJoinTask.invokeAll(tasks).stream().flatMap(task -> task.join().stream()).toList();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        cache.retain(results.stream().map(FileResult::relativePath).collect(Collectors.toSet()));
+        cache.save();
+
+        List<List<FileResult>> groups = results.stream()
+                .filter(result -> !STATUS_INVALID.equals(result.status()))
+                .collect(Collectors.groupingBy(result -> result.hash() + " " + result.size(), TreeMap::new, Collectors.toList()))
+                .values().stream()
+                .filter(group -> group.size() > 1)
+                .map(group -> group.stream().sorted(Comparator.comparing(FileResult::relativePath)).toList())
+                .toList();
+        long duplicateBytes = 0;
+        List<DuplicateGroup> duplicateGroups = new ArrayList<>();
+        for (List<FileResult> group : groups) {
+            long distinctFiles = group.stream().map(result -> result.fileKey() == null ? result.path() : result.fileKey()).distinct().count();
+            duplicateBytes += (distinctFiles - 1) * group.get(0).size();
+            duplicateGroups.add(new DuplicateGroup(group.get(0).hash(), group.get(0).size(),
+                    group.stream().map(result -> result.directory() + "/" + result.file()).toList()));
+        }
+        List<DamagedSaveFile> damaged = results.stream()
+                .filter(result -> !STATUS_OK.equals(result.status()))
+                .map(IntegrityService::damaged)
+                .toList();
+
+        this.duplicates = groups;
+        this.report = new IntegrityReport(false, startedAt, System.currentTimeMillis(), results.size(), progress.hashed.get(), duplicateBytes,
+                List.copyOf(duplicateGroups), damaged);
+        LOGGER.info("Integrity scan checked {} saves, hashed {}, found {} duplicate groups and {} damaged saves.", results.size(), progress.hashed.get(),
+                duplicateGroups.size(), damaged.size());
+    }
+
+    private static DamagedSaveFile damaged(FileResult result) {
+        if (result.status().startsWith(STATUS_ENTRIES)) {
+            List<Integer> entries = Arrays.stream(result.status().substring(STATUS_ENTRIES.length()).split(","))
+                    .map(Integer::valueOf)
+                    .toList();
+            return new DamagedSaveFile(result.directory(), result.file(), "Checksum mismatch", entries);
+        }
+        return new DamagedSaveFile(result.directory(), result.file(), "Not a complete BND4 container", List.of());
+    }
+
+    /**
+     * Counts checked saves for the job and stops the scan once the job is cancelled.
+     */
+    private static final class ScanProgress {
+        private final JobService.Context context;
+        private final AtomicInteger hashed = new AtomicInteger();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        private ScanProgress(JobService.Context context) {
+            this.context = context;
+        }
+
+        private FileResult checked(FileResult result) {
+            if (this.context.isCancelled()) {
+                throw new CancellationException();
+            }
+            this.context.progress(this.files.incrementAndGet(), this.bytes.addAndGet(result == null ? 0 : result.size()));
+            return result;
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveTask<List<FileResult>> {
+        private final Path root;
+        private final SaveDirectory saveDirectory;
+        private final ContentHashCache cache;
+        private final ScanProgress progress;
+
+        private DirectoryTask(Path root, SaveDirectory saveDirectory, ContentHashCache cache, ScanProgress progress) {
+            this.root = root;
+            this.saveDirectory = saveDirectory;
+            this.cache = cache;
+            this.progress = progress;
+        }
+
+        @Override
+        protected List<FileResult> compute() {
+            List<ForkJoinTask<FileResult>> files = new ArrayList<>();
+            String directory = this.saveDirectory.getDirectory();
+            for (String fileName : this.saveDirectory.getSaveFiles()) {
+                Path saveFile = this.root.resolve(directory).resolve(fileName + SaveFileStoreService.SAVE_FILE_SUFFIX);
+                // Locked per save, a read lock belongs to the worker thread that takes it. A save patched in place meanwhile, e.g.
+                // by a slot transplant, must not be hashed half written and cached as damaged.
+                files.add(ForkJoinTask.adapt(() -> {
+                    FileResult result;
+                    try (SaveFileLocks.Held held = IntegrityService.this.saveFileLocks.read(directory)) {
+                        result = check(directory, fileName, saveFile, this.cache, this.progress.hashed);
+                    }
+                    return this.progress.checked(result);
+                }));
+            }
+            return ForkJoinTask.invokeAll(files).stream().map(ForkJoinTask::join).filter(Objects::nonNull).toList();
+        }
+    }
+
+    /**
+     * Checks one save, returns {@code null} if there is no plain save of that name, e.g. because it is stored as manifest.
+     */
+    private static FileResult check(String directory, String fileName, Path saveFile, ContentHashCache cache, AtomicInteger hashed) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(saveFile, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        String relativePath = directory + "/" + saveFile.getFileName();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        ContentHashCache.Entry entry = cache.get(relativePath, attributes.size(), lastModified);
+        if (entry == null) {
+            try {
+                entry = hash(saveFile, lastModified);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            hashed.incrementAndGet();
+            cache.put(relativePath, entry);
+        }
+        return new FileResult(directory, fileName, saveFile, entry.size(), entry.lastModified(), attributes.fileKey(), entry.hash(), entry.status());
+    }
+
+    static ContentHashCache.Entry hash(Path saveFile, long lastModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(saveFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return new ContentHashCache.Entry("-", size, lastModified, STATUS_INVALID);
+            }
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            MessageDigest sha256 = ChunkStore.sha256();
+            sha256.update(content.duplicate());
+            String hash = HexFormat.of().formatHex(sha256.digest());
+
+            SaveFileLayout layout = SaveFileLayout.read(channel);
+            if (!layout.isBnd4()) {
+                return new ContentHashCache.Entry(hash, size, lastModified, STATUS_INVALID);
+            }
+            List<String> badEntries = new ArrayList<>();
+            for (SaveFileLayout.Entry entry : layout.entries()) {
+                byte[] checksum = SaveSlotService.md5(content, (int) entry.dataOffset(), (int) entry.dataSize());
+                if (!content.slice((int) entry.offset(), SaveFileLayout.CHECKSUM_SIZE).equals(ByteBuffer.wrap(checksum))) {
+                    badEntries.add(String.valueOf(entry.index()));
+                }
+            }
+            return new ContentHashCache.Entry(hash, size, lastModified, badEntries.isEmpty() ? STATUS_OK : STATUS_ENTRIES + String.join(",", badEntries));
+        }
+    }
+
+    private static boolean unchanged(FileResult result) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(result.path(), BasicFileAttributes.class);
+        return attributes.size() == result.size() && attributes.lastModifiedTime().toMillis() == result.lastModified();
+    }
+
+    private static boolean sameContent(Path first, Path second) throws IOException {
+        return Files.mismatch(first, second) < 0;
+    }
+}
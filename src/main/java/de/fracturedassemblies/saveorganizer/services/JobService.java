@@ -0,0 +1,222 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.data.JobState;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs long operations in the background so their request returns right away. Jobs start on a small pool in the order they were
+ * submitted, on platform as on virtual threads, so a large job delays the ones after it but never starves them. Operations that
+ * fan out, like deleting a directory, bound their own parallelism, so two large jobs share the disk instead of one of them taking
+ * it over.
+ * <p>
+ * Cancelling a queued job drops it, cancelling a running job interrupts it and asks it to stop through {@link Context#isCancelled()}.
+ * Finished jobs are kept for a while so their result can still be polled.
+ */
+@Service
+public class JobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobService.class);
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    /**
+     * Handed to a running job to report its progress and check for cancellation.
+     */
+    public interface Context {
+        /**
+         * Reports how many files and bytes are done so far. Values may arrive out of order from several threads, the largest wins.
+         */
+        void progress(long files, long bytes);
+
+        void total(long files, long bytes);
+
+        boolean isCancelled();
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        ResponseEntity<?> run(Context context) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final int maxQueued;
+    private final long retentionMillis;
+    private final Map<String, Entry> jobs = new LinkedHashMap<>();
+
+    public JobService(@Value("${save.jobs.parallelism:2}") int parallelism,
+                      @Value("${save.jobs.max.queued:100}") int maxQueued,
+                      @Value("${save.jobs.retention.minutes:60}") long retentionMinutes,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.executor = ThreadPools.newFixedThreadPool("save-job", parallelism, virtualThreads);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.retentionMillis = retentionMinutes * 60_000;
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Queues a job, returns nothing if too many jobs are waiting already.
+     */
+    public synchronized Optional<Job> submit(String type, String subject, Task task) {
+        this.prune();
+        if (this.jobs.values().stream().filter(entry -> entry.state == JobState.QUEUED).count() >= this.maxQueued) {
+            LOGGER.warn("Rejecting {} job for {}, {} jobs are queued already.", type, subject, this.maxQueued);
+            return Optional.empty();
+        }
+        Entry entry = new Entry(UUID.randomUUID().toString(), type, subject, task);
+        this.jobs.put(entry.id, entry);
+        try {
+            entry.future = this.executor.submit(entry::run);
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(entry.id);
+            LOGGER.error("Could not queue {} job for {}. {}", type, subject, e.getMessage());
+            return Optional.empty();
+        }
+        LOGGER.info("Queued {} job {} for {}.", type, entry.id, subject);
+        return Optional.of(entry.snapshot());
+    }
+
+    public synchronized Optional<Job> getJob(String id) {
+        return Optional.ofNullable(this.jobs.get(id)).map(Entry::snapshot);
+    }
+
+    public synchronized List<Job> getJobs() {
+        this.prune();
+        return this.jobs.values().stream().map(Entry::snapshot).toList();
+    }
+
+    /**
+     * Cancels a job, returns its state afterwards or nothing if there is no such job. Finished jobs stay as they are.
+     */
+    public synchronized Optional<Job> cancel(String id) {
+        Entry entry = this.jobs.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        entry.cancel();
+        return Optional.of(entry.snapshot());
+    }
+
+    private void prune() {
+        long expiredBefore = System.currentTimeMillis() - this.retentionMillis;
+        long finished = this.jobs.values().stream().filter(entry -> entry.state.isFinished()).count();
+        Iterator<Entry> entries = this.jobs.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.state.isFinished() && (entry.finishedAt < expiredBefore || finished > MAX_FINISHED_JOBS)) {
+                entries.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static final class Entry implements Context {
+        private final String id;
+        private final String type;
+        private final String subject;
+        private final Task task;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        private volatile JobState state = JobState.QUEUED;
+        private volatile boolean cancelled;
+        private volatile long totalFiles = -1;
+        private volatile long totalBytes = -1;
+        private volatile int status;
+        private volatile String message;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private Future<?> future;
+
+        private Entry(String id, String type, String subject, Task task) {
+            this.id = id;
+            this.type = type;
+            this.subject = subject;
+            this.task = task;
+        }
+
+        @Override
+        public void progress(long files, long bytes) {
+            this.files.accumulateAndGet(files, Math::max);
+            this.bytes.accumulateAndGet(bytes, Math::max);
+        }
+
+        @Override
+        public void total(long files, long bytes) {
+            this.totalFiles = files;
+            this.totalBytes = bytes;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled || Thread.currentThread().isInterrupted();
+        }
+
+        private void run() {
+            synchronized (this) {
+                if (this.state != JobState.QUEUED) {
+                    return;
+                }
+                this.state = JobState.RUNNING;
+                this.startedAt = System.currentTimeMillis();
+            }
+            ResponseEntity<?> response;
+            try {
+                response = this.task.run(this);
+            } catch (InterruptedException | InterruptedIOException | CancellationException e) {
+                response = new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+                this.cancelled = true;
+            } catch (Exception e) {
+                LOGGER.error("Job {} ({} for {}) failed.", this.id, this.type, this.subject, e);
+                this.message = e.getMessage();
+                response = new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            this.finish(response.getStatusCode().value(), response.getStatusCode().is2xxSuccessful() ? JobState.SUCCEEDED
+                    : this.cancelled ? JobState.CANCELLED : JobState.FAILED);
+        }
+
+        private synchronized void cancel() {
+            if (this.state.isFinished()) {
+                return;
+            }
+            this.cancelled = true;
+            if (this.state == JobState.QUEUED) {
+                this.finish(0, JobState.CANCELLED);
+                this.future.cancel(false);
+            } else {
+                this.future.cancel(true);
+            }
+            LOGGER.info("Cancelled {} job {} for {}.", this.type, this.id, this.subject);
+        }
+
+        private synchronized void finish(int status, JobState state) {
+            this.status = status;
+            this.finishedAt = System.currentTimeMillis();
+            this.state = state;
+            LOGGER.info("{} job {} for {} finished as {} after {} files and {} bytes.", this.type, this.id, this.subject, state,
+                    this.files.get(), this.bytes.get());
+        }
+
+        private Job snapshot() {
+            return new Job(this.id, this.type, this.subject, this.state, this.files.get(), this.bytes.get(), this.totalFiles, this.totalBytes,
+                    this.status, this.message, this.createdAt, this.startedAt, this.finishedAt);
+        }
+    }
+}
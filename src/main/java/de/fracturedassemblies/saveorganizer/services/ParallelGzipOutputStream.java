@@ -0,0 +1,176 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream that deflates blocks on several threads, the way pigz does. Every block is compressed on its own, primed with the
+ * last 32 KiB of the block before as dictionary and ended with a sync flush, so the compressed blocks concatenate to one regular
+ * deflate stream and the result is a single gzip member any gzip reader understands. The CRC is computed on the writing thread while
+ * the data arrives, compressed blocks are written in order as soon as they are done and at most twice {@code parallelism} blocks are
+ * in flight, so memory stays bounded no matter how much is written.
+ * <p>
+ * {@link #finish()} writes the trailer and leaves the underlying stream open, {@link #close()} closes it as well.
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] dictionary;
+    private long totalIn;
+    private boolean finished;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int parallelism, int level) throws IOException {
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.maxPending = 2 * Math.max(1, parallelism);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Stream is finished.");
+        }
+        this.crc.update(b, off, len);
+        this.totalIn += len;
+        while (len > 0) {
+            int length = Math.min(len, BLOCK_SIZE - this.blockLength);
+            System.arraycopy(b, off, this.block, this.blockLength, length);
+            this.blockLength += length;
+            off += length;
+            len -= length;
+            if (this.blockLength == BLOCK_SIZE) {
+                this.submit(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the blocks compressed so far. Data of the current block stays buffered, flushing it would end a block early and cost
+     * compression.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!this.pending.isEmpty() && this.pending.peek().isDone()) {
+            this.writeNext();
+        }
+        this.out.flush();
+    }
+
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.submit(true);
+        while (!this.pending.isEmpty()) {
+            this.writeNext();
+        }
+        this.finished = true;
+        writeInt(this.out, (int) this.crc.getValue());
+        writeInt(this.out, (int) this.totalIn);
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            this.pending.forEach(future -> future.cancel(true));
+            this.out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] data = this.block;
+        int length = this.blockLength;
+        byte[] preset = this.dictionary;
+        if (!last) {
+            this.dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+            this.block = new byte[BLOCK_SIZE];
+            this.blockLength = 0;
+        }
+        try {
+            this.pending.add(this.executor.submit(() -> deflate(data, length, preset, this.level, last)));
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Compressing was rejected.", e);
+        }
+        while (this.pending.size() > this.maxPending) {
+            this.writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        Future<byte[]> next = this.pending.poll();
+        try {
+            this.out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compressing was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IOException("Compressing failed.", e.getCause());
+        }
+    }
+
+    static byte[] deflate(byte[] data, int length, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+}
@@ -0,0 +1,78 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs at most a fixed number of messages per key and interval. Messages over the limit are dropped and counted, the count is
+ * logged together with the first message of the key in a later interval.
+ */
+public class RateLimitedLogger {
+    private static final class Window {
+        private long start;
+        private int logged;
+        private int suppressed;
+    }
+
+    private final Logger logger;
+    private final int limit;
+    private final long intervalNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public RateLimitedLogger(Logger logger, int limit, Duration interval) {
+        this.logger = logger;
+        this.limit = Math.max(1, limit);
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public void info(String key, String format, Object... arguments) {
+        if (!this.logger.isInfoEnabled()) {
+            return;
+        }
+        int suppressed = this.acquire(key);
+        if (suppressed < 0) {
+            return;
+        }
+        if (suppressed > 0) {
+            this.logger.info("{} more '{}' messages were suppressed.", suppressed, key);
+        }
+        this.logger.info(format, arguments);
+    }
+
+    public void warn(String key, String format, Object... arguments) {
+        int suppressed = this.acquire(key);
+        if (suppressed < 0) {
+            return;
+        }
+        if (suppressed > 0) {
+            this.logger.warn("{} more '{}' messages were suppressed.", suppressed, key);
+        }
+        this.logger.warn(format, arguments);
+    }
+
+    /**
+     * Returns -1 if the message has to be dropped, otherwise the number of messages dropped since the last one that was logged.
+     */
+    private int acquire(String key) {
+        Window window = this.windows.computeIfAbsent(key, k -> new Window());
+        synchronized (window) {
+            long now = System.nanoTime();
+            int suppressed = 0;
+            if (window.logged == 0 || now - window.start >= this.intervalNanos) {
+                suppressed = window.suppressed;
+                window.start = now;
+                window.logged = 0;
+                window.suppressed = 0;
+            }
+            if (window.logged >= this.limit) {
+                window.suppressed++;
+                return -1;
+            }
+            window.logged++;
+            return suppressed;
+        }
+    }
+}
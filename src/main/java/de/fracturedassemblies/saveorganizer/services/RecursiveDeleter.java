@@ -0,0 +1,90 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes a directory tree. Files are deleted in parallel on the given executor with at most {@code parallelism} deletes in
+ * flight, a directory is deleted once all of its entries are gone.
+ */
+public final class RecursiveDeleter {
+
+    @FunctionalInterface
+    public interface Progress {
+        void deleted(long files, long bytes);
+    }
+
+    public record Result(long files, long bytes, List<String> failures) {
+    }
+
+    private RecursiveDeleter() {
+    }
+
+    public static Result delete(Path directory, Executor executor, int parallelism, Progress progress) throws IOException {
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicLong files = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        Deque<List<CompletableFuture<Void>>> pending = new ArrayDeque<>();
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                pending.push(new ArrayList<>());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Deleting " + directory + " was interrupted.");
+                }
+                CompletableFuture<Void> deletion = new CompletableFuture<>();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            Files.delete(file);
+                            progress.deleted(files.incrementAndGet(), bytes.addAndGet(attributes.size()));
+                        } catch (IOException e) {
+                            failures.add(file + ": " + e.getMessage());
+                        } finally {
+                            permits.release();
+                            deletion.complete(null);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw new IOException("Deleting " + file + " was rejected.", e);
+                }
+                pending.peek().add(deletion);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                failures.add(file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                CompletableFuture.allOf(pending.pop().toArray(CompletableFuture[]::new)).join();
+                try {
+                    Files.delete(dir);
+                } catch (IOException deleteFailure) {
+                    failures.add(dir + ": " + deleteFailure.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new Result(files.get(), bytes.get(), List.copyOf(failures));
+    }
+}
@@ -0,0 +1,297 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Persistent copy of the save file index, so a restart can serve the last known listing before the disk has been checked. The
+ * catalog is an append-only file of tab-separated records that is replayed on load and rewritten once it holds too many obsolete
+ * records:
+ * <pre>
+ * D  mtime  directory                         directory listed at the given mtime, replaces all its files
+ * F  size   mtime  hash  directory  name      save added or updated, hash is "-" if unknown
+ * R  directory  name                          save removed
+ * X  directory                                directory removed
+ * </pre>
+ * Backslashes, tabs and line breaks in directory and save names are escaped, as names found on disk may contain them. A catalog
+ * that cannot be replayed, e.g. because a crash left a torn last record, is deleted on open so the next record starts a new one.
+ * <p>
+ * A directory's mtime is taken before it is listed, so anything that changes it afterwards makes the next start list it again.
+ */
+public class SaveFileCatalog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileCatalog.class);
+    private static final String HEADER = "SAVECATALOG 2";
+    private static final String SEPARATOR = "\t";
+    private static final int MIN_COMPACTION_RECORDS = 10_000;
+
+    public record FileEntry(long size, long lastModified, String hash) {
+    }
+
+    private static final class DirectoryEntry {
+        private final long lastModified;
+        private final SortedMap<String, FileEntry> files = new TreeMap<>();
+
+        private DirectoryEntry(long lastModified) {
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final Path file;
+    private final SortedMap<String, DirectoryEntry> directories = new TreeMap<>();
+    private BufferedWriter writer;
+    private long records;
+    private boolean broken;
+
+    private SaveFileCatalog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the catalog, a missing or damaged catalog results in an empty one.
+     */
+    public static SaveFileCatalog open(Path file) {
+        SaveFileCatalog catalog = new SaveFileCatalog(file);
+        if (Files.exists(file)) {
+            try {
+                catalog.replay();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring damaged save file catalog {}. {}", file, e.getMessage());
+                catalog.directories.clear();
+                catalog.records = 0;
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException deleteFailure) {
+                    catalog.fail(deleteFailure);
+                }
+            }
+        }
+        return catalog;
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.directories.isEmpty();
+    }
+
+    /**
+     * The saves of every directory as they were last recorded.
+     */
+    public synchronized SortedMap<String, List<String>> getDirectories() {
+        SortedMap<String, List<String>> result = new TreeMap<>();
+        this.directories.forEach((directory, entry) -> result.put(directory, List.copyOf(entry.files.keySet())));
+        return result;
+    }
+
+    /**
+     * The mtime the directory had when it was last listed, or -1 if it is unknown.
+     */
+    public synchronized long getDirectoryModified(String directory) {
+        DirectoryEntry entry = this.directories.get(directory);
+        return entry == null ? -1 : entry.lastModified;
+    }
+
+    public synchronized boolean contains(String directory, String name) {
+        DirectoryEntry entry = this.directories.get(directory);
+        return entry != null && entry.files.containsKey(name);
+    }
+
+    public synchronized void putDirectory(String directory, long lastModified, Map<String, FileEntry> files) {
+        DirectoryEntry entry = new DirectoryEntry(lastModified);
+        entry.files.putAll(files);
+        this.directories.put(directory, entry);
+        this.append("D", String.valueOf(lastModified), escape(directory));
+        files.forEach((name, file) -> this.appendFile(directory, name, file));
+    }
+
+    public synchronized void putFile(String directory, String name, FileEntry file) {
+        DirectoryEntry entry = this.directories.computeIfAbsent(directory, key -> new DirectoryEntry(-1));
+        entry.files.put(name, file);
+        this.appendFile(directory, name, file);
+    }
+
+    public synchronized void removeFile(String directory, String name) {
+        DirectoryEntry entry = this.directories.get(directory);
+        if (entry != null && entry.files.remove(name) != null) {
+            this.append("R", escape(directory), escape(name));
+        }
+    }
+
+    public synchronized void removeDirectory(String directory) {
+        if (this.directories.remove(directory) != null) {
+            this.append("X", escape(directory));
+        }
+    }
+
+    /**
+     * Writes the appended records through and compacts the catalog if most of its records are obsolete.
+     */
+    public synchronized void flush() {
+        if (this.broken || this.writer == null) {
+            return;
+        }
+        try {
+            this.writer.flush();
+            long live = this.directories.values().stream().mapToLong(entry -> entry.files.size() + 1).sum();
+            if (this.records > Math.max(MIN_COMPACTION_RECORDS, 2 * live)) {
+                this.compact();
+            }
+        } catch (IOException e) {
+            this.fail(e);
+        }
+    }
+
+    public synchronized void close() {
+        this.flush();
+        if (this.writer != null) {
+            try {
+                this.writer.close();
+            } catch (IOException e) {
+                LOGGER.debug("Closing save file catalog failed. {}", e.getMessage());
+            }
+            this.writer = null;
+        }
+    }
+
+    private void replay() throws IOException {
+        // A torn last record may still parse, e.g. as a directory with a cut off name
+        try (SeekableByteChannel channel = Files.newByteChannel(this.file)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (channel.size() > 0 && (channel.position(channel.size() - 1).read(last) != 1 || last.get(0) != '\n')) {
+                throw new IOException("Last record is incomplete");
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Unknown catalog format");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "D" -> this.directories.put(unescape(fields[2]), new DirectoryEntry(Long.parseLong(fields[1])));
+                    case "F" -> this.directories.computeIfAbsent(unescape(fields[4]), key -> new DirectoryEntry(-1)).files
+                            .put(unescape(fields[5]), new FileEntry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), "-".equals(fields[3]) ? null : fields[3]));
+                    case "R" -> {
+                        DirectoryEntry entry = this.directories.get(unescape(fields[1]));
+                        if (entry != null) {
+                            entry.files.remove(unescape(fields[2]));
+                        }
+                    }
+                    case "X" -> this.directories.remove(unescape(fields[1]));
+                    default -> throw new IOException("Unknown catalog record " + fields[0]);
+                }
+                this.records++;
+            }
+        }
+    }
+
+    private void appendFile(String directory, String name, FileEntry file) {
+        this.append("F", String.valueOf(file.size()), String.valueOf(file.lastModified()), file.hash() == null ? "-" : file.hash(), escape(directory),
+                escape(name));
+    }
+
+    private void append(String... fields) {
+        if (this.broken) {
+            return;
+        }
+        try {
+            if (this.writer == null) {
+                this.openWriter();
+            }
+            this.writer.write(String.join(SEPARATOR, fields));
+            this.writer.newLine();
+            this.records++;
+        } catch (IOException e) {
+            this.fail(e);
+        }
+    }
+
+    private void openWriter() throws IOException {
+        Files.createDirectories(this.file.getParent());
+        boolean created = !Files.exists(this.file);
+        this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (created) {
+            this.writer.write(HEADER);
+            this.writer.newLine();
+        }
+    }
+
+    private void compact() throws IOException {
+        if (this.writer != null) {
+            this.writer.close();
+            this.writer = null;
+        }
+        Path temp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+        long written = 0;
+        try {
+            try (BufferedWriter compacted = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                compacted.write(HEADER);
+                compacted.newLine();
+                for (Map.Entry<String, DirectoryEntry> directory : this.directories.entrySet()) {
+                    compacted.write(String.join(SEPARATOR, "D", String.valueOf(directory.getValue().lastModified), escape(directory.getKey())));
+                    compacted.newLine();
+                    written++;
+                    for (Map.Entry<String, FileEntry> saveFile : directory.getValue().files.entrySet()) {
+                        FileEntry entry = saveFile.getValue();
+                        compacted.write(String.join(SEPARATOR, "F", String.valueOf(entry.size()), String.valueOf(entry.lastModified()),
+                                entry.hash() == null ? "-" : entry.hash(), escape(directory.getKey()), escape(saveFile.getKey())));
+                        compacted.newLine();
+                        written++;
+                    }
+                }
+            }
+            Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        this.records = written;
+        LOGGER.debug("Compacted save file catalog {} to {} records.", this.file, written);
+    }
+
+    private static String escape(String field) {
+        return field.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder result = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char escaped = field.charAt(++i);
+                result.append(switch (escaped) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> escaped;
+                });
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private void fail(IOException e) {
+        LOGGER.warn("Writing save file catalog {} failed, it is not updated any more. {}", this.file, e.getMessage());
+        this.broken = true;
+        try {
+            Files.deleteIfExists(this.file);
+        } catch (IOException deleteFailure) {
+            LOGGER.debug("Could not delete save file catalog {}. {}", this.file, deleteFailure.getMessage());
+        }
+    }
+}
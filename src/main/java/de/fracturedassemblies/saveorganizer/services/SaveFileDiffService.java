@@ -0,0 +1,202 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.DiffRange;
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.data.SaveFileDiff;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Compares saves block by block with {@link ByteBuffer#mismatch(ByteBuffer)} over mapped regions. If both saves share the same
+ * container layout, entries whose embedded MD5 checksums match are skipped after reading just the 16 checksum bytes.
+ */
+@Service
+public class SaveFileDiffService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileDiffService.class);
+    private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final int WINDOW_SIZE = 64;
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileLocks saveFileLocks;
+    private final ExecutorService executor;
+    private final int maxRanges;
+
+    public SaveFileDiffService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService, SaveFileLocks saveFileLocks,
+                               @Value("${save.diff.threads:4}") int threads, @Value("${save.diff.max.ranges:1000}") int maxRanges,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileLocks = saveFileLocks;
+        this.maxRanges = maxRanges;
+        this.executor = ThreadPools.newFixedThreadPool("save-file-diff", threads, virtualThreads);
+    }
+
+    public SaveFileDiff diff(String directoryA, String fileA, String directoryB, String fileB) throws IOException {
+        try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(directoryA, directoryB), List.of(), SaveFileLocks.Access.NONE)) {
+            return this.compareSaveFiles(directoryA, fileA, directoryB, fileB);
+        }
+    }
+
+    private SaveFileDiff compareSaveFiles(String directoryA, String fileA, String directoryB, String fileB) throws IOException {
+        Path saveFileA = this.existing(this.fileOrganizerService.resolveSaveFile(directoryA, fileA));
+        Path saveFileB = this.existing(this.fileOrganizerService.resolveSaveFile(directoryB, fileB));
+        return this.saveFileStoreService.read(saveFileA, (sizeA, sourceA) -> this.saveFileStoreService.read(saveFileB, (sizeB, sourceB) -> {
+            Comparison comparison = new Comparison(this.maxRanges);
+            compare(sizeA, sourceA, sizeB, sourceB, comparison);
+            return new SaveFileDiff(directoryA, fileA, directoryB, fileB, sizeA, sizeB, !comparison.different,
+                    List.copyOf(comparison.changedSlots), List.copyOf(comparison.ranges), comparison.truncated);
+        }));
+    }
+
+    /**
+     * Compares a save against every save of a directory, in parallel. Saves that disappear while comparing are left out.
+     */
+    public List<SaveFileDiff> diffDirectory(String directoryA, String fileA, String directoryB) throws IOException {
+        SaveDirectory saveDirectory = this.fileOrganizerService.getSaveFiles().saveFileResult().stream()
+                .filter(directory -> directory.getDirectory().equals(directoryB))
+                .findFirst()
+                .orElseThrow(() -> new NoSuchFileException(directoryB));
+        this.existing(this.fileOrganizerService.resolveSaveFile(directoryA, fileA));
+
+        List<CompletableFuture<SaveFileDiff>> diffs = new ArrayList<>();
+        for (String fileB : saveDirectory.getSaveFiles()) {
+            if (!(directoryA.equals(directoryB) && fileA.equals(fileB))) {
+                diffs.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return this.diff(directoryA, fileA, directoryB, fileB);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, this.executor));
+            }
+        }
+        List<SaveFileDiff> result = new ArrayList<>(diffs.size());
+        for (CompletableFuture<SaveFileDiff> diff : diffs) {
+            try {
+                result.add(diff.join());
+            } catch (CompletionException e) {
+                LOGGER.debug("Skipping save that could not be compared. {}", e.getCause().getMessage());
+            }
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    private Path existing(Path saveFile) throws NoSuchFileException {
+        if (!Files.exists(saveFile)) {
+            throw new NoSuchFileException(saveFile.toString());
+        }
+        return saveFile;
+    }
+
+    static void compare(long sizeA, SaveFileLayout.Source a, long sizeB, SaveFileLayout.Source b, Comparison comparison) throws IOException {
+        SaveFileLayout layoutA = SaveFileLayout.read(sizeA, a);
+        SaveFileLayout layoutB = SaveFileLayout.read(sizeB, b);
+        if (layoutA.isBnd4() && layoutA.entries().equals(layoutB.entries())) {
+            Map<Long, SaveFileLayout.Entry> entries = new HashMap<>();
+            layoutA.entries().forEach(entry -> entries.put(entry.offset(), entry));
+            for (SaveFileLayout.Range range : layoutA.chunks()) {
+                SaveFileLayout.Entry entry = entries.get(range.offset());
+                if (entry == null || entry.size() != range.size()) {
+                    compareRange(a, b, range.offset(), range.size(), null, comparison);
+                } else if (!a.read(entry.offset(), SaveFileLayout.CHECKSUM_SIZE).equals(b.read(entry.offset(), SaveFileLayout.CHECKSUM_SIZE))) {
+                    compareRange(a, b, entry.offset(), entry.size(), entry.index(), comparison);
+                }
+            }
+        } else {
+            compareRange(a, b, 0, Math.min(sizeA, sizeB), null, comparison);
+        }
+        if (sizeA != sizeB) {
+            comparison.add(Math.min(sizeA, sizeB), Math.abs(sizeA - sizeB), null);
+        }
+    }
+
+    private static void compareRange(SaveFileLayout.Source a, SaveFileLayout.Source b, long offset, long size, Integer entry, Comparison comparison)
+            throws IOException {
+        for (long block = offset; block < offset + size; block += BLOCK_SIZE) {
+            int length = (int) Math.min(BLOCK_SIZE, offset + size - block);
+            ByteBuffer blockA = a.read(block, length);
+            ByteBuffer blockB = b.read(block, length);
+            int position = 0;
+            while (position < length) {
+                int mismatch = blockA.slice(position, length - position).mismatch(blockB.slice(position, length - position));
+                if (mismatch < 0) {
+                    break;
+                }
+                int start = position + mismatch;
+                // Extend the range window by window until a window matches completely, then trim it to the last differing byte.
+                int end = start + 1;
+                while (end < length) {
+                    int window = Math.min(WINDOW_SIZE, length - end);
+                    if (blockA.slice(end, window).mismatch(blockB.slice(end, window)) < 0) {
+                        break;
+                    }
+                    end += window;
+                }
+                while (blockA.get(end - 1) == blockB.get(end - 1)) {
+                    end--;
+                }
+                comparison.add(block + start, end - start, entry);
+                position = end;
+            }
+        }
+    }
+
+    static final class Comparison {
+        private final int maxRanges;
+        private final List<DiffRange> ranges = new ArrayList<>();
+        private final SortedSet<Integer> changedSlots = new TreeSet<>();
+        private boolean different;
+        private boolean truncated;
+
+        Comparison(int maxRanges) {
+            this.maxRanges = maxRanges;
+        }
+
+        List<DiffRange> getRanges() {
+            return ranges;
+        }
+
+        SortedSet<Integer> getChangedSlots() {
+            return changedSlots;
+        }
+
+        private void add(long offset, long length, Integer entry) {
+            this.different = true;
+            if (entry != null && entry < SaveFileLayout.SLOT_COUNT) {
+                this.changedSlots.add(entry);
+            }
+            if (!this.ranges.isEmpty()) {
+                DiffRange last = this.ranges.get(this.ranges.size() - 1);
+                if (Objects.equals(last.entry(), entry) && last.offset() + last.length() == offset) {
+                    this.ranges.set(this.ranges.size() - 1, new DiffRange(last.offset(), last.length() + length, entry));
+                    return;
+                }
+            }
+            if (this.ranges.size() < this.maxRanges) {
+                this.ranges.add(new DiffRange(offset, length, entry));
+            } else {
+                this.truncated = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveFileEvent;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEventType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans save library events out to Server-Sent Events subscribers. Publishing only enqueues the event, so the threads doing the
+ * file I/O never wait for a client. Pending events are coalesced on a short schedule and handed to every subscriber's bounded
+ * buffer; a subscriber that falls behind loses its buffer and receives a single resync event instead.
+ */
+@Service
+public class SaveFileEventService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileEventService.class);
+
+    private final Queue<SaveFileEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final int bufferSize;
+
+    public SaveFileEventService(@Value("${save.events.buffer.size:256}") int bufferSize,
+            @Value("${save.events.sender.threads:4}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "save-file-event-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        this.subscribers.add(subscriber);
+        emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> this.subscribers.remove(subscriber));
+        emitter.onError(e -> this.subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    public void publish(SaveFileEvent event) {
+        if (!this.subscribers.isEmpty()) {
+            this.pendingEvents.add(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${save.events.coalesce.millis:100}", timeUnit = TimeUnit.MILLISECONDS)
+    public void flush() {
+        List<SaveFileEvent> events = new ArrayList<>();
+        SaveFileEvent event;
+        while ((event = this.pendingEvents.poll()) != null) {
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        List<SaveFileEvent> coalesced = coalesce(events);
+        for (Subscriber subscriber : this.subscribers) {
+            subscriber.offer(coalesced);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.senders.shutdownNow();
+        for (Subscriber subscriber : this.subscribers) {
+            subscriber.emitter.complete();
+        }
+        this.subscribers.clear();
+    }
+
+    static List<SaveFileEvent> coalesce(List<SaveFileEvent> events) {
+        Set<String> deletedDirectories = new HashSet<>();
+        Set<String> touchedFiles = new HashSet<>();
+        for (SaveFileEvent event : events) {
+            if (event.type() == SaveFileEventType.DIRECTORY_DELETED) {
+                deletedDirectories.add(event.directory());
+            } else if (event.type() != SaveFileEventType.EXTERNAL_CHANGE) {
+                touchedFiles.add(event.directory() + "/");
+                touchedFiles.add(event.directory() + "/" + event.file());
+                if (event.previousFile() != null) {
+                    touchedFiles.add(event.directory() + "/" + event.previousFile());
+                }
+            }
+        }
+
+        Map<Object, SaveFileEvent> coalesced = new LinkedHashMap<>();
+        for (SaveFileEvent event : events) {
+            switch (event.type()) {
+                case DELETED -> {
+                    if (!deletedDirectories.contains(event.directory())) {
+                        coalesced.put(event, event);
+                    }
+                }
+                case DIRECTORY_DELETED -> coalesced.merge(List.of(event.type(), event.directory()), event, SaveFileEventService::merge);
+                case EXTERNAL_CHANGE -> {
+                    String touched = event.directory() + "/" + (event.file() == null ? "" : event.file());
+                    if (!deletedDirectories.contains(event.directory()) && !touchedFiles.contains(touched)) {
+                        coalesced.merge(List.of(event.type(), String.valueOf(event.directory())), event, SaveFileEventService::merge);
+                    }
+                }
+                default -> coalesced.put(event, event);
+            }
+        }
+        return new ArrayList<>(coalesced.values());
+    }
+
+    private static SaveFileEvent merge(SaveFileEvent first, SaveFileEvent second) {
+        String file = Objects.equals(first.file(), second.file()) ? first.file() : null;
+        return new SaveFileEvent(first.type(), first.directory(), file, null, first.count() + second.count(),
+                Math.max(first.version(), second.version()));
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SaveFileEvent> buffer;
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(SaveFileEventService.this.bufferSize);
+        }
+
+        private void offer(List<SaveFileEvent> events) {
+            for (SaveFileEvent event : events) {
+                if (!this.buffer.offer(event)) {
+                    LOGGER.warn("Event subscriber is too slow, dropping {} buffered events.", this.buffer.size());
+                    this.buffer.clear();
+                    this.buffer.offer(new SaveFileEvent(SaveFileEventType.RESYNC, null, null, null, 0, events.get(events.size() - 1).version()));
+                    break;
+                }
+            }
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (!this.buffer.isEmpty() && this.sending.compareAndSet(false, true)) {
+                try {
+                    SaveFileEventService.this.senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    this.sending.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SaveFileEvent event;
+                while ((event = this.buffer.poll()) != null) {
+                    this.emitter.send(SseEmitter.event()
+                            .name(event.type().eventName())
+                            .id(String.valueOf(event.version()))
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                LOGGER.info("Event subscriber disconnected. {}", e.getMessage());
+                SaveFileEventService.this.subscribers.remove(this);
+                this.buffer.clear();
+                return;
+            } finally {
+                this.sending.set(false);
+            }
+            this.schedule();
+        }
+    }
+}
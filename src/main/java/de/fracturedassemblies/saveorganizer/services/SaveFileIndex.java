@@ -0,0 +1,678 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChange;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChangeType;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChanges;
+import de.fracturedassemblies.saveorganizer.data.SaveFileResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * In-memory view of the save directories below the save file path. The index is filled once by a full scan and afterwards kept
+ * up to date by a {@link WatchService} and by the per-directory updates of {@link FileOrganizerService}. A full reconcile only
+ * happens when the watcher overflows or cannot be started.
+ * <p>
+ * Every change replaces the affected directory entry and publishes a new immutable {@link SaveFileSnapshot}, so readers never
+ * take a lock or touch the disk. The changes of the most recent versions are kept so clients can ask for a delta instead of the
+ * whole listing. Versions start at the current time in milliseconds so they keep increasing across restarts. Changes that were
+ * not made through {@link FileOrganizerService}, i.e. found by the watcher or a reconcile, are reported to the external change
+ * listeners. Loading the listing of a newly opened root is not a change, it replaces the listing without being reported.
+ * <p>
+ * Changes made within a {@link Batch} are collected and published together when it ends, as are the changes the watcher finds in
+ * the directories the batch touched meanwhile. Everything else is published right away while batches are open. Notifications
+ * about the batch's operations wait for that version, see {@link #afterBatch}.
+ * <p>
+ * The index is persisted in a {@link SaveFileCatalog}. If one exists on open, its listing is served right away and checked
+ * against the disk in the background, only directories whose mtime changed since they were recorded are listed again.
+ */
+@Component
+public class SaveFileIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileIndex.class);
+    private static final int MAX_RETAINED_CHANGES = 10_000;
+    private static final String CATALOG_FILE = "catalog";
+
+    private final NavigableMap<String, SaveDirectory> directories = new TreeMap<>();
+    private final Deque<SaveFileChange> changeLog = new ArrayDeque<>();
+    private final List<SaveFileChange> pendingChanges = new ArrayList<>();
+    private final List<SaveFileChange> pendingExternalChanges = new ArrayList<>();
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    private final List<Consumer<List<SaveFileChange>>> externalChangeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile SaveFileSnapshot snapshot = new SaveFileSnapshot(System.currentTimeMillis(), new SaveFileResult(List.of()));
+
+    @Value("${save.scan.parallelism:8}")
+    private int scanParallelism = 8;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+    private final Set<Batch> openBatches = new HashSet<>();
+
+    private boolean applyingBatch;
+    private volatile Path root;
+    private volatile WatchService watchService;
+    private volatile SaveFileCatalog catalog;
+    private Thread watcherThread;
+
+    public synchronized void open(Path root) {
+        this.close();
+        this.root = root;
+        this.catalog = SaveFileCatalog.open(root.resolve(SaveFileStoreService.STORE_DIRECTORY).resolve(CATALOG_FILE));
+        try {
+            this.watchService = root.getFileSystem().newWatchService();
+            this.register(root);
+        } catch (IOException e) {
+            LOGGER.warn("Watching save file path {} failed, falling back to scheduled rescans. {}", root, e.getMessage());
+            this.closeWatcher();
+        }
+        // Loading the new root replaces the listing, that is not a change found on disk
+        if (this.catalog.isEmpty()) {
+            this.reconcile(false);
+        } else {
+            this.loadCatalog(this.catalog);
+            SaveFileCatalog catalog = this.catalog;
+            Thread verifier = new Thread(() -> this.verifyCatalog(root, catalog), "save-file-index-verifier");
+            verifier.setDaemon(true);
+            verifier.start();
+        }
+        if (this.watchService != null) {
+            this.watcherThread = new Thread(this::watch, "save-file-index-watcher");
+            this.watcherThread.setDaemon(true);
+            this.watcherThread.start();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        this.closeWatcher();
+        SaveFileCatalog catalog = this.catalog;
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    private synchronized void closeWatcher() {
+        WatchService service = this.watchService;
+        this.watchService = null;
+        this.watchKeys.clear();
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                LOGGER.warn("Closing save file watcher failed. {}", e.getMessage());
+            }
+        }
+        this.watcherThread = null;
+    }
+
+    public void addExternalChangeListener(Consumer<List<SaveFileChange>> listener) {
+        this.externalChangeListeners.add(listener);
+    }
+
+    public boolean isWatching() {
+        return this.watchService != null && this.watchKeys.containsValue(this.root);
+    }
+
+    public void reconcile() {
+        this.reconcile(true);
+    }
+
+    private void reconcile(boolean external) {
+        Map<String, SaveDirectory> found = this.listDirectories(indexedDirectories(this.root));
+        synchronized (this) {
+            for (String directory : new ArrayList<>(this.directories.keySet())) {
+                if (!found.containsKey(directory)) {
+                    this.putDirectory(directory, null, external);
+                }
+            }
+            found.forEach((directory, saveDirectory) -> this.putDirectory(directory, saveDirectory, external));
+            this.publish();
+        }
+    }
+
+    private synchronized void loadCatalog(SaveFileCatalog catalog) {
+        SortedMap<String, List<String>> catalogDirectories = catalog.getDirectories();
+        for (String directory : new ArrayList<>(this.directories.keySet())) {
+            if (!catalogDirectories.containsKey(directory)) {
+                this.putDirectory(directory, null, false);
+            }
+        }
+        catalogDirectories.forEach((directory, saveFiles) -> this.putDirectory(directory, saveDirectory(directory, saveFiles), false));
+        this.publish();
+        LOGGER.info("Loaded {} save directories from the catalog.", catalogDirectories.size());
+    }
+
+    /**
+     * Brings an index loaded from the catalog up to date. Every directory is watched before its mtime is compared, so a change
+     * after the comparison is reported by the watcher instead of being missed.
+     */
+    private void verifyCatalog(Path root, SaveFileCatalog catalog) {
+        long start = System.nanoTime();
+        List<Path> directories;
+        try {
+            directories = indexedDirectories(root);
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Could not check the catalog. {}", e.getMessage());
+            return;
+        }
+        Set<String> found = new HashSet<>();
+        int listed = 0;
+        for (Path directory : directories) {
+            if (this.root != root) {
+                return;
+            }
+            String name = directory.getFileName().toString();
+            found.add(name);
+            this.register(directory);
+            if (catalog.getDirectoryModified(name) != lastModified(directory)) {
+                this.refreshDirectory(name, true);
+                listed++;
+            }
+        }
+        for (String directory : catalog.getDirectories().keySet()) {
+            if (!found.contains(directory) && !Files.isDirectory(root.resolve(directory))) {
+                this.removeDirectory(directory, true);
+            }
+        }
+        LOGGER.info("Checked the catalog against {} directories in {} ms, {} had to be listed again.", found.size(),
+                (System.nanoTime() - start) / 1_000_000, listed);
+    }
+
+    public void refreshDirectory(String directory) {
+        if (!this.deferToBatch(directory, () -> this.refreshDirectory(directory, false))) {
+            this.refreshDirectory(directory, false);
+        }
+    }
+
+    public void addFile(String directory, String fileName) {
+        if (!this.deferToBatch(directory, () -> this.addFile(directory, fileName, false))) {
+            this.addFile(directory, fileName, false);
+        }
+    }
+
+    public void removeFile(String directory, String fileName) {
+        if (!this.deferToBatch(directory, () -> this.removeFile(directory, fileName, false))) {
+            this.removeFile(directory, fileName, false);
+        }
+    }
+
+    public void removeDirectory(String directory) {
+        // Right away also within a batch, deleting the content must not flood the watcher
+        this.unwatch(directory);
+        if (!this.deferToBatch(directory, () -> this.removeDirectory(directory, false))) {
+            this.removeDirectory(directory, false);
+        }
+    }
+
+    public void renameFile(String directory, String oldName, String newName) {
+        if (!this.deferToBatch(directory, () -> this.renameIndexedFile(directory, oldName, newName))) {
+            this.renameIndexedFile(directory, oldName, newName);
+        }
+    }
+
+    private void refreshDirectory(String directory, boolean external) {
+        SaveDirectory saveDirectory = this.listDirectory(this.root.resolve(directory));
+        synchronized (this) {
+            this.putDirectory(directory, saveDirectory, external);
+            this.publish();
+        }
+    }
+
+    private synchronized void addFile(String directory, String fileName, boolean external) {
+        SaveDirectory current = this.directories.get(directory);
+        if (current == null) {
+            this.register(this.root.resolve(directory));
+            this.putDirectory(directory, saveDirectory(directory, List.of(fileName)), external);
+        } else if (!current.getSaveFiles().contains(fileName)) {
+            List<String> saveFiles = new ArrayList<>(current.getSaveFiles());
+            saveFiles.add(-Collections.binarySearch(saveFiles, fileName) - 1, fileName);
+            this.putDirectory(directory, saveDirectory(directory, saveFiles), external);
+        }
+        this.catalogFile(directory, fileName);
+        this.publish();
+    }
+
+    private synchronized void removeFile(String directory, String fileName, boolean external) {
+        SaveDirectory current = this.directories.get(directory);
+        if (current != null && current.getSaveFiles().contains(fileName)) {
+            List<String> saveFiles = new ArrayList<>(current.getSaveFiles());
+            saveFiles.remove(fileName);
+            this.putDirectory(directory, saveDirectory(directory, saveFiles), external);
+            this.catalog.removeFile(directory, fileName);
+            this.publish();
+        }
+    }
+
+    private synchronized void renameIndexedFile(String directory, String oldName, String newName) {
+        SaveDirectory current = this.directories.get(directory);
+        if (current == null || !current.getSaveFiles().contains(oldName)) {
+            this.addFile(directory, newName, false);
+            return;
+        }
+        List<String> saveFiles = new ArrayList<>(current.getSaveFiles());
+        saveFiles.remove(oldName);
+        if (!saveFiles.contains(newName)) {
+            saveFiles.add(-Collections.binarySearch(saveFiles, newName) - 1, newName);
+        }
+        this.directories.put(directory, saveDirectory(directory, saveFiles));
+        this.record(SaveFileChangeType.FILE_RENAMED, directory, newName, oldName, false);
+        this.catalog.removeFile(directory, oldName);
+        this.catalogFile(directory, newName);
+        this.publish();
+    }
+
+    private synchronized void removeDirectory(String directory, boolean external) {
+        this.unwatch(directory);
+        if (this.directories.containsKey(directory)) {
+            this.putDirectory(directory, null, external);
+            this.publish();
+        }
+    }
+
+    /**
+     * Starts a batch on the calling thread, its changes are published in a single new version by the matching {@link #endBatch}.
+     * A batch begun while the thread is already within one joins that batch.
+     */
+    public synchronized Batch beginBatch() {
+        Batch batch = this.currentBatch.get();
+        if (batch == null) {
+            batch = new Batch();
+            this.openBatches.add(batch);
+            this.currentBatch.set(batch);
+        }
+        batch.depth++;
+        return batch;
+    }
+
+    /**
+     * Runs an action on the calling thread within a batch begun on another thread, for batches whose operations run concurrently.
+     */
+    public <T> T joinBatch(Batch batch, Supplier<T> action) {
+        Batch previous = this.currentBatch.get();
+        this.currentBatch.set(batch);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                this.currentBatch.remove();
+            } else {
+                this.currentBatch.set(previous);
+            }
+        }
+    }
+
+    public synchronized void endBatch(Batch batch) {
+        if (--batch.depth > 0) {
+            return;
+        }
+        if (this.currentBatch.get() == batch) {
+            this.currentBatch.remove();
+        }
+        this.openBatches.remove(batch);
+        this.applyingBatch = true;
+        try {
+            batch.changes.forEach(Runnable::run);
+        } finally {
+            this.applyingBatch = false;
+        }
+        this.publish();
+        long version = this.snapshot.getVersion();
+        batch.completions.forEach(completion -> completion.accept(version));
+    }
+
+    /**
+     * Runs an action with the version that contains the changes made so far, right away outside of a batch and when the batch
+     * of the calling thread has ended within one. Used for notifications that must not announce a change before it is published.
+     */
+    public void afterBatch(LongConsumer action) {
+        Batch batch = this.currentBatch.get();
+        if (batch == null) {
+            action.accept(this.snapshot.getVersion());
+            return;
+        }
+        synchronized (this) {
+            batch.completions.add(action);
+        }
+    }
+
+    /**
+     * Drops the actions registered through {@link #afterBatch} so far, for a batch whose operations were undone.
+     */
+    public synchronized void discardAfterBatch(Batch batch) {
+        batch.completions.clear();
+    }
+
+    /**
+     * Adds a change to the batch of the calling thread, if it is within one.
+     */
+    private boolean deferToBatch(String directory, Runnable change) {
+        Batch batch = this.currentBatch.get();
+        if (batch == null) {
+            return false;
+        }
+        synchronized (this) {
+            batch.directories.add(directory);
+            batch.changes.add(change);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a change the watcher found to the open batch that touched the directory, so the batch's own changes are not published
+     * early as external ones.
+     */
+    private synchronized boolean deferToOpenBatch(String directory, Runnable change) {
+        for (Batch batch : this.openBatches) {
+            if (batch.directories.contains(directory)) {
+                batch.changes.add(change);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public SaveFileSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    public SaveFileResult getSaveFileResult() {
+        return this.snapshot.getSaveFileResult();
+    }
+
+    public synchronized SaveFileChanges getChangesSince(long since) {
+        long version = this.snapshot.getVersion();
+        if (since == version) {
+            return new SaveFileChanges(since, version, false, List.of());
+        }
+        SaveFileChange oldest = this.changeLog.peekFirst();
+        if (since > version || oldest == null || since < oldest.version() - 1) {
+            return new SaveFileChanges(since, version, true, List.of());
+        }
+        List<SaveFileChange> changes = new ArrayList<>();
+        Iterator<SaveFileChange> iterator = this.changeLog.descendingIterator();
+        while (iterator.hasNext()) {
+            SaveFileChange change = iterator.next();
+            if (change.version() <= since) {
+                break;
+            }
+            changes.add(change);
+        }
+        Collections.reverse(changes);
+        return new SaveFileChanges(since, version, false, changes);
+    }
+
+    private void putDirectory(String directory, SaveDirectory saveDirectory, boolean external) {
+        SaveDirectory previous = saveDirectory == null ? this.directories.remove(directory) : this.directories.put(directory, saveDirectory);
+        Set<String> previousFiles = previous == null ? Set.of() : new HashSet<>(previous.getSaveFiles());
+        Set<String> currentFiles = saveDirectory == null ? Set.of() : new HashSet<>(saveDirectory.getSaveFiles());
+        if (previous == null && saveDirectory != null) {
+            this.record(SaveFileChangeType.DIRECTORY_ADDED, directory, null, null, external);
+        }
+        for (String file : previous == null ? List.<String>of() : previous.getSaveFiles()) {
+            if (saveDirectory != null && !currentFiles.contains(file)) {
+                this.record(SaveFileChangeType.FILE_REMOVED, directory, file, null, external);
+            }
+        }
+        for (String file : saveDirectory == null ? List.<String>of() : saveDirectory.getSaveFiles()) {
+            if (!previousFiles.contains(file)) {
+                this.record(SaveFileChangeType.FILE_ADDED, directory, file, null, external);
+            }
+        }
+        if (previous != null && saveDirectory == null) {
+            this.record(SaveFileChangeType.DIRECTORY_REMOVED, directory, null, null, external);
+        }
+        if (saveDirectory == null && this.catalog != null) {
+            this.catalog.removeDirectory(directory);
+        }
+    }
+
+    private void record(SaveFileChangeType type, String directory, String file, String previousFile, boolean external) {
+        SaveFileChange change = new SaveFileChange(this.snapshot.getVersion() + 1, type, directory, file, previousFile);
+        this.pendingChanges.add(change);
+        if (external) {
+            this.pendingExternalChanges.add(change);
+        }
+    }
+
+    private void publish() {
+        if (this.applyingBatch) {
+            return;
+        }
+        this.catalog.flush();
+        if (this.pendingChanges.isEmpty()) {
+            return;
+        }
+        SaveFileResult result = new SaveFileResult(List.copyOf(this.directories.values()));
+        this.snapshot = new SaveFileSnapshot(this.snapshot.getVersion() + 1, result);
+        this.changeLog.addAll(this.pendingChanges);
+        if (!this.pendingExternalChanges.isEmpty()) {
+            List<SaveFileChange> changes = List.copyOf(this.pendingExternalChanges);
+            this.externalChangeListeners.forEach(listener -> listener.accept(changes));
+        }
+        this.pendingChanges.clear();
+        this.pendingExternalChanges.clear();
+        while (this.changeLog.size() > MAX_RETAINED_CHANGES) {
+            long dropped = this.changeLog.removeFirst().version();
+            while (!this.changeLog.isEmpty() && this.changeLog.peekFirst().version() == dropped) {
+                this.changeLog.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Lists the given directories, up to {@code save.scan.parallelism} at a time. Directories that cannot be listed map to
+     * {@code null}.
+     */
+    private Map<String, SaveDirectory> listDirectories(List<Path> directories) {
+        Map<String, SaveDirectory> found = new HashMap<>();
+        if (directories.size() <= 1 || this.scanParallelism <= 1) {
+            directories.forEach(directory -> found.put(directory.getFileName().toString(), this.listDirectory(directory)));
+            return found;
+        }
+        ExecutorService executor = ThreadPools.newFixedThreadPool("save-file-index-scan", Math.min(this.scanParallelism, directories.size()),
+                this.virtualThreads);
+        try {
+            Map<String, CompletableFuture<SaveDirectory>> listings = new HashMap<>();
+            for (Path directory : directories) {
+                listings.put(directory.getFileName().toString(), CompletableFuture.supplyAsync(() -> this.listDirectory(directory), executor));
+            }
+            listings.forEach((directory, listing) -> found.put(directory, listing.join()));
+            return found;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private SaveDirectory listDirectory(Path directory) {
+        String name = directory.getFileName().toString();
+        long lastModified = lastModified(directory);
+        SortedMap<String, SaveFileCatalog.FileEntry> saveFiles = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            this.register(directory);
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (SaveFileStoreService.isSaveFile(fileName)) {
+                    saveFiles.put(SaveFileStoreService.toSaveName(fileName), fileEntry(file));
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            LOGGER.debug("Could not list directory {}. {}", directory, e.getMessage());
+            return null;
+        }
+        this.catalog.putDirectory(name, lastModified, saveFiles);
+        return saveDirectory(name, new ArrayList<>(saveFiles.keySet()));
+    }
+
+    private static List<Path> indexedDirectories(Path root) {
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root,
+                path -> isIndexedDirectory(path.getFileName().toString()) && Files.isDirectory(path))) {
+            stream.forEach(directories::add);
+        } catch (IOException | DirectoryIteratorException e) {
+            throw new IllegalStateException("Could not list save file path " + root, e);
+        }
+        return directories;
+    }
+
+    private static SaveFileCatalog.FileEntry fileEntry(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new SaveFileCatalog.FileEntry(attributes.size(), attributes.lastModifiedTime().toMillis(), null);
+        } catch (IOException e) {
+            return new SaveFileCatalog.FileEntry(0, 0, null);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void catalogFile(String directory, String fileName) {
+        Path saveFile = this.root.resolve(directory).resolve(fileName + SaveFileStoreService.SAVE_FILE_SUFFIX);
+        if (!Files.exists(saveFile)) {
+            saveFile = saveFile.resolveSibling(fileName + SaveFileStoreService.MANIFEST_SUFFIX);
+        }
+        this.catalog.putFile(directory, fileName, fileEntry(saveFile));
+    }
+
+    private static SaveDirectory saveDirectory(String directory, List<String> saveFiles) {
+        SaveDirectory saveDirectory = new SaveDirectory();
+        saveDirectory.setDirectory(directory);
+        saveDirectory.setSaveFiles(List.copyOf(saveFiles));
+        return saveDirectory;
+    }
+
+    private void register(Path directory) {
+        WatchService service = this.watchService;
+        if (service == null) {
+            return;
+        }
+        try {
+            this.watchKeys.put(directory.register(service, ENTRY_CREATE, ENTRY_DELETE), directory);
+        } catch (IOException | ClosedWatchServiceException e) {
+            LOGGER.warn("Could not watch directory {}. {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching a directory that is about to be removed, so deleting its content does not flood the watcher with events for
+     * files that are no longer indexed anyway. {@link #refreshDirectory(String)} registers it again if it still exists.
+     */
+    private void unwatch(String directory) {
+        if (this.root == null) {
+            return;
+        }
+        Path path = this.root.resolve(directory);
+        this.watchKeys.entrySet().removeIf(entry -> {
+            if (entry.getValue().equals(path)) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void watch() {
+        WatchService service = this.watchService;
+        while (service != null && service == this.watchService) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = this.watchKeys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    this.onEvent(directory, event);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Processing file event {} in {} failed. {}", event.kind(), directory, e.getMessage());
+                }
+            }
+            if (!key.reset()) {
+                this.watchKeys.remove(key);
+            }
+        }
+    }
+
+    private void onEvent(Path directory, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            LOGGER.warn("Save file watcher overflowed, reconciling the whole index.");
+            this.reconcile();
+            return;
+        }
+        if (directory == null) {
+            return;
+        }
+        String name = ((Path) event.context()).getFileName().toString();
+        if (directory.equals(this.root)) {
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(directory.resolve(name)) && isIndexedDirectory(name)) {
+                if (!this.deferToOpenBatch(name, () -> this.refreshDirectory(name, true))) {
+                    this.refreshDirectory(name, true);
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                if (!this.deferToOpenBatch(name, () -> this.removeDirectory(name, true))) {
+                    this.removeDirectory(name, true);
+                }
+            }
+        } else if (SaveFileStoreService.isSaveFile(name)) {
+            String saveDirectory = directory.getFileName().toString();
+            String saveName = SaveFileStoreService.toSaveName(name);
+            if (event.kind() == ENTRY_CREATE) {
+                if (!this.deferToOpenBatch(saveDirectory, () -> this.addFile(saveDirectory, saveName, true))) {
+                    this.addFile(saveDirectory, saveName, true);
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                Runnable removal = () -> {
+                    if (!Files.exists(directory.resolve(saveName + SaveFileStoreService.SAVE_FILE_SUFFIX))
+                            && !Files.exists(directory.resolve(saveName + SaveFileStoreService.MANIFEST_SUFFIX))) {
+                        this.removeFile(saveDirectory, saveName, true);
+                    }
+                };
+                if (!this.deferToOpenBatch(saveDirectory, removal)) {
+                    removal.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes of a batch of operations, see {@link #beginBatch()}.
+     */
+    public static final class Batch {
+        private final List<Runnable> changes = new ArrayList<>();
+        private final List<LongConsumer> completions = new ArrayList<>();
+        private final Set<String> directories = new HashSet<>();
+        private int depth;
+
+        private Batch() {
+        }
+    }
+
+    static boolean isIndexedDirectory(String name) {
+        return !name.contains(".git") && !name.startsWith(".");
+    }
+}
@@ -0,0 +1,142 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Entry table of the BND4 container an Elden Ring {@code .sl2} file is stored in. The first ten entries are the character slots,
+ * the eleventh ({@code USER_DATA_10}) holds the profile summary. Each entry starts with the MD5 checksum of the rest of its data.
+ */
+public record SaveFileLayout(long size, List<Entry> entries) {
+    public static final int CHECKSUM_SIZE = 16;
+    public static final int SLOT_COUNT = 10;
+    public static final int USER_DATA_ENTRY = 10;
+    // Profile summary in USER_DATA_10, relative to its data behind the checksum: one active flag per slot, then one summary per slot.
+    public static final int ACTIVE_SLOTS_OFFSET = 0x1954;
+    public static final int SLOT_SUMMARY_OFFSET = 0x195E;
+    public static final int SLOT_SUMMARY_SIZE = 0x24C;
+
+    private static final byte[] MAGIC = "BND4".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 0x40;
+    private static final int ENTRY_HEADER_SIZE = 0x20;
+    private static final long FALLBACK_CHUNK_SIZE = 1024 * 1024;
+
+    public record Entry(int index, long offset, long size) {
+        public long end() {
+            return offset + size;
+        }
+
+        public long dataOffset() {
+            return offset + CHECKSUM_SIZE;
+        }
+
+        public long dataSize() {
+            return size - CHECKSUM_SIZE;
+        }
+    }
+
+    public record Range(long offset, long size) {
+    }
+
+    /**
+     * Random access to the content of a save file, so only the regions that are needed have to be read or mapped.
+     */
+    @FunctionalInterface
+    public interface Source {
+        ByteBuffer read(long offset, int length) throws IOException;
+    }
+
+    public static SaveFileLayout read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static SaveFileLayout read(FileChannel channel) throws IOException {
+        return read(channel.size(), (offset, length) -> {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            channel.read(buffer, offset);
+            return buffer.flip();
+        });
+    }
+
+    public static SaveFileLayout read(long size, Source source) throws IOException {
+        if (size < HEADER_SIZE) {
+            return new SaveFileLayout(size, List.of());
+        }
+        ByteBuffer header = source.read(0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return new SaveFileLayout(size, List.of());
+            }
+        }
+        int entryCount = header.getInt(0x0C);
+        long entryHeaderSize = header.getLong(0x20);
+        if (entryCount <= 0 || entryHeaderSize < ENTRY_HEADER_SIZE || HEADER_SIZE + entryCount * entryHeaderSize > size) {
+            return new SaveFileLayout(size, List.of());
+        }
+
+        ByteBuffer entryHeaders = source.read(HEADER_SIZE, (int) (entryCount * entryHeaderSize)).order(ByteOrder.LITTLE_ENDIAN);
+        List<Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            int position = (int) (i * entryHeaderSize);
+            long entrySize = entryHeaders.getLong(position + 0x08);
+            long entryOffset = Integer.toUnsignedLong(entryHeaders.getInt(position + 0x10));
+            if (entrySize < CHECKSUM_SIZE || entryOffset < HEADER_SIZE || entryOffset + entrySize > size) {
+                return new SaveFileLayout(size, List.of());
+            }
+            entries.add(new Entry(i, entryOffset, entrySize));
+        }
+        return new SaveFileLayout(size, List.copyOf(entries));
+    }
+
+    public boolean isBnd4() {
+        return !this.entries.isEmpty();
+    }
+
+    public Entry slot(int slot) {
+        if (slot < 0 || slot >= SLOT_COUNT || slot >= this.entries.size()) {
+            throw new IllegalArgumentException("No character slot " + slot + " in save file.");
+        }
+        return this.entries.get(slot);
+    }
+
+    /**
+     * Splits the file into ranges that cover it completely: one per container entry plus the header and any gaps between the
+     * entries, or fixed-size blocks if the file is not a BND4 container.
+     */
+    public List<Range> chunks() {
+        List<Range> ranges = new ArrayList<>();
+        if (!this.isBnd4()) {
+            for (long offset = 0; offset < this.size; offset += FALLBACK_CHUNK_SIZE) {
+                ranges.add(new Range(offset, Math.min(FALLBACK_CHUNK_SIZE, this.size - offset)));
+            }
+            return ranges;
+        }
+        List<Entry> sorted = new ArrayList<>(this.entries);
+        sorted.sort(Comparator.comparingLong(Entry::offset));
+        long position = 0;
+        for (Entry entry : sorted) {
+            if (entry.offset() < position) {
+                return new SaveFileLayout(this.size, List.of()).chunks();
+            }
+            if (entry.offset() > position) {
+                ranges.add(new Range(position, entry.offset() - position));
+            }
+            ranges.add(new Range(entry.offset(), entry.size()));
+            position = entry.end();
+        }
+        if (position < this.size) {
+            ranges.add(new Range(position, this.size - position));
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,131 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read/write locks for save directories and the live save. Directories are mapped onto a fixed set of striped locks, so operations
+ * on different directories rarely contend and the number of locks stays constant no matter how many directories exist. Reading a
+ * save takes the read lock of its directory, anything that adds, replaces, renames or deletes a save takes the write lock. The
+ * live save has a lock of its own: storing it takes the read lock, replacing it the write lock.
+ * <p>
+ * All locks of an operation are acquired at once through {@link #acquire}, stripes in ascending order and the live save last, so
+ * two operations can never wait for each other. Locks must not be acquired again while holding some, a read lock cannot be
+ * upgraded.
+ * <p>
+ * Every change the application makes to a save directory or the live save holds these locks: the file operations, slot
+ * transplants, duplicate linking, store migration and garbage collection, and the undo steps of batches. Two things are not
+ * serialized: changes made outside of the application, which the index picks up through its watcher, and transfers from a
+ * {@link SaveFileStoreService.Snapshot}, which keeps reading the content as it was without holding a lock.
+ */
+@Component
+public class SaveFileLocks {
+    private static final int STRIPES = 64;
+
+    public enum Access {
+        NONE, READ, WRITE
+    }
+
+    /**
+     * Locks held by an operation, released on close.
+     */
+    public interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+    private final ReentrantReadWriteLock liveSave = new ReentrantReadWriteLock();
+
+    public SaveFileLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public Held read(String directory) {
+        return this.acquire(List.of(directory), List.of(), Access.NONE);
+    }
+
+    public Held write(String... directories) {
+        return this.acquire(List.of(), List.of(directories), Access.NONE);
+    }
+
+    /**
+     * Locks the given directories for reading or writing and the live save with the given access. A directory in both collections
+     * is locked for writing, {@code null} directories are ignored.
+     */
+    public Held acquire(Collection<String> readDirectories, Collection<String> writeDirectories, Access liveSave) {
+        SortedMap<Integer, Boolean> exclusive = new TreeMap<>();
+        readDirectories.forEach(directory -> {
+            if (directory != null) {
+                exclusive.putIfAbsent(stripe(directory), false);
+            }
+        });
+        writeDirectories.forEach(directory -> {
+            if (directory != null) {
+                exclusive.put(stripe(directory), true);
+            }
+        });
+        List<Lock> locks = new ArrayList<>(exclusive.size() + 1);
+        exclusive.forEach((stripe, write) -> locks.add(write ? this.stripes[stripe].writeLock() : this.stripes[stripe].readLock()));
+        if (liveSave != Access.NONE) {
+            locks.add(liveSave == Access.WRITE ? this.liveSave.writeLock() : this.liveSave.readLock());
+        }
+        return lockAll(locks);
+    }
+
+    /**
+     * Locks every directory and the live save exclusively, for changes that affect the whole library such as a new save file path.
+     */
+    public Held exclusive() {
+        List<Lock> locks = new ArrayList<>(STRIPES + 1);
+        for (ReentrantReadWriteLock stripe : this.stripes) {
+            locks.add(stripe.writeLock());
+        }
+        locks.add(this.liveSave.writeLock());
+        return lockAll(locks);
+    }
+
+    private static Held lockAll(List<Lock> locks) {
+        int locked = 0;
+        try {
+            for (Lock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(locks, locked);
+            throw e;
+        }
+        return () -> unlock(locks, locks.size());
+    }
+
+    private static void unlock(List<Lock> locks, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Spellings of the same directory such as "Profile/" and "./Profile" share a stripe, whatever the caller validated.
+     */
+    private static int stripe(String directory) {
+        String key;
+        try {
+            key = Path.of(directory).normalize().toString();
+        } catch (InvalidPathException e) {
+            key = directory;
+        }
+        return Math.floorMod(key.hashCode() * 0x9E3779B9, STRIPES);
+    }
+}
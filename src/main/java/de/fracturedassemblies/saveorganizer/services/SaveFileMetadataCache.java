@@ -0,0 +1,141 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveFileMetadata;
+import de.fracturedassemblies.saveorganizer.data.SlotSummary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.ACTIVE_SLOTS_OFFSET;
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.SLOT_SUMMARY_OFFSET;
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.SLOT_SUMMARY_SIZE;
+
+/**
+ * Parsed summaries of the stored saves. A save is only read again when its size or modification time changed, everything it
+ * needs is read from the container header and the profile summary in {@code USER_DATA_10}, not the character slots themselves.
+ */
+@Component
+public class SaveFileMetadataCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileMetadataCache.class);
+
+    private static final int NAME_SIZE = 0x22;
+    private static final int LEVEL_OFFSET = 0x22;
+    private static final int PLAYTIME_OFFSET = 0x26;
+    private static final int SUMMARY_REGION_SIZE =
+            SLOT_SUMMARY_OFFSET - ACTIVE_SLOTS_OFFSET + (SaveFileLayout.SLOT_COUNT - 1) * SLOT_SUMMARY_SIZE + PLAYTIME_OFFSET + 4;
+
+    private record Key(Path path, long size, long lastModified) {
+    }
+
+    private final SaveFileStoreService saveFileStoreService;
+    private final Map<Key, SaveFileMetadata> cache;
+    private final ExecutorService executor;
+    private final AtomicLong parsedFiles = new AtomicLong();
+
+    public SaveFileMetadataCache(SaveFileStoreService saveFileStoreService, @Value("${save.metadata.cache.size:20000}") int capacity,
+                                 @Value("${save.metadata.threads:4}") int threads, @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.saveFileStoreService = saveFileStoreService;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SaveFileMetadata> eldest) {
+                return this.size() > capacity;
+            }
+        };
+        this.executor = ThreadPools.newFixedThreadPool("save-file-metadata", threads, virtualThreads);
+    }
+
+    /**
+     * Returns the metadata of all given saves. Saves that are not cached yet are parsed in parallel, saves that cannot be read any
+     * more are left out.
+     */
+    public Map<Path, SaveFileMetadata> get(Collection<Path> saveFiles) {
+        Map<Path, SaveFileMetadata> result = new HashMap<>();
+        Map<Path, CompletableFuture<SaveFileMetadata>> parsing = new HashMap<>();
+        for (Path saveFile : saveFiles) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(saveFile, BasicFileAttributes.class);
+            } catch (IOException e) {
+                continue;
+            }
+            Key key = new Key(saveFile, attributes.size(), attributes.lastModifiedTime().toMillis());
+            SaveFileMetadata cached;
+            synchronized (this.cache) {
+                cached = this.cache.get(key);
+            }
+            if (cached != null) {
+                result.put(saveFile, cached);
+            } else {
+                parsing.put(saveFile, CompletableFuture.supplyAsync(() -> this.parse(key), this.executor));
+            }
+        }
+        parsing.forEach((saveFile, metadata) -> result.put(saveFile, metadata.join()));
+        return result;
+    }
+
+    public long getParsedFiles() {
+        return parsedFiles.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    private SaveFileMetadata parse(Key key) {
+        String name = SaveFileStoreService.toSaveName(key.path().getFileName().toString());
+        SaveFileMetadata metadata;
+        try {
+            metadata = this.saveFileStoreService.read(key.path(),
+                    (size, source) -> new SaveFileMetadata(name, size, key.lastModified(), readSlots(size, source)));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read metadata of {}. {}", key.path(), e.getMessage());
+            metadata = new SaveFileMetadata(name, key.size(), key.lastModified(), null);
+        }
+        this.parsedFiles.incrementAndGet();
+        synchronized (this.cache) {
+            this.cache.put(key, metadata);
+        }
+        return metadata;
+    }
+
+    static List<SlotSummary> readSlots(long size, SaveFileLayout.Source source) throws IOException {
+        SaveFileLayout layout = SaveFileLayout.read(size, source);
+        if (layout.entries().size() <= SaveFileLayout.USER_DATA_ENTRY) {
+            return null;
+        }
+        SaveFileLayout.Entry userData = layout.entries().get(SaveFileLayout.USER_DATA_ENTRY);
+        if (userData.dataSize() < ACTIVE_SLOTS_OFFSET + SUMMARY_REGION_SIZE) {
+            return null;
+        }
+        ByteBuffer summary = source.read(userData.dataOffset() + ACTIVE_SLOTS_OFFSET, SUMMARY_REGION_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        List<SlotSummary> slots = new ArrayList<>();
+        for (int slot = 0; slot < SaveFileLayout.SLOT_COUNT; slot++) {
+            if (summary.get(slot) == 0) {
+                continue;
+            }
+            int position = SLOT_SUMMARY_OFFSET - ACTIVE_SLOTS_OFFSET + slot * SLOT_SUMMARY_SIZE;
+            byte[] nameBytes = new byte[NAME_SIZE];
+            summary.get(position, nameBytes);
+            String characterName = new String(nameBytes, StandardCharsets.UTF_16LE);
+            int end = characterName.indexOf('\0');
+            slots.add(new SlotSummary(slot, end < 0 ? characterName : characterName.substring(0, end), summary.getInt(position + LEVEL_OFFSET),
+                    Integer.toUnsignedLong(summary.getInt(position + PLAYTIME_OFFSET))));
+        }
+        return List.copyOf(slots);
+    }
+}
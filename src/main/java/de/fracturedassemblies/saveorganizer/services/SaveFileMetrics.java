@@ -0,0 +1,143 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Metrics and the operation log of the file operations. Every operation is timed with a histogram per operation and outcome, the
+ * outcome being the name of the response status, so failures are counted by cause. Each operation is logged as one structured
+ * line, rate limited per operation and outcome.
+ * <p>
+ * Every root has metrics of its own, all meters are tagged with the name of the root. The gauges are removed when the root is
+ * closed, they would otherwise keep reporting its closed index.
+ */
+@Component
+public class SaveFileMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileMetrics.class);
+    private static final String OK = HttpStatus.OK.name();
+
+    private final MeterRegistry registry;
+    private final String root;
+    private final RateLimitedLogger operationLog;
+    private final Map<String, AtomicInteger> activeOperations = new ConcurrentHashMap<>();
+    private final List<Meter> gauges = new CopyOnWriteArrayList<>();
+
+    public SaveFileMetrics(MeterRegistry registry, SaveFileIndex saveFileIndex,
+                           @Value("${save.root.name:" + SaveFileRoots.DEFAULT_ROOT + "}") String root,
+                           @Value("${save.log.operations.per.second:20}") int operationsPerSecond) {
+        this.registry = registry;
+        this.root = root;
+        this.operationLog = new RateLimitedLogger(LOGGER, operationsPerSecond, Duration.ofSeconds(1));
+        this.gauges.add(Gauge.builder("saveorganizer.index.directories", saveFileIndex, index -> index.getSaveFileResult().saveFileResult().size())
+                .description("Save directories in the index")
+                .tag("root", root)
+                .register(registry));
+        this.gauges.add(Gauge.builder("saveorganizer.index.files", saveFileIndex, SaveFileMetrics::countSaveFiles)
+                .description("Saves in the index")
+                .tag("root", root)
+                .register(registry));
+    }
+
+    @PreDestroy
+    public void close() {
+        this.gauges.forEach(this.registry::remove);
+        this.gauges.clear();
+    }
+
+    /**
+     * Runs a file operation, timing it and counting it as in flight until it returns.
+     */
+    public <T> ResponseEntity<T> record(String operation, String subject, Supplier<ResponseEntity<T>> action) {
+        AtomicInteger active = this.activeOperations.computeIfAbsent(operation, key -> {
+            AtomicInteger operations = new AtomicInteger();
+            this.gauges.add(Gauge.builder("saveorganizer.operations.active", operations, AtomicInteger::get)
+                    .tags("root", this.root, "operation", key)
+                    .register(this.registry));
+            return operations;
+        });
+        active.incrementAndGet();
+        long start = System.nanoTime();
+        String outcome = "EXCEPTION";
+        try {
+            ResponseEntity<T> response = action.get();
+            HttpStatus status = HttpStatus.resolve(response.getStatusCode().value());
+            outcome = status != null ? status.name() : String.valueOf(response.getStatusCode().value());
+            return response;
+        } finally {
+            active.decrementAndGet();
+            long duration = System.nanoTime() - start;
+            Timer.builder("saveorganizer.operations")
+                    .description("Duration of file operations")
+                    .tags("root", this.root, "operation", operation, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(this.registry)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            if (!OK.equals(outcome)) {
+                Counter.builder("saveorganizer.operations.failures")
+                        .description("Failed file operations by cause")
+                        .tags("root", this.root, "operation", operation, "cause", outcome)
+                        .register(this.registry)
+                        .increment();
+            }
+            this.operationLog.info(operation + " " + outcome, "operation={} outcome={} durationMs={} {}", operation, outcome,
+                    TimeUnit.NANOSECONDS.toMillis(duration), subject);
+        }
+    }
+
+    public void bytesCopied(String operation, long bytes) {
+        Counter.builder("saveorganizer.bytes.copied")
+                .description("Bytes of saves copied")
+                .baseUnit("bytes")
+                .tags("root", this.root, "operation", operation)
+                .register(this.registry)
+                .increment(bytes);
+    }
+
+    public void scanned(long nanos, SaveFileSnapshot snapshot) {
+        Timer.builder("saveorganizer.index.scan")
+                .description("Duration of full rescans of the save library")
+                .tag("root", this.root)
+                .publishPercentileHistogram()
+                .register(this.registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        this.operationLog.info("scan", "operation=scan directories={} files={} version={} durationMs={}",
+                snapshot.getSaveFileResult().saveFileResult().size(), countSaveFiles(snapshot), snapshot.getVersion(),
+                TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    public SortedMap<String, Integer> getActiveOperations() {
+        SortedMap<String, Integer> result = new TreeMap<>();
+        this.activeOperations.forEach((operation, active) -> result.put(operation, active.get()));
+        return result;
+    }
+
+    private static long countSaveFiles(SaveFileIndex index) {
+        return countSaveFiles(index.getSnapshot());
+    }
+
+    public static long countSaveFiles(SaveFileSnapshot snapshot) {
+        return snapshot.getSaveFileResult().saveFileResult().stream().map(SaveDirectory::getSaveFiles).mapToLong(List::size).sum();
+    }
+}
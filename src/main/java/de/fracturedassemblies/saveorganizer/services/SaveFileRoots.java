@@ -0,0 +1,249 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveRoot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.CommonAnnotationBeanPostProcessor;
+import org.springframework.context.annotation.ConfigurationClassPostProcessor;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.event.DefaultEventListenerFactory;
+import org.springframework.context.event.EventListenerMethodProcessor;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.SchedulingConfiguration;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Named save file roots next to the default one, e.g. one per Steam account or game version. The default root is served by the
+ * services of the application context. Every other root gets a child context with instances of its own of all services that hold
+ * state about a root: index and watcher, store, locks, metadata cache, events, metrics and the services working on saves. Operations on
+ * different roots therefore never share a lock or an index, only the job queue, the meter registry and the async request threads
+ * are shared. The metrics of a root are tagged with its name.
+ * <p>
+ * Roots are configured as {@code save.roots.<name>=<path>} or registered at runtime. The path of a root is handed to its context as
+ * {@code save.file.path.*}, so the root's {@link FileOrganizerService} opens it exactly like the default one opens the configured
+ * path.
+ */
+@Service
+@ImportRuntimeHints(SaveFileRoots.RootContextHints.class)
+public class SaveFileRoots {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileRoots.class);
+    public static final String DEFAULT_ROOT = "default";
+    private static final Pattern ROOT_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final List<Class<?>> ROOT_SERVICES = List.of(SaveFileIndex.class, SaveFileLocks.class, SaveFileStoreService.class,
+            SaveFileMetadataCache.class, SaveFileEventService.class, SaveFileMetrics.class, FileOrganizerService.class,
+            SaveFileTransferService.class, ArchiveService.class, BatchService.class, IntegrityService.class, SaveSlotService.class,
+            SaveFileDiffService.class, AutoSnapshotService.class);
+
+    private record Root(Path path, AnnotationConfigApplicationContext context) {
+    }
+
+    /**
+     * The contexts of further roots are not processed ahead of time, they read their services' annotations and create them and the
+     * annotation processors of the context reflectively, also in a native image.
+     */
+    static class RootContextHints implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            ROOT_SERVICES.forEach(service -> hints.reflection().registerType(service, MemberCategory.values()));
+            hints.reflection().registerType(SchedulingConfiguration.class, MemberCategory.values());
+            for (Class<?> processor : List.of(ConfigurationClassPostProcessor.class, AutowiredAnnotationBeanPostProcessor.class,
+                    CommonAnnotationBeanPostProcessor.class, EventListenerMethodProcessor.class, DefaultEventListenerFactory.class)) {
+                hints.reflection().registerType(processor, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+        }
+    }
+
+    private final ApplicationContext applicationContext;
+    private final Environment environment;
+    private final Map<String, Root> roots = new ConcurrentHashMap<>();
+
+    public SaveFileRoots(ApplicationContext applicationContext, Environment environment) {
+        this.applicationContext = applicationContext;
+        this.environment = environment;
+    }
+
+    /**
+     * Registers the configured roots once the application is up, a root that cannot be opened is logged and left out.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerConfiguredRoots() {
+        Map<String, String> configured = Binder.get(this.environment)
+                .bind("save.roots", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+        configured.forEach((name, path) -> {
+            ResponseEntity<SaveRoot> registered = this.register(name, path);
+            if (!registered.getStatusCode().is2xxSuccessful()) {
+                LOGGER.error("Configured save root {} at {} could not be registered: {}.", name, path, registered.getStatusCode());
+            }
+        });
+    }
+
+    /**
+     * The service of the given root, {@code null} for the default root.
+     *
+     * @throws ResponseStatusException with 404 if no such root is registered
+     */
+    public <T> T get(String root, Class<T> service) {
+        if (root == null || root.equals(DEFAULT_ROOT)) {
+            return this.applicationContext.getBean(service);
+        }
+        Root registered = this.roots.get(root);
+        if (registered == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown save root " + root);
+        }
+        return registered.context().getBean(service);
+    }
+
+    public boolean isRegistered(String root) {
+        return root == null || root.equals(DEFAULT_ROOT) || this.roots.containsKey(root);
+    }
+
+    public List<SaveRoot> getRoots() {
+        List<SaveRoot> result = new ArrayList<>();
+        result.add(new SaveRoot(DEFAULT_ROOT, this.applicationContext.getBean(FileOrganizerService.class).getSaveFilePath().getBody()));
+        new TreeMap<>(this.roots).forEach((name, root) -> result.add(new SaveRoot(name, root.path().toString())));
+        return result;
+    }
+
+    public synchronized ResponseEntity<SaveRoot> register(String name, String path) {
+        if (name == null || !ROOT_NAME.matcher(name).matches() || name.equals(DEFAULT_ROOT) || path == null || path.isBlank()) {
+            LOGGER.error("Invalid save root {} at {}.", name, path);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Path rootPath;
+        try {
+            rootPath = Path.of(path).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid save root path {}. {}", path, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (!Files.isDirectory(rootPath)) {
+            LOGGER.error("Save root path {} is no directory.", rootPath);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (this.roots.containsKey(name) || this.isInUse(rootPath, name)) {
+            LOGGER.warn("Save root {} or path {} is already registered.", name, rootPath);
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setParent(this.applicationContext);
+        context.setDisplayName("save root " + name);
+        Map<String, Object> properties = new HashMap<>();
+        for (String system : List.of("windows", "linux", "mac")) {
+            properties.put("save.file.path." + system, rootPath.toString());
+        }
+        properties.put("save.root.name", name);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("save-root-" + name, properties));
+        context.register(ROOT_SERVICES.toArray(Class<?>[]::new));
+        try {
+            context.refresh();
+            // Opened right away instead of waiting for the scheduler, so the root can be used as soon as it is registered
+            context.getBean(FileOrganizerService.class).initialSaveFilePathLoad();
+        } catch (RuntimeException e) {
+            LOGGER.error("Opening save root {} at {} failed. {}", name, rootPath, e.getMessage());
+            context.close();
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        this.roots.put(name, new Root(rootPath, context));
+        LOGGER.info("Registered save root {} at {}.", name, rootPath);
+        return new ResponseEntity<>(new SaveRoot(name, rootPath.toString()), HttpStatus.CREATED);
+    }
+
+    /**
+     * Points a root at another path. The path must not overlap any other root, as for a new root, and a named root's record is
+     * updated so later overlap checks and the root listing use the new path.
+     */
+    public synchronized ResponseEntity<Void> setSaveFilePath(String root, String path) {
+        boolean isDefault = root == null || root.equals(DEFAULT_ROOT);
+        Root registered = isDefault ? null : this.roots.get(root);
+        if (!isDefault && registered == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (path == null || path.isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Path rootPath;
+        try {
+            rootPath = Path.of(path).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid save root path {}. {}", path, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (this.isInUse(rootPath, isDefault ? DEFAULT_ROOT : root)) {
+            LOGGER.warn("Save root path {} overlaps another root.", rootPath);
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (isDefault) {
+            return this.applicationContext.getBean(FileOrganizerService.class).setSaveFilePath(path);
+        }
+        ResponseEntity<Void> response = registered.context().getBean(FileOrganizerService.class).setSaveFilePath(rootPath.toString());
+        if (response.getStatusCode().is2xxSuccessful()) {
+            this.roots.put(root, new Root(rootPath, registered.context()));
+            LOGGER.info("Moved save root {} to {}.", root, rootPath);
+        }
+        return response;
+    }
+
+    /**
+     * Closes the root's watcher, executors and catalog. Operations that are still running on it finish, the saves stay on disk.
+     */
+    public synchronized ResponseEntity<Void> unregister(String name) {
+        if (DEFAULT_ROOT.equals(name)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Root root = this.roots.remove(name);
+        if (root == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        root.context().close();
+        LOGGER.info("Unregistered save root {} at {}.", name, root.path());
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        this.roots.values().forEach(root -> root.context().close());
+        this.roots.clear();
+    }
+
+    /**
+     * Whether the path overlaps any root other than the given one.
+     */
+    private boolean isInUse(Path rootPath, String except) {
+        String defaultPath = this.applicationContext.getBean(FileOrganizerService.class).getSaveFilePath().getBody();
+        if (!DEFAULT_ROOT.equals(except) && defaultPath != null && overlaps(Path.of(defaultPath).toAbsolutePath().normalize(), rootPath)) {
+            return true;
+        }
+        return this.roots.entrySet().stream().anyMatch(root -> !root.getKey().equals(except) && overlaps(root.getValue().path(), rootPath));
+    }
+
+    /**
+     * A root inside another one would show up as a profile directory of it, with two indices and stores writing the same files.
+     */
+    private static boolean overlaps(Path first, Path second) {
+        return first.startsWith(second) || second.startsWith(first);
+    }
+}
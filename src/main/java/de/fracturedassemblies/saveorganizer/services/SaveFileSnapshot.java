@@ -0,0 +1,37 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.fracturedassemblies.saveorganizer.data.SaveFileResult;
+
+/**
+ * Immutable state of the save library at a given version. The serialized JSON is rendered at most a few times per version and
+ * then shared by every reader.
+ */
+public class SaveFileSnapshot {
+    private final long version;
+    private final SaveFileResult saveFileResult;
+    private volatile byte[] json;
+
+    public SaveFileSnapshot(long version, SaveFileResult saveFileResult) {
+        this.version = version;
+        this.saveFileResult = saveFileResult;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public SaveFileResult getSaveFileResult() {
+        return saveFileResult;
+    }
+
+    public byte[] toJson(ObjectMapper objectMapper) throws JsonProcessingException {
+        byte[] rendered = this.json;
+        if (rendered == null) {
+            rendered = objectMapper.writeValueAsBytes(this.saveFileResult);
+            this.json = rendered;
+        }
+        return rendered;
+    }
+}
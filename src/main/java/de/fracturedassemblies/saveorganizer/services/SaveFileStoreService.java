@@ -0,0 +1,469 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.StoreLatency;
+import de.fracturedassemblies.saveorganizer.data.StoreMigrationResult;
+import de.fracturedassemblies.saveorganizer.data.StoreReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Stores snapshots of the live save either as plain copies or, with {@code save.store.mode=dedup}, as a manifest of
+ * deduplicated chunks in the {@link ChunkStore}. Both kinds of snapshots can exist side by side, loading picks whichever exists.
+ */
+@Service
+public class SaveFileStoreService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileStoreService.class);
+
+    public static final String SAVE_FILE_SUFFIX = ".sl2";
+    public static final String MANIFEST_SUFFIX = ".sl2m";
+    public static final String STORE_DIRECTORY = ".saveorganizer";
+    private static final Duration GARBAGE_GRACE_PERIOD = Duration.ofHours(1);
+    private static final int SNAPSHOT_READ_SIZE = 256 * 1024;
+
+    public enum Mode {
+        COPY,
+        DEDUP
+    }
+
+    @FunctionalInterface
+    public interface ContentReader<T> {
+        T read(long size, SaveFileLayout.Source source) throws IOException;
+    }
+
+    /**
+     * Content of a stored save that stays readable while the save itself is replaced, patched or deleted, for transfers that take
+     * longer than anyone should hold a lock.
+     */
+    public interface Snapshot extends Closeable {
+        long size();
+
+        long lastModified();
+
+        /**
+         * SHA-256 of the content if the store knows it without reading the save, otherwise {@code null}.
+         */
+        String contentHash();
+
+        void transferTo(long offset, long length, WritableByteChannel target) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final Mode mode;
+    private final SaveFileLocks saveFileLocks;
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+
+    private volatile Path root;
+    private volatile ChunkStore chunkStore;
+
+    public SaveFileStoreService(@Value("${save.store.mode:copy}") String mode, SaveFileLocks saveFileLocks) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.saveFileLocks = saveFileLocks;
+    }
+
+    public void open(Path root) {
+        this.root = root;
+        this.chunkStore = new ChunkStore(root.resolve(STORE_DIRECTORY).resolve("chunks"));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void save(Path source, Path directory, String fileName) throws IOException {
+        this.save(this.mode, source, directory.resolve(fileName + SAVE_FILE_SUFFIX), directory.resolve(fileName + MANIFEST_SUFFIX));
+    }
+
+    public void load(Path directory, String fileName, Path target) throws IOException {
+        Path saveFile = this.resolve(directory, fileName);
+        if (isManifest(saveFile)) {
+            this.restore(saveFile, target, true);
+        } else {
+            long start = System.nanoTime();
+            AtomicFileReplacer.copy(saveFile, target, true);
+            this.record(Mode.COPY, "load", start);
+        }
+    }
+
+    public Path resolve(Path directory, String fileName) {
+        Path saveFile = directory.resolve(fileName + SAVE_FILE_SUFFIX);
+        Path manifest = directory.resolve(fileName + MANIFEST_SUFFIX);
+        return !Files.exists(saveFile) && Files.exists(manifest) ? manifest : saveFile;
+    }
+
+    /**
+     * Gives random access to a stored save, no matter how it is stored. Plain copies are memory-mapped region by region, manifests
+     * are read from the chunks that overlap the requested region.
+     */
+    public <T> T read(Path saveFile, ContentReader<T> reader) throws IOException {
+        if (isManifest(saveFile)) {
+            ChunkStore chunkStore = this.chunkStore;
+            ChunkStore.Manifest manifest = ChunkStore.readManifest(saveFile);
+            return reader.read(manifest.size(), (offset, length) -> chunkStore.read(manifest, offset, length));
+        }
+        try (FileChannel channel = FileChannel.open(saveFile, StandardOpenOption.READ)) {
+            return reader.read(channel.size(), (offset, length) -> channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+        }
+    }
+
+    /**
+     * Changes a stored save in place. A plain copy is opened for positional writes, after breaking any hard link so no other save
+     * sharing the file changes with it. A manifest is restored to a temporary file, patched and stored again, which only writes the
+     * chunks that actually changed.
+     */
+    public void patch(Path saveFile, AtomicFileReplacer.ContentWriter patch) throws IOException {
+        if (isManifest(saveFile)) {
+            Path temp = this.temporaryFile();
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    this.chunkStore.restore(saveFile, channel);
+                    patch.write(channel);
+                }
+                this.chunkStore.write(temp, saveFile);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return;
+        }
+        if (linkCount(saveFile) > 1) {
+            AtomicFileReplacer.copy(saveFile, saveFile, false);
+        }
+        try (FileChannel channel = FileChannel.open(saveFile, StandardOpenOption.WRITE)) {
+            patch.write(channel);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Takes a snapshot of a stored save. A plain copy is hard linked into the temporary directory, an in-place patch breaks that link
+     * before writing and a replacement only swaps the directory entry, so the link keeps the content as it was. If the file system
+     * has no hard links the save is copied instead. A manifest is read once, the chunks it references are never changed.
+     */
+    public Snapshot snapshot(Path saveFile) throws IOException {
+        long lastModified = Files.getLastModifiedTime(saveFile).toMillis();
+        if (isManifest(saveFile)) {
+            ChunkStore chunkStore = this.chunkStore;
+            ChunkStore.Manifest manifest = ChunkStore.readManifest(saveFile);
+            return new Snapshot() {
+                @Override
+                public long size() {
+                    return manifest.size();
+                }
+
+                @Override
+                public long lastModified() {
+                    return lastModified;
+                }
+
+                @Override
+                public String contentHash() {
+                    return manifest.contentHash();
+                }
+
+                @Override
+                public void transferTo(long offset, long length, WritableByteChannel target) throws IOException {
+                    for (long position = offset; position < offset + length; position += SNAPSHOT_READ_SIZE) {
+                        ByteBuffer buffer = chunkStore.read(manifest, position, (int) Math.min(SNAPSHOT_READ_SIZE, offset + length - position));
+                        while (buffer.hasRemaining()) {
+                            target.write(buffer);
+                        }
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+        Path link = this.temporaryFile();
+        FileChannel channel;
+        try {
+            try {
+                Files.delete(link);
+                Files.createLink(link, saveFile);
+            } catch (UnsupportedOperationException | IOException e) {
+                LOGGER.debug("Could not link {}, copying it. {}", saveFile, e.getMessage());
+                Files.copy(saveFile, link, StandardCopyOption.REPLACE_EXISTING);
+            }
+            channel = FileChannel.open(link, StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(link);
+            throw e;
+        }
+        long size = channel.size();
+        return new Snapshot() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public long lastModified() {
+                return lastModified;
+            }
+
+            @Override
+            public String contentHash() {
+                return null;
+            }
+
+            @Override
+            public void transferTo(long offset, long length, WritableByteChannel target) throws IOException {
+                for (long position = offset; position < offset + length; ) {
+                    long transferred = channel.transferTo(position, offset + length - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("Save file snapshot " + link + " ended early.");
+                    }
+                    position += transferred;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    channel.close();
+                } finally {
+                    Files.deleteIfExists(link);
+                }
+            }
+        };
+    }
+
+    /**
+     * Replaces the plain copies of a directory, or of all directories, with manifests. Each directory is migrated under its write
+     * lock, so a save that replaces a copy in the meantime is neither lost nor converted half-way.
+     */
+    public StoreMigrationResult migrate(String directory) throws IOException {
+        int migrated = 0;
+        int failed = 0;
+        long logicalBytes = 0;
+        long writtenBefore = this.chunkStore.getWrittenBytes();
+        List<String> directories = directory == null
+                ? this.saveDirectories().stream().map(saveDirectory -> saveDirectory.getFileName().toString()).toList()
+                : List.of(checkDirectory(directory));
+        for (String name : directories) {
+            try (SaveFileLocks.Held held = this.saveFileLocks.write(name)) {
+                Path saveDirectory = this.root.resolve(name);
+                if (directory == null && !Files.isDirectory(saveDirectory)) {
+                    continue;
+                }
+                for (Path saveFile : this.saveFiles(saveDirectory)) {
+                    if (isManifest(saveFile)) {
+                        continue;
+                    }
+                    String fileName = toSaveName(saveFile.getFileName().toString());
+                    Path manifest = saveDirectory.resolve(fileName + MANIFEST_SUFFIX);
+                    try {
+                        ChunkStore.Manifest written = this.chunkStore.write(saveFile, manifest);
+                        if (!written.contentHash().equals(this.chunkStore.digest(manifest))) {
+                            throw new IOException("Verification of " + manifest + " failed.");
+                        }
+                        Files.delete(saveFile);
+                        logicalBytes += written.size();
+                        migrated++;
+                    } catch (IOException e) {
+                        LOGGER.error("Migrating save file {} failed. {}", saveFile, e.getMessage());
+                        Files.deleteIfExists(manifest);
+                        failed++;
+                    }
+                }
+            }
+        }
+        LOGGER.info("Migrated {} save files into the chunk store, {} failed.", migrated, failed);
+        return new StoreMigrationResult(migrated, failed, logicalBytes, this.chunkStore.getWrittenBytes() - writtenBefore);
+    }
+
+    /**
+     * Deletes the chunks no manifest refers to. The read locks of all directories are held while the manifests are scanned and the
+     * chunks deleted, so no manifest can be moved past the scan. A manifest written meanwhile in a new directory only references
+     * chunks whose timestamps it refreshed, they are within the grace period.
+     */
+    public int collectGarbage() throws IOException {
+        List<Path> saveDirectories = this.saveDirectories();
+        Set<String> referenced = new HashSet<>();
+        int deleted;
+        try (SaveFileLocks.Held held = this.saveFileLocks.acquire(
+                saveDirectories.stream().map(saveDirectory -> saveDirectory.getFileName().toString()).toList(), List.of(), SaveFileLocks.Access.NONE)) {
+            for (Path saveDirectory : saveDirectories) {
+                if (!Files.isDirectory(saveDirectory)) {
+                    continue;
+                }
+                for (Path saveFile : this.saveFiles(saveDirectory)) {
+                    if (isManifest(saveFile)) {
+                        ChunkStore.readManifest(saveFile).chunks().forEach(chunk -> referenced.add(chunk.hash()));
+                    }
+                }
+            }
+            deleted = this.chunkStore.collectGarbage(referenced, GARBAGE_GRACE_PERIOD);
+        }
+        LOGGER.info("Deleted {} unreferenced chunks.", deleted);
+        return deleted;
+    }
+
+    public StoreReport getReport(boolean benchmark) throws IOException {
+        if (benchmark) {
+            this.benchmark();
+        }
+        long saveFiles = 0;
+        long manifests = 0;
+        long logicalBytes = 0;
+        long storedBytes = this.chunkStore.storedBytes();
+        for (Path saveDirectory : this.saveDirectories()) {
+            for (Path saveFile : this.saveFiles(saveDirectory)) {
+                long size = Files.size(saveFile);
+                storedBytes += size;
+                if (isManifest(saveFile)) {
+                    manifests++;
+                    logicalBytes += ChunkStore.readManifest(saveFile).size();
+                } else {
+                    saveFiles++;
+                    logicalBytes += size;
+                }
+            }
+        }
+        List<StoreLatency> measured = new ArrayList<>();
+        new TreeMap<>(this.latencies).forEach((key, latency) -> measured.add(latency.toStoreLatency()));
+        return new StoreReport(this.mode.name().toLowerCase(), saveFiles, manifests, logicalBytes, storedBytes, logicalBytes - storedBytes, measured);
+    }
+
+    private void benchmark() throws IOException {
+        Path liveSave = this.root.resolve("ER0000" + SAVE_FILE_SUFFIX);
+        Path benchmarkDirectory = Files.createDirectories(this.root.resolve(STORE_DIRECTORY).resolve("benchmark"));
+        Path copy = benchmarkDirectory.resolve("benchmark" + SAVE_FILE_SUFFIX);
+        Path manifest = benchmarkDirectory.resolve("benchmark" + MANIFEST_SUFFIX);
+        Path restored = benchmarkDirectory.resolve("restored" + SAVE_FILE_SUFFIX);
+        try {
+            this.save(Mode.COPY, liveSave, copy, manifest);
+            long start = System.nanoTime();
+            AtomicFileReplacer.copy(copy, restored, false);
+            this.record(Mode.COPY, "load", start);
+            this.save(Mode.DEDUP, liveSave, copy, manifest);
+            this.restore(manifest, restored, false);
+        } finally {
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(manifest);
+            Files.deleteIfExists(restored);
+        }
+    }
+
+    private void save(Mode mode, Path source, Path saveFile, Path manifest) throws IOException {
+        long start = System.nanoTime();
+        if (mode == Mode.DEDUP) {
+            this.chunkStore.write(source, manifest);
+            Files.deleteIfExists(saveFile);
+        } else {
+            Files.copy(source, saveFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(manifest);
+        }
+        this.record(mode, "save", start);
+    }
+
+    private void restore(Path manifest, Path target, boolean keepBackup) throws IOException {
+        long start = System.nanoTime();
+        ChunkStore chunkStore = this.chunkStore;
+        ChunkStore.readManifest(manifest);
+        AtomicFileReplacer.replace(target, channel -> chunkStore.restore(manifest, channel), keepBackup);
+        this.record(Mode.DEDUP, "load", start);
+    }
+
+    private List<Path> saveDirectories() throws IOException {
+        try (Stream<Path> directories = Files.list(this.root)) {
+            return directories.filter(Files::isDirectory)
+                    .filter(directory -> SaveFileIndex.isIndexedDirectory(directory.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    private List<Path> saveFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> isSaveFile(file.getFileName().toString())).filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private void record(Mode mode, String operation, long start) {
+        this.latencies.computeIfAbsent(mode.name().toLowerCase() + " " + operation, key -> new Latency(mode, operation))
+                .add(System.nanoTime() - start);
+    }
+
+    Path temporaryFile() throws IOException {
+        Path directory = Files.createDirectories(this.root.resolve(STORE_DIRECTORY).resolve("tmp"));
+        return Files.createTempFile(directory, "patch", ".tmp");
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Checks a save directory name and returns it in its canonical spelling. Only a single path segment is accepted, so an empty
+     * name or ".." can never point a recursive operation at the root itself or outside of it, and a name like "a/b" never shows
+     * up in the index as a directory of its own. "Profile/" is returned as "Profile".
+     */
+    public static String checkDirectory(String directory) {
+        if (directory == null || directory.isBlank()) {
+            throw new InvalidPathException(String.valueOf(directory), "Directory cannot be empty");
+        }
+        Path name = Path.of(directory);
+        String checked = name.toString();
+        if (name.getNameCount() != 1 || name.getRoot() != null || checked.equals(".") || checked.equals("..")) {
+            throw new InvalidPathException(directory, "Directory must be a single directory name");
+        }
+        return checked;
+    }
+
+    public static boolean isSaveFile(String name) {
+        String lowerCase = name.toLowerCase();
+        return lowerCase.endsWith(SAVE_FILE_SUFFIX) || lowerCase.endsWith(MANIFEST_SUFFIX);
+    }
+
+    public static boolean isManifest(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(MANIFEST_SUFFIX);
+    }
+
+    public static String toSaveName(String name) {
+        int suffix = name.toLowerCase().endsWith(MANIFEST_SUFFIX) ? MANIFEST_SUFFIX.length() : SAVE_FILE_SUFFIX.length();
+        return name.substring(0, name.length() - suffix);
+    }
+
+    private static final class Latency {
+        private final Mode mode;
+        private final String operation;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        private Latency(Mode mode, String operation) {
+            this.mode = mode;
+            this.operation = operation;
+        }
+
+        private void add(long duration) {
+            this.count.incrementAndGet();
+            this.nanos.addAndGet(duration);
+        }
+
+        private StoreLatency toStoreLatency() {
+            long operations = this.count.get();
+            double average = operations == 0 ? 0 : this.nanos.get() / (double) operations / 1_000_000;
+            return new StoreLatency(this.mode.name().toLowerCase(), this.operation, operations, average);
+        }
+    }
+}
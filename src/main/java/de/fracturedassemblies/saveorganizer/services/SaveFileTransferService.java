@@ -0,0 +1,405 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Streams single saves to and from remote clients. Downloads are served from a {@link SaveFileStoreService.Snapshot}, so the
+ * directory is only locked while the snapshot is taken and a slow client never holds up other operations. Content flows from file
+ * channel to socket and back in small buffers, a transfer never holds a whole save on the heap.
+ * <p>
+ * The strong ETag is the SHA-256 of the content. Manifests carry it, for plain copies it is computed once and cached by path, size
+ * and modification time. Downloads support single byte ranges, {@code If-Range}, {@code If-None-Match} and
+ * {@code If-Modified-Since}. Uploads can be sent in parts with {@code Content-Range}, each part continuing where the previous one
+ * ended, so an interrupted upload resumes instead of starting over. A complete upload has to be a BND4 container and is stored
+ * like any other save.
+ */
+@Service
+public class SaveFileTransferService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveFileTransferService.class);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final String UPLOAD_DIRECTORY = "uploads";
+    private static final String UPLOAD_SUFFIX = ".part";
+    private static final Duration UPLOAD_EXPIRY = Duration.ofDays(1);
+    private static final int HASH_CACHE_SIZE = 10_000;
+
+    private record Key(Path path, long size, long lastModified) {
+    }
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileLocks saveFileLocks;
+    private final SaveFileMetrics saveFileMetrics;
+    private final long maxUploadBytes;
+    private final Set<String> activeUploads = ConcurrentHashMap.newKeySet();
+    private final Map<Key, String> hashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            return this.size() > HASH_CACHE_SIZE;
+        }
+    });
+
+    public SaveFileTransferService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService,
+                                   SaveFileLocks saveFileLocks, SaveFileMetrics saveFileMetrics,
+                                   @Value("${save.transfer.max.upload.bytes:67108864}") long maxUploadBytes) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileLocks = saveFileLocks;
+        this.saveFileMetrics = saveFileMetrics;
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    public ResponseEntity<StreamingResponseBody> download(String directory, String fileName, HttpHeaders request) {
+        Path saveFile;
+        SaveFileStoreService.Snapshot snapshot;
+        try (SaveFileLocks.Held held = this.saveFileLocks.read(directory)) {
+            saveFile = this.fileOrganizerService.resolveSaveFile(directory, fileName);
+            snapshot = this.saveFileStoreService.snapshot(saveFile);
+        } catch (IOException e) {
+            LOGGER.error("Save file {} in directory {} cannot be downloaded. {}", fileName, directory, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid file or path. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        boolean streaming = false;
+        try {
+            String etag = etag(this.contentHash(saveFile, snapshot));
+            long size = snapshot.size();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(etag);
+            headers.setLastModified(snapshot.lastModified());
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (notModified(request, etag, snapshot.lastModified())) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+
+            long offset = 0;
+            long length = size;
+            HttpStatus status = HttpStatus.OK;
+            List<HttpRange> ranges = rangesToServe(request, etag);
+            if (ranges.size() == 1) {
+                try {
+                    offset = ranges.get(0).getRangeStart(size);
+                    length = ranges.get(0).getRangeEnd(size) - offset + 1;
+                } catch (IllegalArgumentException e) {
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                }
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+                status = HttpStatus.PARTIAL_CONTENT;
+            }
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(length);
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(fileName + SaveFileStoreService.SAVE_FILE_SUFFIX, StandardCharsets.UTF_8).build());
+
+            long start = offset;
+            long count = length;
+            StreamingResponseBody body = out -> {
+                try (snapshot) {
+                    snapshot.transferTo(start, count, Channels.newChannel(out));
+                    this.saveFileMetrics.bytesCopied("download", count);
+                }
+            };
+            streaming = true;
+            LOGGER.info("Streaming {} bytes from offset {} of save file {} in directory {}.", count, start, fileName, directory);
+            return new ResponseEntity<>(body, headers, status);
+        } catch (IOException e) {
+            LOGGER.error("Reading save file {} in directory {} failed. {}", fileName, directory, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            if (!streaming) {
+                closeQuietly(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Receives a save, or with {@code Content-Range} the next part of it. A part has to start where the received content ends,
+     * otherwise the response carries the received range in a {@code Range} header to resume from. {@code If-Match} is checked
+     * against the stored save once the upload is complete.
+     */
+    public ResponseEntity<Void> upload(String directory, String fileName, HttpHeaders request, InputStream body) {
+        try {
+            this.fileOrganizerService.resolveSaveFile(directory, fileName);
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid file or path. {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String key = uploadKey(directory, fileName);
+        if (!this.activeUploads.add(key)) {
+            LOGGER.warn("Save file {} in directory {} is already being uploaded.", fileName, directory);
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        try {
+            String contentRange = request.getFirst(HttpHeaders.CONTENT_RANGE);
+            if (contentRange == null) {
+                Path temp = this.saveFileStoreService.temporaryFile();
+                try {
+                    long received = receive(body, temp, 0, this.maxUploadBytes + 1);
+                    if (received > this.maxUploadBytes) {
+                        return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+                    }
+                    return this.store(directory, fileName, temp, request);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            return this.uploadPart(directory, fileName, key, contentRange, request, body);
+        } catch (IOException e) {
+            LOGGER.error("Uploading save file {} in directory {} failed. {}", fileName, directory, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            this.activeUploads.remove(key);
+        }
+    }
+
+    private ResponseEntity<Void> uploadPart(String directory, String fileName, String key, String contentRange, HttpHeaders request,
+                                            InputStream body) throws IOException {
+        Matcher range = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!range.matches()) {
+            LOGGER.error("Invalid Content-Range {}.", contentRange);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        long first = Long.parseLong(range.group(1));
+        long last = Long.parseLong(range.group(2));
+        long total = Long.parseLong(range.group(3));
+        if (last < first || last >= total) {
+            LOGGER.error("Invalid Content-Range {}.", contentRange);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (total > this.maxUploadBytes) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        Path part = this.uploadDirectory().resolve(key + UPLOAD_SUFFIX);
+        long received = first == 0 ? 0 : Files.exists(part) ? Files.size(part) : 0;
+        if (first != received) {
+            LOGGER.warn("Part {} of save file {} does not continue the {} bytes received so far.", contentRange, fileName, received);
+            return new ResponseEntity<>(receivedRange(received), HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+        long expected = last - first + 1;
+        long written = receive(body, part, first, expected + 1);
+        if (written != expected) {
+            LOGGER.error("Part {} of save file {} had {} bytes.", contentRange, fileName, written);
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                channel.truncate(first);
+            }
+            return new ResponseEntity<>(receivedRange(first), HttpStatus.BAD_REQUEST);
+        }
+        if (last + 1 < total) {
+            return new ResponseEntity<>(receivedRange(last + 1), HttpStatus.ACCEPTED);
+        }
+        try {
+            return this.store(directory, fileName, part, request);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private ResponseEntity<Void> store(String directory, String fileName, Path upload, HttpHeaders request) throws IOException {
+        if (!SaveFileLayout.read(upload).isBnd4()) {
+            LOGGER.error("Uploaded save file {} is not a BND4 container.", fileName);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<String> ifMatch = request.getIfMatch();
+        if (!ifMatch.isEmpty() && !ifMatch.contains("*") && !ifMatch.contains(this.currentEtag(directory, fileName))) {
+            LOGGER.warn("Save file {} in directory {} changed since the client read it.", fileName, directory);
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        String etag = etag(hash(upload));
+        ResponseEntity<Void> stored = this.fileOrganizerService.saveFile(upload, directory, fileName);
+        if (!stored.getStatusCode().is2xxSuccessful()) {
+            return stored;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        return new ResponseEntity<>(headers, HttpStatus.OK);
+    }
+
+    private String currentEtag(String directory, String fileName) {
+        try (SaveFileLocks.Held held = this.saveFileLocks.read(directory)) {
+            Path saveFile = this.fileOrganizerService.resolveSaveFile(directory, fileName);
+            try (SaveFileStoreService.Snapshot snapshot = this.saveFileStoreService.snapshot(saveFile)) {
+                return etag(this.contentHash(saveFile, snapshot));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String contentHash(Path saveFile, SaveFileStoreService.Snapshot snapshot) throws IOException {
+        if (snapshot.contentHash() != null) {
+            return snapshot.contentHash();
+        }
+        Key key = new Key(saveFile, snapshot.size(), snapshot.lastModified());
+        String hash = this.hashes.get(key);
+        if (hash == null) {
+            MessageDigest sha256 = ChunkStore.sha256();
+            snapshot.transferTo(0, snapshot.size(), new DigestChannel(sha256));
+            hash = HexFormat.of().formatHex(sha256.digest());
+            this.hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest sha256 = ChunkStore.sha256();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, new DigestChannel(sha256));
+            }
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    /**
+     * Writes at most {@code limit} bytes of the body into the file at the given position and returns how many were written.
+     */
+    private static long receive(InputStream body, Path file, long position, long limit) throws IOException {
+        ReadableByteChannel in = Channels.newChannel(body);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+            long written = 0;
+            while (written < limit) {
+                long transferred = channel.transferFrom(in, position + written, limit - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            channel.force(false);
+            return written;
+        }
+    }
+
+    private Path uploadDirectory() throws IOException {
+        Path directory = Files.createDirectories(this.fileOrganizerService.getSaveFileRoot()
+                .resolve(SaveFileStoreService.STORE_DIRECTORY).resolve(UPLOAD_DIRECTORY));
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - UPLOAD_EXPIRY.toMillis());
+        try (Stream<Path> parts = Files.list(directory)) {
+            for (Path part : parts.toList()) {
+                try {
+                    if (Files.getLastModifiedTime(part).compareTo(expired) < 0) {
+                        Files.deleteIfExists(part);
+                        LOGGER.info("Deleted abandoned upload {}.", part.getFileName());
+                    }
+                } catch (IOException e) {
+                    LOGGER.debug("Could not check upload {}. {}", part, e.getMessage());
+                }
+            }
+        }
+        return directory;
+    }
+
+    private static boolean notModified(HttpHeaders request, String etag, long lastModified) {
+        List<String> ifNoneMatch = request.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.contains("*") || ifNoneMatch.contains(etag) || ifNoneMatch.contains("W/" + etag);
+        }
+        try {
+            long ifModifiedSince = request.getIfModifiedSince();
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The requested ranges, or none if the whole save is to be sent: without {@code Range}, with several ranges, which are served
+     * as a whole save instead of a multipart response, or if {@code If-Range} names another version.
+     */
+    private static List<HttpRange> rangesToServe(HttpHeaders request, String etag) {
+        String ifRange = request.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
+        try {
+            List<HttpRange> ranges = request.getRange();
+            return ranges.size() == 1 ? ranges : List.of();
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Ignoring invalid Range header. {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static HttpHeaders receivedRange(long received) {
+        HttpHeaders headers = new HttpHeaders();
+        if (received > 0) {
+            headers.set(HttpHeaders.RANGE, "bytes=0-" + (received - 1));
+        }
+        return headers;
+    }
+
+    private static String uploadKey(String directory, String fileName) {
+        MessageDigest sha256 = ChunkStore.sha256();
+        sha256.update((directory + "/" + fileName).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(sha256.digest(), 0, 16);
+    }
+
+    private static String etag(String hash) {
+        return "\"" + hash + "\"";
+    }
+
+    private static void closeQuietly(SaveFileStoreService.Snapshot snapshot) {
+        try {
+            snapshot.close();
+        } catch (IOException e) {
+            LOGGER.debug("Closing save file snapshot failed. {}", e.getMessage());
+        }
+    }
+
+    private static final class DigestChannel implements WritableByteChannel {
+        private final MessageDigest digest;
+
+        private DigestChannel(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            this.digest.update(source);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
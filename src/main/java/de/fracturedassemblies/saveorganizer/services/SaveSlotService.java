@@ -0,0 +1,159 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.ACTIVE_SLOTS_OFFSET;
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.CHECKSUM_SIZE;
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.SLOT_SUMMARY_OFFSET;
+import static de.fracturedassemblies.saveorganizer.services.SaveFileLayout.SLOT_SUMMARY_SIZE;
+
+/**
+ * Works on single character slots instead of whole saves. A transplant copies the slot entry, its active flag and its profile
+ * summary into the target and writes only those regions together with the recomputed MD5 checksums of the two entries involved.
+ */
+@Service
+public class SaveSlotService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveSlotService.class);
+
+    private record Slot(ByteBuffer entry, byte active, ByteBuffer summary) {
+    }
+
+    private record Write(long offset, ByteBuffer data) {
+    }
+
+    private final FileOrganizerService fileOrganizerService;
+    private final SaveFileStoreService saveFileStoreService;
+    private final SaveFileLocks saveFileLocks;
+
+    public SaveSlotService(FileOrganizerService fileOrganizerService, SaveFileStoreService saveFileStoreService, SaveFileLocks saveFileLocks) {
+        this.fileOrganizerService = fileOrganizerService;
+        this.saveFileStoreService = saveFileStoreService;
+        this.saveFileLocks = saveFileLocks;
+    }
+
+    /**
+     * Returns the raw slot entry, checksum included.
+     */
+    public ByteBuffer extractSlot(String directory, String fileName, int slot) throws IOException {
+        try (SaveFileLocks.Held held = this.saveFileLocks.read(directory)) {
+            return this.readSlot(this.fileOrganizerService.resolveSaveFile(directory, fileName), slot).entry();
+        }
+    }
+
+    /**
+     * Copies a slot of a stored save into a slot of another stored save or, without target directory, of the live save.
+     */
+    public void transplantSlot(String sourceDirectory, String sourceFile, int sourceSlot, String targetDirectory, String targetFile, int targetSlot)
+            throws IOException {
+        Path source = this.fileOrganizerService.resolveSaveFile(sourceDirectory, sourceFile);
+        if (targetDirectory == null || targetDirectory.isBlank()) {
+            try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(sourceDirectory), List.of(), SaveFileLocks.Access.WRITE)) {
+                this.transplantSlot(source, sourceSlot, this.fileOrganizerService.getLiveSaveFile(), targetSlot, true);
+            }
+        } else {
+            try (SaveFileLocks.Held held = this.saveFileLocks.acquire(List.of(sourceDirectory), List.of(targetDirectory), SaveFileLocks.Access.NONE)) {
+                this.transplantSlot(source, sourceSlot, this.fileOrganizerService.resolveSaveFile(targetDirectory, targetFile), targetSlot, false);
+            }
+        }
+    }
+
+    void transplantSlot(Path source, int sourceSlot, Path target, int targetSlot, boolean live) throws IOException {
+        Slot slot = this.readSlot(source, sourceSlot);
+        List<Write> writes = this.saveFileStoreService.read(target, (size, content) -> prepareWrites(size, content, slot, targetSlot));
+        if (live) {
+            // The live save keeps the guarantees of loadFile: the patched copy replaces it atomically and the old one is kept as backup.
+            try (FileChannel current = FileChannel.open(target, StandardOpenOption.READ)) {
+                AtomicFileReplacer.replace(target, channel -> {
+                    AtomicFileReplacer.transfer(current, channel);
+                    apply(channel, writes);
+                }, true);
+            }
+        } else {
+            this.saveFileStoreService.patch(target, channel -> apply(channel, writes));
+        }
+        LOGGER.info("Transplanted slot {} of {} into slot {} of {}.", sourceSlot, source, targetSlot, target);
+    }
+
+    private Slot readSlot(Path saveFile, int slot) throws IOException {
+        return this.saveFileStoreService.read(saveFile, (size, content) -> {
+            SaveFileLayout layout = SaveFileLayout.read(size, content);
+            SaveFileLayout.Entry entry = layout.slot(slot);
+            SaveFileLayout.Entry userData = userData(layout);
+            ByteBuffer data = copy(content.read(entry.offset(), (int) entry.size()));
+            byte active = content.read(userData.dataOffset() + ACTIVE_SLOTS_OFFSET + slot, 1).get(0);
+            ByteBuffer summary = copy(content.read(userData.dataOffset() + SLOT_SUMMARY_OFFSET + (long) slot * SLOT_SUMMARY_SIZE, SLOT_SUMMARY_SIZE));
+            return new Slot(data, active, summary);
+        });
+    }
+
+    private static List<Write> prepareWrites(long size, SaveFileLayout.Source content, Slot slot, int targetSlot) throws IOException {
+        SaveFileLayout layout = SaveFileLayout.read(size, content);
+        SaveFileLayout.Entry entry = layout.slot(targetSlot);
+        if (entry.size() != slot.entry().capacity()) {
+            throw new IllegalArgumentException("Slot " + targetSlot + " has " + entry.size() + " bytes, the source slot " + slot.entry().capacity() + ".");
+        }
+        SaveFileLayout.Entry userData = userData(layout);
+
+        ByteBuffer slotEntry = copy(slot.entry());
+        slotEntry.put(0, md5(slotEntry, CHECKSUM_SIZE, slotEntry.capacity() - CHECKSUM_SIZE));
+
+        ByteBuffer profile = copy(content.read(userData.offset(), (int) userData.size()));
+        int activeOffset = CHECKSUM_SIZE + ACTIVE_SLOTS_OFFSET + targetSlot;
+        int summaryOffset = CHECKSUM_SIZE + SLOT_SUMMARY_OFFSET + targetSlot * SLOT_SUMMARY_SIZE;
+        profile.put(activeOffset, slot.active());
+        profile.put(summaryOffset, slot.summary(), 0, SLOT_SUMMARY_SIZE);
+        byte[] profileChecksum = md5(profile, CHECKSUM_SIZE, profile.capacity() - CHECKSUM_SIZE);
+
+        List<Write> writes = new ArrayList<>();
+        writes.add(new Write(entry.offset(), slotEntry));
+        writes.add(new Write(userData.offset(), ByteBuffer.wrap(profileChecksum)));
+        writes.add(new Write(userData.offset() + activeOffset, profile.slice(activeOffset, 1)));
+        writes.add(new Write(userData.offset() + summaryOffset, profile.slice(summaryOffset, SLOT_SUMMARY_SIZE)));
+        return writes;
+    }
+
+    private static void apply(FileChannel channel, List<Write> writes) throws IOException {
+        for (Write write : writes) {
+            ByteBuffer data = write.data().duplicate().clear();
+            while (data.hasRemaining()) {
+                channel.write(data, write.offset() + data.position());
+            }
+        }
+    }
+
+    private static SaveFileLayout.Entry userData(SaveFileLayout layout) {
+        if (layout.entries().size() <= SaveFileLayout.USER_DATA_ENTRY
+                || layout.entries().get(SaveFileLayout.USER_DATA_ENTRY).dataSize() < SLOT_SUMMARY_OFFSET + SaveFileLayout.SLOT_COUNT * SLOT_SUMMARY_SIZE) {
+            throw new IllegalArgumentException("Save file has no profile summary.");
+        }
+        return layout.entries().get(SaveFileLayout.USER_DATA_ENTRY);
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate());
+        return copy.clear();
+    }
+
+    static byte[] md5(ByteBuffer buffer, int offset, int length) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(buffer.slice(offset, length));
+            return md5.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal ustar reader and writer for save archives, regular files and directories only. Names longer than 100 bytes are split into
+ * prefix and name at a slash, which covers every directory and save name the organizer accepts.
+ */
+public final class Tar {
+    private static final int BLOCK = 512;
+    private static final byte REGULAR = '0';
+    private static final byte DIRECTORY = '5';
+
+    public record Entry(String name, long size, long lastModified, boolean directory) {
+    }
+
+    private Tar() {
+    }
+
+    public static final class Writer {
+        private final OutputStream out;
+        private long remaining;
+        private long written;
+
+        public Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Starts a regular file, exactly {@code size} bytes have to be written with {@link #write} before the next entry.
+         */
+        public void putEntry(String name, long size, long lastModified) throws IOException {
+            if (this.remaining != 0) {
+                throw new IOException("Previous tar entry is incomplete.");
+            }
+            this.pad();
+            this.out.write(header(name, size, lastModified));
+            this.remaining = size;
+            this.written = 0;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > this.remaining) {
+                throw new IOException("Tar entry is longer than announced.");
+            }
+            this.out.write(b, off, len);
+            this.remaining -= len;
+            this.written += len;
+        }
+
+        /**
+         * Ends the archive with two empty blocks.
+         */
+        public void finish() throws IOException {
+            if (this.remaining != 0) {
+                throw new IOException("Last tar entry is incomplete.");
+            }
+            this.pad();
+            this.out.write(new byte[2 * BLOCK]);
+        }
+
+        private void pad() throws IOException {
+            int padding = (int) ((BLOCK - this.written % BLOCK) % BLOCK);
+            this.out.write(new byte[padding]);
+            this.written = 0;
+        }
+    }
+
+    public static final class Reader {
+        private final InputStream in;
+        private long remaining;
+        private long padding;
+
+        public Reader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Skips what is left of the current entry and returns the next one, or {@code null} at the end of the archive.
+         */
+        public Entry next() throws IOException {
+            skip(this.in, this.remaining + this.padding);
+            byte[] header = this.in.readNBytes(BLOCK);
+            if (header.length < BLOCK) {
+                throw new IOException("Tar archive ends without end marker.");
+            }
+            if (isZero(header)) {
+                return null;
+            }
+            if (checksum(header) != parseOctal(header, 148, 8)) {
+                throw new IOException("Tar header checksum mismatch.");
+            }
+            String name = string(header, 0, 100);
+            String prefix = string(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+            long size = parseOctal(header, 124, 12);
+            byte type = header[156];
+            this.remaining = size;
+            this.padding = (BLOCK - size % BLOCK) % BLOCK;
+            return new Entry(name, size, parseOctal(header, 136, 12) * 1000, type == DIRECTORY || name.endsWith("/"));
+        }
+
+        /**
+         * The content of the current entry, it ends with the entry.
+         */
+        public InputStream content() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (Reader.this.remaining == 0) {
+                        return -1;
+                    }
+                    int read = Reader.this.in.read(b, off, (int) Math.min(len, Reader.this.remaining));
+                    if (read < 0) {
+                        throw new IOException("Tar entry is truncated.");
+                    }
+                    Reader.this.remaining -= read;
+                    return read;
+                }
+            };
+        }
+    }
+
+    private static byte[] header(String name, long size, long lastModified) throws IOException {
+        byte[] header = new byte[BLOCK];
+        byte[] fullName = name.getBytes(StandardCharsets.UTF_8);
+        if (fullName.length <= 100) {
+            System.arraycopy(fullName, 0, header, 0, fullName.length);
+        } else {
+            int split = name.lastIndexOf('/');
+            byte[] prefix = split < 0 ? fullName : name.substring(0, split).getBytes(StandardCharsets.UTF_8);
+            byte[] shortName = split < 0 ? fullName : name.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+            if (prefix.length > 155 || shortName.length > 100) {
+                throw new IOException("Name " + name + " is too long for a tar archive.");
+            }
+            System.arraycopy(shortName, 0, header, 0, shortName.length);
+            System.arraycopy(prefix, 0, header, 345, prefix.length);
+        }
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, lastModified / 1000);
+        header[156] = REGULAR;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        octal(header, 148, 7, checksum(header));
+        return header;
+    }
+
+    /**
+     * Writes the value as zero padded octal number ending with a NUL into the field.
+     */
+    private static void octal(byte[] header, int offset, int length, long value) throws IOException {
+        String digits = Long.toOctalString(value);
+        if (digits.length() > length - 1) {
+            throw new IOException("Value " + value + " does not fit into a tar header.");
+        }
+        String padded = "0".repeat(length - 1 - digits.length()) + digits;
+        System.arraycopy(padded.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+        header[offset + length - 1] = 0;
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) throws IOException {
+        long value = 0;
+        int start = offset;
+        while (start < offset + length && header[start] == ' ') {
+            start++;
+        }
+        for (int i = start; i < offset + length && header[i] != 0 && header[i] != ' '; i++) {
+            if (header[i] < '0' || header[i] > '7') {
+                throw new IOException("Invalid number in tar header.");
+            }
+            value = value * 8 + (header[i] - '0');
+        }
+        return value;
+    }
+
+    private static long checksum(byte[] header) {
+        long sum = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            sum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+        }
+        return sum;
+    }
+
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte value : block) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Tar archive is truncated.");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
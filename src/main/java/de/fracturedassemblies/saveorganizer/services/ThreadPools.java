@@ -0,0 +1,155 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors for blocking file work. With {@code spring.threads.virtual.enabled} on a Java 21 runtime every task gets its own
+ * virtual thread and a queue keeps the number of running tasks at the configured parallelism, so the bound on open files and
+ * disk queue depth stays the same. Otherwise, and on Java 17, a fixed pool of daemon platform threads is used. Virtual threads are
+ * created reflectively, so the code still compiles for Java 17.
+ */
+public final class ThreadPools {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPools.class);
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    private ThreadPools() {
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    public static ExecutorService newFixedThreadPool(String name, int parallelism, boolean virtual) {
+        int threads = Math.max(1, parallelism);
+        if (virtual && VIRTUAL_THREAD_FACTORY != null) {
+            return new BoundedExecutor(newThreadPerTaskExecutor(VIRTUAL_THREAD_FACTORY), threads);
+        }
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "save-file-virtual-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Virtual threads are not available on this runtime, using platform threads.");
+            return null;
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Queues the tasks and starts each on a thread of its own once one of the permits is free, so tasks start in the order they
+     * were submitted, like on the queue of the platform thread pool, and no more threads exist than permits.
+     */
+    static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private volatile boolean shutdown;
+
+        BoundedExecutor(ExecutorService delegate, int parallelism) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(parallelism);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (this.shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            this.queue.add(command);
+            this.startQueued();
+        }
+
+        /**
+         * Starts queued tasks while permits are free. Whoever frees a permit calls this again, so a task queued while all permits
+         * were taken is started by the task that finishes next.
+         */
+        private void startQueued() {
+            while (!this.queue.isEmpty() && this.permits.tryAcquire()) {
+                Runnable next = this.queue.poll();
+                if (next == null) {
+                    this.permits.release();
+                    continue;
+                }
+                try {
+                    this.delegate.execute(() -> {
+                        try {
+                            next.run();
+                        } finally {
+                            this.permits.release();
+                            this.startQueued();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    this.permits.release();
+                    return;
+                }
+            }
+            if (this.shutdown && this.queue.isEmpty()) {
+                this.delegate.shutdown();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            // Queued tasks still run, the threads are shut down once the last of them started
+            this.shutdown = true;
+            this.startQueued();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            this.shutdown = true;
+            List<Runnable> pending = new ArrayList<>();
+            Runnable next;
+            while ((next = this.queue.poll()) != null) {
+                pending.add(next);
+            }
+            pending.addAll(this.delegate.shutdownNow());
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return this.shutdown && this.queue.isEmpty() && this.delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return this.delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
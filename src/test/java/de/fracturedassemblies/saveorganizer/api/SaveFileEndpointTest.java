@@ -3,21 +3,38 @@ package de.fracturedassemblies.saveorganizer.api;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import de.fracturedassemblies.saveorganizer.data.BatchOperation;
+import de.fracturedassemblies.saveorganizer.data.BatchOperationType;
+import de.fracturedassemblies.saveorganizer.data.BatchRequest;
+import de.fracturedassemblies.saveorganizer.data.MoveFileRequest;
+import de.fracturedassemblies.saveorganizer.data.RenameDirectoryRequest;
 import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
 import de.fracturedassemblies.saveorganizer.data.SaveFileRequest;
 import de.fracturedassemblies.saveorganizer.services.FileOrganizerService;
+import de.fracturedassemblies.saveorganizer.services.SaveFileEventService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -27,6 +44,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class SaveFileEndpointTest {
     private static final String SAVE_FILE_ENDPOINT = "/int/api/1.0/savefile";
+    private static final String SAVE_FILES_ENDPOINT = "/int/api/1.0/savefiles";
+    private static final String SAVE_FILE_CHANGES_ENDPOINT = "/int/api/1.0/savefiles/changes";
+    private static final String DELETE_DIRECTORY_ENDPOINT = "/int/api/1.0/deletedirectory";
+    private static final String MOVE_FILE_ENDPOINT = "/int/api/1.0/movefile";
+    private static final String COPY_FILE_ENDPOINT = "/int/api/1.0/copyfile";
+    private static final String RENAME_DIRECTORY_ENDPOINT = "/int/api/1.0/renamedirectory";
+    private static final String BATCH_ENDPOINT = "/int/api/1.0/batch";
+    private static final String JOBS_ENDPOINT = "/int/api/1.0/jobs/";
+    private static final String ACTUATOR_ENDPOINT = "/actuator/saveorganizer";
     private static final ObjectMapper jsonMapper = new ObjectMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     private static final ObjectWriter jsonWriter = jsonMapper.writer().withDefaultPrettyPrinter();
     @Autowired
@@ -35,6 +61,12 @@ class SaveFileEndpointTest {
     @Autowired
     private FileOrganizerService fileOrganizerService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SaveFileEventService saveFileEventService;
+
     @BeforeEach
     void beforeEach() {
         this.fileOrganizerService.saveFile("Dagger", "Limgrave");
@@ -69,6 +101,19 @@ class SaveFileEndpointTest {
         assert (saveDirectory.getSaveFiles().contains(fileName));
     }
 
+    @Test
+    void operationMetricsTest() throws Exception {
+        this.fileOrganizerService.loadFile("Sword", "Missing");
+
+        assert (this.meterRegistry.find("saveorganizer.operations").tag("operation", "save").tag("outcome", "OK").timer().count() >= 3);
+        assert (this.meterRegistry.find("saveorganizer.operations.failures").tag("operation", "load").tag("cause", "NOT_FOUND").counter()
+                .count() >= 1);
+        this.mvc.perform(get(ACTUATOR_ENDPOINT))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.directories").value(2))
+                .andExpect(jsonPath("$.saveFiles").value(3));
+    }
+
     @Test
     void invalidSaveFileNameTest() throws Exception {
         String directory = "Sword";
@@ -162,6 +207,149 @@ class SaveFileEndpointTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void notModifiedSaveFilesTest() throws Exception {
+        String eTag = this.mvc.perform(get(SAVE_FILES_ENDPOINT)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assert (eTag != null);
+        this.mvc.perform(get(SAVE_FILES_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+
+        this.fileOrganizerService.saveFile("Sword", "Miquella");
+
+        this.mvc.perform(get(SAVE_FILES_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+    }
+
+    @Test
+    void saveFileChangesTest() throws Exception {
+        long version = this.fileOrganizerService.getSaveFileSnapshot().getVersion();
+
+        this.fileOrganizerService.saveFile("Sword", "Miquella");
+
+        this.mvc.perform(get(SAVE_FILE_CHANGES_ENDPOINT).param("since", String.valueOf(version)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resync").value(false))
+                .andExpect(jsonPath("$.changes.length()").value(1))
+                .andExpect(jsonPath("$.changes[0].type").value("FILE_ADDED"))
+                .andExpect(jsonPath("$.changes[0].directory").value("Sword"))
+                .andExpect(jsonPath("$.changes[0].file").value("Miquella"));
+
+        this.mvc.perform(get(SAVE_FILE_CHANGES_ENDPOINT).param("since", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resync").value(true));
+    }
+
+    @Test
+    void batchTest() throws Exception {
+        BatchRequest request = new BatchRequest();
+        request.setOperations(List.of(batchOperation(BatchOperationType.SAVE, "Sword", "Miquella", null),
+                batchOperation(BatchOperationType.RENAME, "Dagger", "Mohg", "Morgott"),
+                batchOperation(BatchOperationType.DELETE, "Dagger", "Limgrave", null)));
+
+        this.mvc.perform(post(BATCH_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.results.length()").value(3));
+
+        assert (this.getSaveDirectory("Sword").getSaveFiles().contains("Miquella"));
+        assert (this.getSaveDirectory("Dagger").getSaveFiles().equals(List.of("Morgott")));
+    }
+
+    @Test
+    void atomicBatchRollbackTest() throws Exception {
+        RecordingEmitter emitter = (RecordingEmitter) this.saveFileEventService.subscribe(new RecordingEmitter());
+        BatchRequest request = new BatchRequest();
+        request.setAtomic(true);
+        request.setOperations(List.of(batchOperation(BatchOperationType.SAVE, "Sword", "Miquella", null),
+                batchOperation(BatchOperationType.DELETE, "Dagger", "Limgrave", null),
+                batchOperation(BatchOperationType.DELETE, "Dagger", "Radahn", null)));
+
+        this.mvc.perform(post(BATCH_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.rolledBack").value(true))
+                .andExpect(jsonPath("$.results[2].status").value(404));
+
+        assert (!this.getSaveDirectory("Sword").getSaveFiles().contains("Miquella"));
+        assert (this.getSaveDirectory("Dagger").getSaveFiles().contains("Limgrave"));
+        // Subscribers are not told about the undone operations, the next change reaches them as usual
+        this.fileOrganizerService.deleteFile("Sword", "Test");
+        this.saveFileEventService.flush();
+        assert (emitter.awaitEvent("file=Test"));
+        assert (emitter.events.stream().noneMatch(event -> event.contains("file=Miquella") || event.contains("file=Limgrave")));
+    }
+
+    @Test
+    void deleteDirectoryTest() throws Exception {
+        Path directory = this.fileOrganizerService.getSaveFileRoot().resolve("Dagger");
+        Files.createDirectories(directory.resolve("Notes"));
+        Files.writeString(directory.resolve("Notes").resolve("route.txt"), "Stormveil first");
+        Files.writeString(directory.resolve("a.b"), "not a save");
+
+        String response = this.mvc.perform(delete(DELETE_DIRECTORY_ENDPOINT).param("directory", "Dagger"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("deleteDirectory"))
+                .andExpect(jsonPath("$.totalFiles").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String job = JOBS_ENDPOINT + jsonMapper.readTree(response).get("id").asText();
+        for (int i = 0; i < 100 && !jsonMapper.readTree(this.mvc.perform(get(job)).andReturn().getResponse().getContentAsString())
+                .get("state").asText().equals("SUCCEEDED"); i++) {
+            Thread.sleep(50);
+        }
+        this.mvc.perform(get(job))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.files").value(4))
+                .andExpect(jsonPath("$.status").value(200));
+        this.mvc.perform(delete(job))
+                .andExpect(status().isConflict());
+        this.mvc.perform(delete(DELETE_DIRECTORY_ENDPOINT).param("directory", ".."))
+                .andExpect(status().isBadRequest());
+        this.mvc.perform(delete(DELETE_DIRECTORY_ENDPOINT).param("directory", "Dagger"))
+                .andExpect(status().isNotFound());
+
+        assert (!Files.exists(directory));
+        assert (this.getSaveDirectory("Dagger") == null);
+        assert (this.getSaveDirectory("Sword") != null);
+    }
+
+    @Test
+    void moveCopyAndRenameDirectoryTest() throws Exception {
+        MoveFileRequest move = new MoveFileRequest();
+        move.setDirectory("Dagger");
+        move.setFile("Mohg");
+        move.setTargetDirectory("Sword");
+        this.mvc.perform(put(MOVE_FILE_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(move)))
+                .andExpect(status().isOk());
+
+        MoveFileRequest copy = new MoveFileRequest();
+        copy.setDirectory("Dagger");
+        copy.setFile("Limgrave");
+        copy.setTargetDirectory("Sword");
+        this.mvc.perform(put(COPY_FILE_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(copy)))
+                .andExpect(status().isOk());
+        this.mvc.perform(put(COPY_FILE_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(copy)))
+                .andExpect(status().isConflict());
+
+        RenameDirectoryRequest rename = new RenameDirectoryRequest();
+        rename.setOldName("Sword");
+        rename.setNewName("Katana");
+        this.mvc.perform(put(RENAME_DIRECTORY_ENDPOINT).contentType(MediaType.APPLICATION_JSON).content(jsonWriter.writeValueAsString(rename)))
+                .andExpect(status().isOk());
+
+        assert (this.getSaveDirectory("Dagger").getSaveFiles().equals(List.of("Limgrave")));
+        assert (this.getSaveDirectory("Sword") == null);
+        assert (this.getSaveDirectory("Katana").getSaveFiles().equals(List.of("Limgrave", "Mohg", "Test")));
+    }
+
+    private static BatchOperation batchOperation(BatchOperationType type, String directory, String file, String newName) {
+        BatchOperation operation = new BatchOperation();
+        operation.setType(type);
+        operation.setDirectory(directory);
+        operation.setFile(file);
+        operation.setNewName(newName);
+        return operation;
+    }
+
     SaveDirectory getSaveDirectory(String directory) {
         for (SaveDirectory dir : this.fileOrganizerService.getSaveFiles().saveFileResult()) {
             if (dir.getDirectory().equals(directory)) {
@@ -173,4 +361,23 @@ class SaveFileEndpointTest {
 
     //TODO: Write loadfile test and save file test to check copy/pasted data. Currently only testing save functionality.
 
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            this.events.add(builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()));
+        }
+
+        boolean awaitEvent(String content) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline) {
+                if (this.events.stream().anyMatch(event -> event.contains(content))) {
+                    return true;
+                }
+                Thread.sleep(10);
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,210 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.ArchiveImportResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@DirtiesContext
+class ArchiveServiceTest {
+    private static final Path ROOT = createRoot();
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private SaveFileStoreService saveFileStoreService;
+
+    @Autowired
+    private SaveFileLocks saveFileLocks;
+
+    @Autowired
+    private SaveFileMetrics saveFileMetrics;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+        registry.add("save.archive.parallelism", () -> "4");
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(ROOT)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void exportAndImportTest() throws Exception {
+        byte[] first = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        byte[] second = TestSaveFiles.create(new String[] { "Tarnished", "Nepheli" }, (byte) 2);
+        this.store("Archived", "First", first);
+        this.store("Archived", "Second", second);
+
+        ResponseEntity<StreamingResponseBody> export = this.archiveService.export("Archived");
+        assert (export.getStatusCode() == HttpStatus.OK);
+        byte[] archive = body(export);
+        Map<String, byte[]> entries = unpack(archive);
+        assert (entries.keySet().equals(Set.of("Archived/First.sl2", "Archived/Second.sl2", "SHA256SUMS")));
+        assert (Arrays.equals(entries.get("Archived/First.sl2"), first));
+        assert (Arrays.equals(entries.get("Archived/Second.sl2"), second));
+        assert (new String(entries.get("SHA256SUMS"), StandardCharsets.UTF_8).contains(sha256(second) + "  Archived/Second.sl2\n"));
+        assert (this.archiveService.export("Missing").getStatusCode() == HttpStatus.NOT_FOUND);
+
+        ArchiveImportResult unchanged = this.archiveService.importArchive(new ByteArrayInputStream(archive), false).getBody();
+        assert (unchanged.importedFiles() == 0 && unchanged.skippedFiles() == 2 && unchanged.rejected().isEmpty());
+
+        assert (this.fileOrganizerService.deleteFile("Archived", "First").getStatusCode() == HttpStatus.OK);
+        ArchiveImportResult restored = this.archiveService.importArchive(new ByteArrayInputStream(archive), false).getBody();
+        assert (restored.importedFiles() == 1 && restored.skippedFiles() == 1 && restored.importedBytes() == first.length);
+        assert (Arrays.equals(Files.readAllBytes(this.fileOrganizerService.resolveSaveFile("Archived", "First")), first));
+    }
+
+    @Test
+    void invalidArchiveTest() throws Exception {
+        byte[] save = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 3);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("Imported/Valid.sl2", save);
+        entries.put("Imported/Tampered.sl2", save);
+        entries.put("Imported/Garbage.sl2", new byte[] { 1, 2, 3, 4 });
+        entries.put("Imported/Nested/Deep.sl2", save);
+        entries.put("SHA256SUMS", (sha256(save) + "  Imported/Valid.sl2\n"
+                + sha256(new byte[] { 9 }) + "  Imported/Tampered.sl2\n").getBytes(StandardCharsets.UTF_8));
+
+        ResponseEntity<ArchiveImportResult> result = this.archiveService.importArchive(new ByteArrayInputStream(pack(entries)), false);
+        assert (result.getStatusCode() == HttpStatus.OK);
+        assert (result.getBody().importedFiles() == 1);
+        assert (new HashSet<>(result.getBody().rejected()).equals(Set.of("Imported/Tampered.sl2", "Imported/Garbage.sl2", "Imported/Nested/Deep.sl2")));
+        assert (Files.exists(this.fileOrganizerService.resolveSaveFile("Imported", "Valid")));
+        assert (!Files.exists(this.fileOrganizerService.resolveSaveFile("Imported", "Tampered")));
+
+        entries.remove("SHA256SUMS");
+        assert (this.archiveService.importArchive(new ByteArrayInputStream(pack(entries)), true).getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.archiveService.importArchive(new ByteArrayInputStream(save), true).getStatusCode() == HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void archiveLimitsTest() throws Exception {
+        byte[] save = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 5);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("Limited/First.sl2", save);
+        entries.put("Limited/Second.sl2", save);
+        entries.put("Limited/Notes.txt", new byte[] { 1 });
+        entries.put("SHA256SUMS", (sha256(save) + "  Limited/First.sl2\n" + sha256(save) + "  Limited/Second.sl2\n").getBytes(StandardCharsets.UTF_8));
+        byte[] archive = pack(entries);
+
+        ArchiveService fewEntries = new ArchiveService(this.fileOrganizerService, this.saveFileStoreService, this.saveFileLocks,
+                this.saveFileMetrics, 1, 6, save.length, 3, 1024 * 1024);
+        ArchiveService fewBytes = new ArchiveService(this.fileOrganizerService, this.saveFileStoreService, this.saveFileLocks,
+                this.saveFileMetrics, 1, 6, save.length, 100, save.length + 1);
+        try {
+            // Rejected entries count as well, the text file is the one too many
+            assert (fewEntries.importArchive(new ByteArrayInputStream(archive), false).getStatusCode() == HttpStatus.PAYLOAD_TOO_LARGE);
+            assert (fewBytes.importArchive(new ByteArrayInputStream(archive), false).getStatusCode() == HttpStatus.PAYLOAD_TOO_LARGE);
+            assert (!Files.exists(this.fileOrganizerService.resolveSaveFile("Limited", "First")));
+
+            entries.remove("Limited/Notes.txt");
+            ArchiveImportResult result = fewEntries.importArchive(new ByteArrayInputStream(pack(entries)), false).getBody();
+            assert (result.importedFiles() == 2);
+        } finally {
+            fewEntries.close();
+            fewBytes.close();
+        }
+    }
+
+    private void store(String directory, String fileName, byte[] content) throws IOException {
+        Path source = Files.createTempFile(ROOT, "archive", ".tmp");
+        try {
+            Files.write(source, content);
+            assert (this.fileOrganizerService.saveFile(source, directory, fileName).getStatusCode() == HttpStatus.OK);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private static byte[] pack(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, executor, 2, 6)) {
+            Tar.Writer tar = new Tar.Writer(gzip);
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                tar.putEntry(entry.getKey(), entry.getValue().length, System.currentTimeMillis());
+                tar.write(entry.getValue(), 0, entry.getValue().length);
+            }
+            tar.finish();
+        } finally {
+            executor.shutdown();
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, byte[]> unpack(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            Tar.Reader tar = new Tar.Reader(in);
+            Tar.Entry entry;
+            while ((entry = tar.next()) != null) {
+                entries.put(entry.name(), tar.content().readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static Path createRoot() {
+        try {
+            Path root = Files.createTempDirectory("save-organizer-archive").toAbsolutePath();
+            Files.write(root.resolve("ER0000.sl2"), TestSaveFiles.create(new String[] { "Live" }, (byte) 4));
+            return root;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+class AtomicFileReplacerTest {
+    private static final int SAVE_SIZE = 4 * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaceRotatesBackupTest() throws Exception {
+        Path target = this.directory.resolve("ER0000.sl2");
+        Path snapshot = this.directory.resolve("Limgrave.sl2");
+        Files.write(target, content((byte) 1));
+        Files.write(snapshot, content((byte) 2));
+
+        AtomicFileReplacer.copy(snapshot, target, true);
+
+        assert (Arrays.equals(Files.readAllBytes(target), content((byte) 2)));
+        assert (Arrays.equals(Files.readAllBytes(AtomicFileReplacer.backupOf(target)), content((byte) 1)));
+        assert (this.temporaryFiles() == 0);
+    }
+
+    @Test
+    void failedWriteLeavesTargetUntouchedTest() throws Exception {
+        Path target = this.directory.resolve("ER0000.sl2");
+        Files.write(target, content((byte) 1));
+
+        boolean failed = false;
+        try {
+            AtomicFileReplacer.replace(target, channel -> {
+                channel.write(ByteBuffer.wrap(content((byte) 2), 0, SAVE_SIZE / 2));
+                assert (Arrays.equals(Files.readAllBytes(target), content((byte) 1)));
+                throw new IOException("Disk full");
+            }, true);
+        } catch (IOException e) {
+            failed = true;
+        }
+
+        assert (failed);
+        assert (Arrays.equals(Files.readAllBytes(target), content((byte) 1)));
+        assert (!Files.exists(AtomicFileReplacer.backupOf(target)));
+        assert (this.temporaryFiles() == 0);
+    }
+
+    @Test
+    void abortedWriteLeavesTargetUntouchedTest() throws Exception {
+        Path target = this.directory.resolve("ER0000.sl2");
+        Files.write(target, content((byte) 1));
+
+        boolean aborted = false;
+        try {
+            AtomicFileReplacer.replace(target, channel -> {
+                channel.write(ByteBuffer.wrap(content((byte) 2), 0, 1024));
+                throw new OutOfMemoryError("Simulated crash");
+            }, true);
+        } catch (OutOfMemoryError e) {
+            aborted = true;
+        }
+
+        assert (aborted);
+        assert (Arrays.equals(Files.readAllBytes(target), content((byte) 1)));
+    }
+
+    @Test
+    void readersNeverSeeTornFileTest() throws Exception {
+        Path target = this.directory.resolve("ER0000.sl2");
+        Path first = this.directory.resolve("First.sl2");
+        Path second = this.directory.resolve("Second.sl2");
+        Files.write(target, content((byte) 1));
+        Files.write(first, content((byte) 1));
+        Files.write(second, content((byte) 2));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger tornReads = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    byte[] read = Files.readAllBytes(target);
+                    reads.incrementAndGet();
+                    if (!Arrays.equals(read, content((byte) 1)) && !Arrays.equals(read, content((byte) 2))) {
+                        tornReads.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    tornReads.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 50; i++) {
+            AtomicFileReplacer.copy(i % 2 == 0 ? second : first, target, true);
+        }
+        running.set(false);
+        reader.join();
+
+        assert (reads.get() > 0);
+        assert (tornReads.get() == 0);
+        assert (this.temporaryFiles() == 0);
+    }
+
+    private long temporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".tmp")).count();
+        }
+    }
+
+    private static byte[] content(byte value) {
+        byte[] content = new byte[SAVE_SIZE];
+        Arrays.fill(content, value);
+        return content;
+    }
+}
@@ -0,0 +1,202 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@DirtiesContext
+class AutoSnapshotServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 18, 30);
+    private static final Path ROOT = createRoot();
+    private static final long QUIET_MILLIS = 300;
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @Autowired
+    private SaveFileStoreService saveFileStoreService;
+
+    private Path liveSave;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        this.liveSave = this.fileOrganizerService.getLiveSaveFile();
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(ROOT)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void snapshotAfterQuietPeriodTest() throws Exception {
+        AutoSnapshotService service = this.service("Quiet", 10);
+        try {
+            this.writeLiveSave((byte) 1);
+            service.poll();
+            service.poll();
+            // Still within the quiet period of the write
+            assert (this.snapshots("Quiet").isEmpty());
+
+            Thread.sleep(QUIET_MILLIS + 100);
+            service.poll();
+            assert (this.snapshots("Quiet").size() == 1);
+            service.poll();
+            assert (this.snapshots("Quiet").size() == 1);
+
+            // A newer modification time with the same content is no new snapshot
+            Files.setLastModifiedTime(this.liveSave, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            this.settle(service);
+            assert (this.snapshots("Quiet").size() == 1);
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void changedSaveIsNotStoredTest() throws Exception {
+        AutoSnapshotService service = this.service("Changed", 10);
+        try {
+            this.writeLiveSave((byte) 2);
+            // The save no longer looks like it did when the copy started
+            service.snapshot(this.liveSave, new AutoSnapshotService.Stat(Files.size(this.liveSave), 0));
+            assert (this.snapshots("Changed").isEmpty());
+
+            this.settle(service);
+            assert (this.snapshots("Changed").size() == 1);
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void failedSnapshotIsRetriedTest() throws Exception {
+        AutoSnapshotService service = this.service("Failing", 10);
+        Path blocking = Files.writeString(ROOT.resolve("Failing"), "not a directory");
+        try {
+            this.writeLiveSave((byte) 3);
+            this.settle(service);
+            assert (this.snapshots("Failing").isEmpty());
+
+            // The game did not write again, the same save is stored once the store works
+            Files.delete(blocking);
+            this.settle(service);
+            assert (this.snapshots("Failing").size() == 1);
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void pruneDeletesExpiredSnapshotsTest() throws Exception {
+        AutoSnapshotService service = this.service("Pruned", 2);
+        try {
+            List<String> taken = new ArrayList<>();
+            for (byte content = 4; content < 7; content++) {
+                // Snapshots are named by the second
+                Thread.sleep(1000);
+                this.writeLiveSave(content);
+                this.settle(service);
+                taken.addAll(this.snapshots("Pruned").stream().filter(name -> !taken.contains(name)).toList());
+            }
+            assert (taken.size() == 3);
+            assert (this.snapshots("Pruned").equals(taken.subList(1, 3)));
+        } finally {
+            service.close();
+        }
+    }
+
+    private AutoSnapshotService service(String directory, int keepLast) {
+        return new AutoSnapshotService(this.fileOrganizerService, this.saveFileStoreService, false, directory, 100, QUIET_MILLIS,
+                keepLast, 0, 0);
+    }
+
+    /**
+     * Polls until the live save was stable for the quiet period and once more.
+     */
+    private void settle(AutoSnapshotService service) throws InterruptedException {
+        service.poll();
+        Thread.sleep(QUIET_MILLIS + 100);
+        service.poll();
+    }
+
+    private void writeLiveSave(byte seed) throws Exception {
+        Files.write(this.liveSave, TestSaveFiles.create(new String[] { "Tarnished" }, seed));
+    }
+
+    private List<String> snapshots(String directory) {
+        return this.fileOrganizerService.getSaveFiles().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(directory))
+                .map(SaveDirectory::getSaveFiles)
+                .findFirst()
+                .orElse(List.of());
+    }
+
+    @Test
+    void retentionTest() {
+        List<LocalDateTime> snapshots = new ArrayList<>();
+        // Every 20 minutes over three days, newest last.
+        for (int minutes = 3 * 24 * 60; minutes >= 0; minutes -= 20) {
+            snapshots.add(NOW.minusMinutes(minutes));
+        }
+
+        SortedSet<LocalDateTime> expired = AutoSnapshotService.expired(snapshots, 3, 4, 2);
+        List<LocalDateTime> kept = snapshots.stream().filter(snapshot -> !expired.contains(snapshot)).toList();
+
+        // The last three, the newest of the hours 17, 16 and 15 (hour 18 is among the last three) and the newest of yesterday.
+        assert (kept.equals(List.of(NOW.minusDays(1).withHour(23).withMinute(50), NOW.withHour(15).withMinute(50),
+                NOW.withHour(16).withMinute(50), NOW.withHour(17).withMinute(50), NOW.minusMinutes(20), NOW)));
+        assert (expired.first().equals(snapshots.get(0)));
+    }
+
+    @Test
+    void retentionKeepsEverythingWithinLimitsTest() {
+        List<LocalDateTime> snapshots = List.of(NOW.minusHours(2), NOW.minusHours(1), NOW);
+        assert (AutoSnapshotService.expired(snapshots, 10, 0, 0).isEmpty());
+        assert (AutoSnapshotService.expired(snapshots, 1, 0, 0).equals(new TreeSet<>(List.of(NOW.minusHours(2), NOW.minusHours(1)))));
+    }
+
+    private static Path createRoot() {
+        try {
+            Path root = Files.createTempDirectory("save-organizer-autosnapshot").toAbsolutePath();
+            Files.write(root.resolve("ER0000.sl2"), TestSaveFiles.create(new String[] { "Live" }, (byte) 0));
+            return root;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
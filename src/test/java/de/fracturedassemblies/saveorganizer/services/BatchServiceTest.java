@@ -0,0 +1,116 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.BatchOperation;
+import de.fracturedassemblies.saveorganizer.data.BatchOperationType;
+import de.fracturedassemblies.saveorganizer.data.BatchResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@DirtiesContext
+class BatchServiceTest {
+    private static final Path ROOT = createRoot();
+
+    @Autowired
+    private BatchService batchService;
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(ROOT)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void failedBatchRestoresDeletedTreeTest() throws Exception {
+        Path limgrave = Files.createDirectories(ROOT.resolve("Limgrave"));
+        Files.writeString(limgrave.resolve("Margit.sl2"), "Margit");
+        Files.writeString(Files.createDirectories(limgrave.resolve("Old")).resolve("Godrick.sl2"), "Godrick");
+        Path caelid = Files.createDirectories(ROOT.resolve("Caelid"));
+        Files.writeString(caelid.resolve("Radahn.sl2"), "Radahn");
+        Files.writeString(caelid.resolve("Malenia.sl2"), "Malenia");
+
+        // The rename fails because the target exists, which rolls back the directory deletion
+        BatchResult result = this.batchService.execute(List.of(operation(BatchOperationType.DELETE_DIRECTORY, "Limgrave", null, null),
+                operation(BatchOperationType.RENAME, "Caelid", "Radahn", "Malenia")), true);
+
+        assert (!result.success());
+        assert (result.rolledBack());
+        assert (result.results().get(0).status() == HttpStatus.OK.value());
+        assert (result.results().get(1).status() == HttpStatus.CONFLICT.value());
+        assert (Files.readString(limgrave.resolve("Margit.sl2")).equals("Margit"));
+        assert (Files.readString(limgrave.resolve("Old").resolve("Godrick.sl2")).equals("Godrick"));
+        // Undoing the failed rename leaves both saves alone
+        assert (Files.readString(caelid.resolve("Radahn.sl2")).equals("Radahn"));
+        assert (Files.readString(caelid.resolve("Malenia.sl2")).equals("Malenia"));
+    }
+
+    @Test
+    void batchStaysBelowTheRootTest() throws Exception {
+        Path outside = Files.createTempDirectory("save-organizer-outside");
+        try {
+            Files.writeString(outside.resolve("Margit.sl2"), "Margit");
+            String escaping = ROOT.relativize(outside).toString();
+
+            BatchResult result = this.batchService.execute(List.of(operation(BatchOperationType.DELETE, escaping, "Margit", null)), true);
+
+            assert (!result.success());
+            assert (result.results().get(0).status() == HttpStatus.BAD_REQUEST.value());
+            assert (Files.readString(outside.resolve("Margit.sl2")).equals("Margit"));
+        } finally {
+            Files.deleteIfExists(outside.resolve("Margit.sl2"));
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    private static BatchOperation operation(BatchOperationType type, String directory, String file, String newName) {
+        BatchOperation operation = new BatchOperation();
+        operation.setType(type);
+        operation.setDirectory(directory);
+        operation.setFile(file);
+        operation.setNewName(newName);
+        return operation;
+    }
+
+    private static Path createRoot() {
+        try {
+            return Files.createTempDirectory("save-organizer-batch");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+class FileMoverTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void copyAndMoveTest() throws Exception {
+        Path source = Files.write(this.directory.resolve("Limgrave.sl2"), content((byte) 1));
+        Path copy = this.directory.resolve("Liurnia.sl2");
+        Path moved = this.directory.resolve("Caelid.sl2");
+
+        FileMover.copy(source, copy);
+        assert (Arrays.equals(Files.readAllBytes(copy), content((byte) 1)));
+        FileMover.move(source, moved);
+        assert (!Files.exists(source));
+        assert (Arrays.equals(Files.readAllBytes(moved), content((byte) 1)));
+        assert (this.fileNames() == 2);
+    }
+
+    @Test
+    void existingTargetIsNeverReplacedTest() throws Exception {
+        Path source = Files.write(this.directory.resolve("Limgrave.sl2"), content((byte) 1));
+        Path target = Files.write(this.directory.resolve("Liurnia.sl2"), content((byte) 2));
+
+        for (boolean copy : new boolean[] { true, false }) {
+            boolean failed = false;
+            try {
+                if (copy) {
+                    FileMover.copy(source, target);
+                } else {
+                    FileMover.move(source, target);
+                }
+            } catch (FileAlreadyExistsException e) {
+                failed = true;
+            }
+            assert (failed);
+            assert (Arrays.equals(Files.readAllBytes(target), content((byte) 2)));
+            assert (Arrays.equals(Files.readAllBytes(source), content((byte) 1)));
+        }
+        // No temporary file of the failed copy is left behind
+        assert (this.fileNames() == 2);
+    }
+
+    private long fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] content(byte value) {
+        byte[] content = new byte[64 * 1024];
+        Arrays.fill(content, value);
+        return content;
+    }
+}
@@ -0,0 +1,195 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Runs conflicting operations from several threads at once: loads replacing the live save while it is stored, saves into a shared
+ * directory and renames within per-thread directories. Every response has to succeed, every stored save has to be one of the
+ * written versions as a whole, and index and disk have to agree afterwards.
+ */
+@SpringBootTest
+@DirtiesContext
+class FileOrganizerServiceConcurrencyTest {
+    private static final Path ROOT = createRoot();
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 25;
+    private static final int SAVE_SIZE = 256 * 1024;
+    private static final byte[] VERSIONS = { 'A', 'B', 'L' };
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(ROOT)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void concurrentOperationsTest() throws Exception {
+        Files.write(ROOT.resolve("ER0000.sl2"), save((byte) 'L'));
+        for (byte version : new byte[] { 'A', 'B' }) {
+            Path source = Files.write(ROOT.resolve("source.tmp"), save(version));
+            assert (this.fileOrganizerService.saveFile(source, "Sources", String.valueOf((char) version)).getStatusCode().is2xxSuccessful());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<ResponseEntity<Void>>>> results = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                int id = thread;
+                results.add(executor.submit(id % 2 == 0 ? loader(id) : saver(id)));
+            }
+            for (Future<List<ResponseEntity<Void>>> result : results) {
+                assert (result.get().stream().allMatch(response -> response.getStatusCode().is2xxSuccessful()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<String> expectedShared = new TreeSet<>();
+        for (int thread = 1; thread < THREADS; thread += 2) {
+            for (int round = 0; round < ROUNDS; round++) {
+                expectedShared.add("t" + thread + "-" + round);
+            }
+            assert (this.listed("Profile-" + thread).equals(List.of("p" + ROUNDS)));
+        }
+        assert (new TreeSet<>(this.listed("Shared")).equals(expectedShared));
+        for (String saveFile : expectedShared) {
+            assert (isWholeVersion(Files.readAllBytes(ROOT.resolve("Shared").resolve(saveFile + ".sl2"))));
+        }
+        assert (isWholeVersion(Files.readAllBytes(ROOT.resolve("ER0000.sl2"))));
+        for (SaveDirectory saveDirectory : this.fileOrganizerService.getSaveFiles().saveFileResult()) {
+            assert (new TreeSet<>(saveDirectory.getSaveFiles()).equals(onDisk(saveDirectory.getDirectory())));
+        }
+    }
+
+    @Test
+    void directoryNamesAreValidatedTest() throws Exception {
+        Files.write(ROOT.resolve("ER0000.sl2"), save((byte) 'L'));
+        Path outside = ROOT.getParent().resolve("Escaped");
+        assert (this.fileOrganizerService.saveFile("../Escaped", "x").getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (!Files.exists(outside));
+        assert (this.fileOrganizerService.saveFile("Nested/Deep", "x").getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.listed("Nested/Deep").isEmpty() && !Files.exists(ROOT.resolve("Nested")));
+        assert (this.fileOrganizerService.loadFile("..", "x").getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.fileOrganizerService.deleteFile("./Trailing", "x").getStatusCode() == HttpStatus.BAD_REQUEST);
+
+        // Another spelling of the same directory is stored, indexed and locked as that directory
+        assert (this.fileOrganizerService.saveFile("Trailing/", "x").getStatusCode() == HttpStatus.OK);
+        assert (this.listed("Trailing").equals(List.of("x")) && this.listed("Trailing/").isEmpty());
+        assert (this.fileOrganizerService.deleteFile("Trailing/", "x").getStatusCode() == HttpStatus.OK);
+        assert (this.listed("Trailing").isEmpty());
+    }
+
+    private Callable<List<ResponseEntity<Void>>> loader(int id) {
+        return () -> {
+            List<ResponseEntity<Void>> responses = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                responses.add(this.fileOrganizerService.loadFile("Sources", (round + id) % 2 == 0 ? "A" : "B"));
+            }
+            return responses;
+        };
+    }
+
+    private Callable<List<ResponseEntity<Void>>> saver(int id) {
+        return () -> {
+            List<ResponseEntity<Void>> responses = new ArrayList<>();
+            String profile = "Profile-" + id;
+            responses.add(this.fileOrganizerService.saveFile(profile, "p0"));
+            for (int round = 0; round < ROUNDS; round++) {
+                responses.add(this.fileOrganizerService.saveFile("Shared", "t" + id + "-" + round));
+                responses.add(this.fileOrganizerService.renameFile(profile, "p" + round, "p" + (round + 1)));
+            }
+            return responses;
+        };
+    }
+
+    private List<String> listed(String directory) {
+        return this.fileOrganizerService.getSaveFiles().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(directory))
+                .map(SaveDirectory::getSaveFiles)
+                .findFirst()
+                .orElse(List.of());
+    }
+
+    private static Set<String> onDisk(String directory) throws IOException {
+        try (Stream<Path> files = Files.list(ROOT.resolve(directory))) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(SaveFileStoreService::isSaveFile)
+                    .map(SaveFileStoreService::toSaveName)
+                    .collect(TreeSet::new, Set::add, Set::addAll);
+        }
+    }
+
+    private static boolean isWholeVersion(byte[] content) {
+        if (content.length != SAVE_SIZE) {
+            return false;
+        }
+        byte version = content[0];
+        for (byte value : content) {
+            if (value != version) {
+                return false;
+            }
+        }
+        for (byte known : VERSIONS) {
+            if (known == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] save(byte version) {
+        byte[] content = new byte[SAVE_SIZE];
+        Arrays.fill(content, version);
+        return content;
+    }
+
+    private static Path createRoot() {
+        try {
+            return Files.createTempDirectory("save-organizer-concurrency").toAbsolutePath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
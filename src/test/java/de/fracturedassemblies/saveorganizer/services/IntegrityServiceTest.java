@@ -0,0 +1,48 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+class IntegrityServiceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void checksumVerificationTest() throws Exception {
+        byte[] content = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        Path valid = this.directory.resolve("Valid.sl2");
+        Path corrupted = this.directory.resolve("Corrupted.sl2");
+        Path truncated = this.directory.resolve("Truncated.sl2");
+        Files.write(valid, content);
+        byte[] corruptedContent = content.clone();
+        corruptedContent[(int) SaveFileLayout.read(valid).slot(3).dataOffset()] ^= 1;
+        Files.write(corrupted, corruptedContent);
+        Files.write(truncated, Arrays.copyOf(content, content.length / 2));
+
+        ContentHashCache.Entry validEntry = IntegrityService.hash(valid, 1);
+        assert (validEntry.status().equals("ok"));
+        assert (IntegrityService.hash(corrupted, 1).status().equals("entries=3"));
+        assert (IntegrityService.hash(truncated, 1).status().equals("invalid"));
+        assert (!IntegrityService.hash(corrupted, 1).hash().equals(validEntry.hash()));
+    }
+
+    @Test
+    void hashCachePersistenceTest() throws Exception {
+        Path file = this.directory.resolve(".saveorganizer").resolve("hashes");
+        ContentHashCache cache = ContentHashCache.load(file);
+        cache.put("Dagger/Limgrave Cave.sl2", new ContentHashCache.Entry("abc", 10, 20, "ok"));
+        cache.put("Dagger/Mohg.sl2", new ContentHashCache.Entry("def", 10, 20, "ok"));
+        cache.retain(Set.of("Dagger/Limgrave Cave.sl2"));
+        cache.save();
+
+        ContentHashCache loaded = ContentHashCache.load(file);
+        assert (loaded.get("Dagger/Limgrave Cave.sl2", 10, 20).hash().equals("abc"));
+        assert (loaded.get("Dagger/Limgrave Cave.sl2", 10, 21) == null);
+        assert (loaded.get("Dagger/Mohg.sl2", 10, 20) == null);
+    }
+}
@@ -0,0 +1,66 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.Job;
+import de.fracturedassemblies.saveorganizer.data.JobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CountDownLatch;
+
+class JobServiceTest {
+    private final JobService jobService = new JobService(1, 1, 60, false);
+
+    @AfterEach
+    void afterEach() {
+        this.jobService.close();
+    }
+
+    @Test
+    void progressAndCancellationTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Job running = this.jobService.submit("test", "running", context -> {
+            context.total(10, 1000);
+            context.progress(3, 300);
+            context.progress(2, 200);
+            release.await();
+            return new ResponseEntity<>(HttpStatus.OK);
+        }).orElseThrow();
+        await(running.id(), JobState.RUNNING);
+
+        Job queued = this.jobService.submit("test", "queued", context -> new ResponseEntity<>(HttpStatus.OK)).orElseThrow();
+        assert (this.jobService.submit("test", "rejected", context -> new ResponseEntity<>(HttpStatus.OK)).isEmpty());
+
+        Job progress = this.jobService.getJob(running.id()).orElseThrow();
+        assert (progress.files() == 3 && progress.bytes() == 300);
+        assert (progress.totalFiles() == 10 && progress.totalBytes() == 1000);
+
+        assert (this.jobService.cancel(queued.id()).orElseThrow().state() == JobState.CANCELLED);
+        this.jobService.cancel(running.id());
+        await(running.id(), JobState.CANCELLED);
+        assert (this.jobService.getJobs().size() == 2);
+        assert (this.jobService.cancel("unknown").isEmpty());
+    }
+
+    @Test
+    void failedJobTest() throws Exception {
+        Job notFound = this.jobService.submit("test", "notFound", context -> new ResponseEntity<>(HttpStatus.NOT_FOUND)).orElseThrow();
+        await(notFound.id(), JobState.FAILED);
+        assert (this.jobService.getJob(notFound.id()).orElseThrow().status() == 404);
+
+        Job broken = this.jobService.submit("test", "broken", context -> {
+            throw new IllegalStateException("broken");
+        }).orElseThrow();
+        await(broken.id(), JobState.FAILED);
+        Job failed = this.jobService.getJob(broken.id()).orElseThrow();
+        assert (failed.status() == 500 && failed.message().equals("broken") && failed.finishedAt() >= failed.startedAt());
+    }
+
+    private void await(String id, JobState state) throws InterruptedException {
+        for (int i = 0; i < 200 && this.jobService.getJob(id).orElseThrow().state() != state; i++) {
+            Thread.sleep(10);
+        }
+        assert (this.jobService.getJob(id).orElseThrow().state() == state);
+    }
+}
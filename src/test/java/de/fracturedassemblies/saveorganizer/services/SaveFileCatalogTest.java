@@ -0,0 +1,105 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+class SaveFileCatalogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayTest() {
+        Path file = this.directory.resolve("catalog");
+        SaveFileCatalog catalog = SaveFileCatalog.open(file);
+        catalog.putDirectory("Dagger", 10, Map.of("Limgrave", new SaveFileCatalog.FileEntry(28, 1, null), "Mohg", new SaveFileCatalog.FileEntry(28, 2, "abc")));
+        catalog.putDirectory("Sword", 20, Map.of("Test", new SaveFileCatalog.FileEntry(28, 3, null)));
+        catalog.putFile("Dagger", "Morgott", new SaveFileCatalog.FileEntry(28, 4, null));
+        catalog.removeFile("Dagger", "Mohg");
+        catalog.removeDirectory("Sword");
+        catalog.close();
+
+        SaveFileCatalog loaded = SaveFileCatalog.open(file);
+        assert (loaded.getDirectories().equals(Map.of("Dagger", List.of("Limgrave", "Morgott"))));
+        assert (loaded.getDirectoryModified("Dagger") == 10);
+        assert (loaded.getDirectoryModified("Sword") == -1);
+    }
+
+    @Test
+    void tornCatalogStartsOverTest() throws Exception {
+        Path file = this.directory.resolve("catalog");
+        SaveFileCatalog catalog = SaveFileCatalog.open(file);
+        catalog.putDirectory("Dagger", 10, Map.of("Limgrave", new SaveFileCatalog.FileEntry(28, 1, null)));
+        catalog.putDirectory("Sword", 20, Map.of());
+        catalog.close();
+        // A crash while appending leaves the last record cut off
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+
+        SaveFileCatalog damaged = SaveFileCatalog.open(file);
+        assert (damaged.isEmpty());
+        assert (!Files.exists(file));
+        damaged.putDirectory("Dagger", 30, Map.of("Morgott", new SaveFileCatalog.FileEntry(28, 2, null)));
+        damaged.close();
+
+        SaveFileCatalog loaded = SaveFileCatalog.open(file);
+        assert (loaded.getDirectories().equals(Map.of("Dagger", List.of("Morgott"))));
+        assert (loaded.getDirectoryModified("Dagger") == 30);
+    }
+
+    @Test
+    void namesWithSeparatorsTest() {
+        Path file = this.directory.resolve("catalog");
+        SaveFileCatalog catalog = SaveFileCatalog.open(file);
+        catalog.putDirectory("Dag\tger", 10, Map.of("Lim\ngrave", new SaveFileCatalog.FileEntry(28, 1, null),
+                "Mo\\hg", new SaveFileCatalog.FileEntry(28, 2, null)));
+        catalog.putDirectory("Sword\r", 20, Map.of("Test", new SaveFileCatalog.FileEntry(28, 3, null)));
+        catalog.removeFile("Dag\tger", "Mo\\hg");
+        catalog.close();
+
+        SaveFileCatalog loaded = SaveFileCatalog.open(file);
+        assert (loaded.getDirectories().equals(Map.of("Dag\tger", List.of("Lim\ngrave"), "Sword\r", List.of("Test"))));
+        assert (loaded.getDirectoryModified("Dag\tger") == 10);
+    }
+
+    @Test
+    void restartServesCatalogAndRelistsChangedDirectoriesTest() throws Exception {
+        Files.createDirectories(this.directory.resolve("Dagger"));
+        Files.createDirectories(this.directory.resolve("Sword"));
+        Files.writeString(this.directory.resolve("Dagger").resolve("Limgrave.sl2"), "save");
+        Files.writeString(this.directory.resolve("Sword").resolve("Test.sl2"), "save");
+        SaveFileIndex index = new SaveFileIndex();
+        index.open(this.directory);
+        index.close();
+
+        Files.writeString(this.directory.resolve("Sword").resolve("Miquella.sl2"), "save");
+        Files.setLastModifiedTime(this.directory.resolve("Sword"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        SaveFileIndex restarted = new SaveFileIndex();
+        restarted.open(this.directory);
+        try {
+            assert (saveFiles(restarted, "Dagger").equals(List.of("Limgrave")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!saveFiles(restarted, "Sword").equals(List.of("Miquella", "Test")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assert (saveFiles(restarted, "Sword").equals(List.of("Miquella", "Test")));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private static List<String> saveFiles(SaveFileIndex index, String directory) {
+        return index.getSaveFileResult().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(directory))
+                .map(SaveDirectory::getSaveFiles)
+                .findFirst()
+                .orElse(List.of());
+    }
+}
@@ -0,0 +1,63 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.DiffRange;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+class SaveFileDiffServiceTest {
+
+    @Test
+    void changedSlotsAndRangesTest() throws Exception {
+        byte[] a = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        byte[] b = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        SaveFileLayout.Entry slot = SaveFileLayout.read(a.length, source(a)).slot(2);
+        int changed = (int) slot.dataOffset() + 100;
+        for (int i = changed; i < changed + 10; i++) {
+            b[i] = 0x7F;
+        }
+        b[changed + 200] = 0x7F;
+        ByteBuffer.wrap(b).put((int) slot.offset(), SaveSlotService.md5(ByteBuffer.wrap(b), (int) slot.dataOffset(), (int) slot.dataSize()));
+
+        SaveFileDiffService.Comparison comparison = compare(a, b);
+
+        List<DiffRange> ranges = comparison.getRanges();
+        assert (comparison.getChangedSlots().equals(Set.of(2)));
+        assert (ranges.size() == 3);
+        assert (ranges.get(0).entry() == 2 && ranges.get(0).offset() >= slot.offset() && ranges.get(0).offset() + ranges.get(0).length() <= slot.dataOffset());
+        assert (ranges.subList(1, 3).equals(List.of(new DiffRange(changed, 10, 2), new DiffRange(changed + 200, 1, 2))));
+    }
+
+    @Test
+    void identicalChecksumsSkipSlotsTest() throws Exception {
+        byte[] a = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        byte[] b = TestSaveFiles.create(new String[] { "Tarnished", "Ranni" }, (byte) 1);
+
+        SaveFileDiffService.Comparison comparison = compare(a, b);
+
+        assert (comparison.getChangedSlots().isEmpty());
+        assert (comparison.getRanges().stream().allMatch(range -> range.entry() == SaveFileLayout.USER_DATA_ENTRY));
+    }
+
+    @Test
+    void differentSizesTest() throws Exception {
+        byte[] a = "not a save".getBytes();
+        byte[] b = "not a save either".getBytes();
+
+        SaveFileDiffService.Comparison comparison = compare(a, b);
+
+        assert (comparison.getRanges().equals(List.of(new DiffRange(a.length, b.length - a.length, null))));
+    }
+
+    private static SaveFileDiffService.Comparison compare(byte[] a, byte[] b) throws Exception {
+        SaveFileDiffService.Comparison comparison = new SaveFileDiffService.Comparison(100);
+        SaveFileDiffService.compare(a.length, source(a), b.length, source(b), comparison);
+        return comparison;
+    }
+
+    private static SaveFileLayout.Source source(byte[] content) {
+        return (offset, length) -> ByteBuffer.wrap(content, (int) offset, length).slice();
+    }
+}
@@ -0,0 +1,154 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveFileEvent;
+import de.fracturedassemblies.saveorganizer.data.SaveFileEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SaveFileEventServiceTest {
+    private SaveFileEventService saveFileEventService;
+
+    @AfterEach
+    void afterEach() {
+        this.saveFileEventService.close();
+    }
+
+    @Test
+    void manySubscribersReceiveEveryEventTest() throws Exception {
+        this.saveFileEventService = new SaveFileEventService(64, 4);
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            emitters.add((RecordingEmitter) this.saveFileEventService.subscribe(new RecordingEmitter(null)));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            this.saveFileEventService.publish(event(SaveFileEventType.SAVED, "Dagger", "Limgrave" + i));
+        }
+        this.saveFileEventService.flush();
+
+        for (RecordingEmitter emitter : emitters) {
+            assert (emitter.awaitEvents(10));
+        }
+    }
+
+    @Test
+    void stuckSubscribersDoNotBlockPublishersTest() throws Exception {
+        this.saveFileEventService = new SaveFileEventService(16, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 200; i++) {
+            this.saveFileEventService.subscribe(new RecordingEmitter(release));
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            ExecutorService publishers = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                futures.add(publishers.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        this.saveFileEventService.publish(event(SaveFileEventType.SAVED, "Sword", offset + "-" + i));
+                        if (i % 100 == 0) {
+                            this.saveFileEventService.flush();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            publishers.shutdown();
+            this.saveFileEventService.flush();
+        });
+        release.countDown();
+    }
+
+    @Test
+    void slowSubscriberGetsResyncTest() throws Exception {
+        this.saveFileEventService = new SaveFileEventService(8, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = (RecordingEmitter) this.saveFileEventService.subscribe(new RecordingEmitter(release));
+
+        for (int i = 0; i < 100; i++) {
+            this.saveFileEventService.publish(event(SaveFileEventType.SAVED, "Dagger", "Mohg" + i));
+        }
+        this.saveFileEventService.flush();
+        release.countDown();
+
+        assert (slow.awaitEvent("event:resync"));
+        assert (slow.events.size() <= 8 + 1);
+    }
+
+    @Test
+    void coalesceDirectoryDeleteTest() {
+        List<SaveFileEvent> events = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            events.add(event(SaveFileEventType.DELETED, "Dagger", "Limgrave" + i));
+            events.add(event(SaveFileEventType.EXTERNAL_CHANGE, "Dagger", "Limgrave" + i));
+        }
+        events.add(new SaveFileEvent(SaveFileEventType.DIRECTORY_DELETED, "Dagger", null, null, 500, 1));
+        events.add(event(SaveFileEventType.EXTERNAL_CHANGE, "Sword", "Test"));
+        events.add(event(SaveFileEventType.EXTERNAL_CHANGE, "Sword", "Miquella"));
+
+        List<SaveFileEvent> coalesced = SaveFileEventService.coalesce(events);
+
+        assert (coalesced.size() == 2);
+        assert (coalesced.get(0).type() == SaveFileEventType.DIRECTORY_DELETED);
+        assert (coalesced.get(0).count() == 500);
+        assert (coalesced.get(1).type() == SaveFileEventType.EXTERNAL_CHANGE);
+        assert (coalesced.get(1).count() == 2);
+    }
+
+    private static SaveFileEvent event(SaveFileEventType type, String directory, String file) {
+        return new SaveFileEvent(type, directory, file, null, 1, 1);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (this.release != null) {
+                try {
+                    this.release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            this.events.add(builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()));
+        }
+
+        boolean awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (this.events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            return this.events.size() == count;
+        }
+
+        boolean awaitEvent(String content) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (System.nanoTime() < deadline) {
+                if (this.events.stream().anyMatch(event -> event.contains(content))) {
+                    return true;
+                }
+                Thread.sleep(10);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChange;
+import de.fracturedassemblies.saveorganizer.data.SaveFileChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+class SaveFileIndexTest {
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path otherRoot;
+
+    private SaveFileIndex index;
+    private final List<SaveFileChange> externalChanges = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void beforeEach() {
+        this.index = new SaveFileIndex();
+        this.index.addExternalChangeListener(this.externalChanges::addAll);
+        this.index.open(this.root);
+    }
+
+    @AfterEach
+    void afterEach() {
+        this.index.close();
+    }
+
+    @Test
+    void batchDefersOnlyItsOwnChangesTest() throws Exception {
+        SaveFileIndex.Batch batch = this.index.beginBatch();
+        this.index.addFile("Limgrave", "Margit");
+        // The watcher reports the files of the batch, that must not publish them early as external changes
+        Files.writeString(Files.createDirectories(this.root.resolve("Limgrave")).resolve("Margit.sl2"), "save");
+        long version = this.index.getSnapshot().getVersion();
+
+        // Changes outside of the batch are published right away, from another thread as from the watcher
+        CompletableFuture.runAsync(() -> this.index.addFile("Caelid", "Radahn")).join();
+        long unrelated = this.index.getSnapshot().getVersion();
+        assert (unrelated == version + 1);
+        assert (saveFiles(this.index, "Caelid").equals(List.of("Radahn")));
+        Thread.sleep(500);
+        assert (saveFiles(this.index, "Limgrave").isEmpty());
+        assert (this.index.getSnapshot().getVersion() == unrelated);
+
+        this.index.endBatch(batch);
+        assert (this.index.getSnapshot().getVersion() == unrelated + 1);
+        assert (saveFiles(this.index, "Limgrave").equals(List.of("Margit")));
+        assert (this.externalChanges.isEmpty());
+    }
+
+    @Test
+    void joinedThreadsAddToTheBatchTest() {
+        long version = this.index.getSnapshot().getVersion();
+        SaveFileIndex.Batch batch = this.index.beginBatch();
+        CompletableFuture.runAsync(() -> this.index.joinBatch(batch, () -> {
+            this.index.addFile("Limgrave", "Margit");
+            this.index.addFile("Liurnia", "Rennala");
+            return null;
+        })).join();
+        assert (this.index.getSnapshot().getVersion() == version);
+
+        this.index.endBatch(batch);
+        assert (this.index.getSnapshot().getVersion() == version + 1);
+        assert (saveFiles(this.index, "Limgrave").equals(List.of("Margit")));
+        assert (saveFiles(this.index, "Liurnia").equals(List.of("Rennala")));
+    }
+
+    @Test
+    void watcherPicksUpExternalChangesTest() throws Exception {
+        long version = this.index.getSnapshot().getVersion();
+        Path save = Files.writeString(Files.createDirectories(this.root.resolve("Limgrave")).resolve("Margit.sl2"), "save");
+
+        // Listeners are told after the snapshot is published, so once they know, the snapshot shows the save
+        assert (waitFor(() -> this.reported(SaveFileChangeType.FILE_ADDED, "Limgrave", "Margit")));
+        long added = this.index.getSnapshot().getVersion();
+        assert (added > version);
+        assert (saveFiles(this.index, "Limgrave").equals(List.of("Margit")));
+
+        Files.delete(save);
+        assert (waitFor(() -> this.reported(SaveFileChangeType.FILE_REMOVED, "Limgrave", "Margit")));
+        assert (this.index.getSnapshot().getVersion() > added);
+        assert (saveFiles(this.index, "Limgrave").isEmpty());
+    }
+
+    @Test
+    void reconcileFindsMissedChangesTest() throws Exception {
+        Path limgrave = Files.createDirectories(this.root.resolve("Limgrave"));
+        Files.writeString(limgrave.resolve("Margit.sl2"), "save");
+        this.index.reconcile();
+        assert (saveFiles(this.index, "Limgrave").equals(List.of("Margit")));
+
+        // Without the watcher, as after an overflow, only the reconcile sees what changed on disk
+        this.index.close();
+        this.externalChanges.clear();
+        long version = this.index.getSnapshot().getVersion();
+        Files.delete(limgrave.resolve("Margit.sl2"));
+        Files.writeString(limgrave.resolve("Godrick.sl2"), "save");
+        Files.writeString(Files.createDirectories(this.root.resolve("Caelid")).resolve("Radahn.sl2"), "save");
+        Thread.sleep(200);
+        assert (this.index.getSnapshot().getVersion() == version);
+
+        this.index.reconcile();
+        assert (this.index.getSnapshot().getVersion() == version + 1);
+        assert (saveFiles(this.index, "Limgrave").equals(List.of("Godrick")));
+        assert (saveFiles(this.index, "Caelid").equals(List.of("Radahn")));
+        assert (this.index.getChangesSince(version).changes().equals(this.externalChanges));
+        assert (this.externalChanges.stream().map(SaveFileChange::type).toList().containsAll(List.of(SaveFileChangeType.FILE_REMOVED,
+                SaveFileChangeType.FILE_ADDED, SaveFileChangeType.DIRECTORY_ADDED)));
+    }
+
+    @Test
+    void openingARootIsNoExternalChangeTest() throws Exception {
+        Files.writeString(Files.createDirectories(this.root.resolve("Limgrave")).resolve("Margit.sl2"), "save");
+        assert (waitFor(() -> this.reported(SaveFileChangeType.FILE_ADDED, "Limgrave", "Margit")));
+        this.externalChanges.clear();
+        Files.writeString(Files.createDirectories(this.otherRoot.resolve("Caelid")).resolve("Radahn.sl2"), "save");
+        long version = this.index.getSnapshot().getVersion();
+
+        this.index.open(this.otherRoot);
+
+        assert (this.index.getSnapshot().getVersion() == version + 1);
+        assert (saveFiles(this.index, "Caelid").equals(List.of("Radahn")));
+        assert (saveFiles(this.index, "Limgrave").isEmpty());
+        assert (this.externalChanges.isEmpty());
+    }
+
+    private boolean reported(SaveFileChangeType type, String directory, String file) {
+        return this.externalChanges.stream()
+                .anyMatch(change -> change.type() == type && change.directory().equals(directory) && file.equals(change.file()));
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    static List<String> saveFiles(SaveFileIndex index, String directory) {
+        return index.getSaveFileResult().saveFileResult().stream()
+                .filter(saveDirectory -> saveDirectory.getDirectory().equals(directory))
+                .map(SaveDirectory::getSaveFiles)
+                .findFirst()
+                .orElse(List.of());
+    }
+}
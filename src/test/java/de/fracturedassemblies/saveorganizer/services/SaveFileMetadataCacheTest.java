@@ -0,0 +1,72 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveFileMetadata;
+import de.fracturedassemblies.saveorganizer.data.SlotSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+class SaveFileMetadataCacheTest {
+    @TempDir
+    Path directory;
+
+    private SaveFileStoreService saveFileStoreService;
+    private SaveFileMetadataCache saveFileMetadataCache;
+
+    @BeforeEach
+    void beforeEach() {
+        this.saveFileStoreService = new SaveFileStoreService("copy", new SaveFileLocks());
+        this.saveFileStoreService.open(this.directory);
+        this.saveFileMetadataCache = new SaveFileMetadataCache(this.saveFileStoreService, 100, 2, false);
+    }
+
+    @AfterEach
+    void afterEach() {
+        this.saveFileMetadataCache.close();
+    }
+
+    @Test
+    void parseSlotSummaryTest() throws Exception {
+        Path saveFile = this.directory.resolve("Limgrave.sl2");
+        Files.write(saveFile, TestSaveFiles.create(new String[] { "Tarnished", null, "Melina" }, (byte) 1));
+
+        SaveFileMetadata metadata = this.saveFileMetadataCache.get(List.of(saveFile)).get(saveFile);
+
+        assert (metadata.file().equals("Limgrave"));
+        assert (metadata.slots().equals(List.of(new SlotSummary(0, "Tarnished", 100, 3600), new SlotSummary(2, "Melina", 102, 10800))));
+    }
+
+    @Test
+    void unchangedFilesAreNotParsedAgainTest() throws Exception {
+        Path first = this.directory.resolve("Limgrave.sl2");
+        Path second = this.directory.resolve("Caelid.sl2");
+        Files.write(first, TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1));
+        Files.write(second, TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 2));
+
+        this.saveFileMetadataCache.get(List.of(first, second));
+        this.saveFileMetadataCache.get(List.of(first, second));
+        assert (this.saveFileMetadataCache.getParsedFiles() == 2);
+
+        Files.write(second, TestSaveFiles.create(new String[] { "Tarnished", "Ranni" }, (byte) 2));
+        Files.setLastModifiedTime(second, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        Map<Path, SaveFileMetadata> metadata = this.saveFileMetadataCache.get(List.of(first, second));
+
+        assert (this.saveFileMetadataCache.getParsedFiles() == 3);
+        assert (metadata.get(second).slots().size() == 2);
+    }
+
+    @Test
+    void unknownFormatHasNoSlotsTest() throws Exception {
+        Path saveFile = this.directory.resolve("Broken.sl2");
+        Files.writeString(saveFile, "not a save");
+
+        assert (this.saveFileMetadataCache.get(List.of(saveFile)).get(saveFile).slots() == null);
+    }
+}
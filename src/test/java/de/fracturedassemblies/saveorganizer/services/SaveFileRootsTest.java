@@ -0,0 +1,144 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SaveDirectory;
+import de.fracturedassemblies.saveorganizer.data.SaveRoot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@DirtiesContext
+class SaveFileRootsTest {
+    private static final Path ROOT = createRoot("save-organizer-default");
+    private static final Path SECOND_ROOT = createRoot("save-organizer-second");
+
+    @Autowired
+    private SaveFileRoots saveFileRoots;
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @Autowired
+    private SaveFileLocks saveFileLocks;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        for (Path root : List.of(ROOT, SECOND_ROOT)) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    void independentRootsTest() throws Exception {
+        ResponseEntity<SaveRoot> registered = this.saveFileRoots.register("second", SECOND_ROOT.toString());
+        assert (registered.getStatusCode() == HttpStatus.CREATED);
+        assert (this.saveFileRoots.register("second", ROOT.resolve("other").toString()).getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.saveFileRoots.register("third", SECOND_ROOT.toString()).getStatusCode() == HttpStatus.CONFLICT);
+        assert (this.saveFileRoots.register("third", ROOT.toString()).getStatusCode() == HttpStatus.CONFLICT);
+        assert (this.saveFileRoots.register("../third", SECOND_ROOT.toString()).getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.saveFileRoots.getRoots().stream().map(SaveRoot::name).toList().equals(List.of(SaveFileRoots.DEFAULT_ROOT, "second")));
+
+        FileOrganizerService second = this.saveFileRoots.get("second", FileOrganizerService.class);
+        assert (second != this.fileOrganizerService);
+        assert (this.saveFileRoots.get(null, FileOrganizerService.class) == this.fileOrganizerService);
+        assert (SECOND_ROOT.toString().equals(second.getSaveFilePath().getBody()));
+        assert (this.saveFileRoots.get("second", SaveFileLocks.class) != this.saveFileLocks);
+        assert (this.saveFileRoots.get("second", SaveFileMetrics.class) != this.saveFileRoots.get(null, SaveFileMetrics.class));
+
+        // The default root is locked completely, the second root is not affected
+        try (SaveFileLocks.Held held = this.saveFileLocks.exclusive()) {
+            ResponseEntity<Void> saved = CompletableFuture.supplyAsync(() -> second.saveFile("Profile", "Tarnished")).get(10, TimeUnit.SECONDS);
+            assert (saved.getStatusCode() == HttpStatus.OK);
+        }
+        assert (directories(second).equals(List.of("Profile")));
+        assert (directories(this.fileOrganizerService).isEmpty());
+        assert (Files.exists(second.resolveSaveFile("Profile", "Tarnished")));
+
+        assert (this.saveFileRoots.unregister("second").getStatusCode() == HttpStatus.OK);
+        assert (this.saveFileRoots.unregister(SaveFileRoots.DEFAULT_ROOT).getStatusCode() == HttpStatus.BAD_REQUEST);
+        try {
+            this.saveFileRoots.get("second", FileOrganizerService.class);
+            assert (false);
+        } catch (ResponseStatusException e) {
+            assert (e.getStatusCode() == HttpStatus.NOT_FOUND);
+        }
+        assert (Files.exists(SECOND_ROOT.resolve("Profile").resolve("Tarnished.sl2")));
+    }
+
+    @Test
+    void movedRootsStayApartTest() throws Exception {
+        Path third = createRoot("save-organizer-third");
+        try {
+            assert (this.saveFileRoots.register("second", SECOND_ROOT.toString()).getStatusCode() == HttpStatus.CREATED);
+            assert (this.saveFileRoots.setSaveFilePath("second", ROOT.toString()).getStatusCode() == HttpStatus.CONFLICT);
+            assert (this.saveFileRoots.setSaveFilePath(null, SECOND_ROOT.resolve("Profile").toString()).getStatusCode() == HttpStatus.CONFLICT);
+            assert (this.saveFileRoots.setSaveFilePath("unknown", third.toString()).getStatusCode() == HttpStatus.NOT_FOUND);
+            assert (ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()));
+
+            assert (this.saveFileRoots.setSaveFilePath("second", third.toString()).getStatusCode() == HttpStatus.OK);
+            assert (this.saveFileRoots.getRoots().contains(new SaveRoot("second", third.toString())));
+            assert (third.toString().equals(this.saveFileRoots.get("second", FileOrganizerService.class).getSaveFilePath().getBody()));
+            // The old path is free again, the new one is taken
+            assert (this.saveFileRoots.register("fourth", third.toString()).getStatusCode() == HttpStatus.CONFLICT);
+            assert (this.saveFileRoots.register("fourth", SECOND_ROOT.toString()).getStatusCode() == HttpStatus.CREATED);
+        } finally {
+            this.saveFileRoots.unregister("second");
+            this.saveFileRoots.unregister("fourth");
+            try (Stream<Path> paths = Files.walk(third)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static List<String> directories(FileOrganizerService fileOrganizerService) {
+        return fileOrganizerService.getSaveFiles().saveFileResult().stream().map(SaveDirectory::getDirectory).toList();
+    }
+
+    private static Path createRoot(String prefix) {
+        try {
+            Path root = Files.createTempDirectory(prefix).toAbsolutePath();
+            Files.write(root.resolve("ER0000.sl2"), TestSaveFiles.create(new String[] { "Live" }, (byte) 5));
+            return root;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
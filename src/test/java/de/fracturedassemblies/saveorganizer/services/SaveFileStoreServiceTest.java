@@ -0,0 +1,155 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.StoreMigrationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+class SaveFileStoreServiceTest {
+    @TempDir
+    Path root;
+
+    private SaveFileStoreService saveFileStoreService;
+    private Path chunks;
+
+    @BeforeEach
+    void beforeEach() {
+        this.saveFileStoreService = new SaveFileStoreService("dedup", new SaveFileLocks());
+        this.saveFileStoreService.open(this.root);
+        this.chunks = this.root.resolve(SaveFileStoreService.STORE_DIRECTORY).resolve("chunks");
+    }
+
+    @Test
+    void writeAndRestoreTest() throws Exception {
+        byte[] content = TestSaveFiles.create(new String[] { "Tarnished", null, "Ranni" }, (byte) 1);
+        Path source = Files.write(this.root.resolve("ER0000.sl2"), content);
+        Path directory = Files.createDirectories(this.root.resolve("Limgrave"));
+
+        this.saveFileStoreService.save(source, directory, "Margit");
+        assert (!Files.exists(directory.resolve("Margit.sl2")));
+        assert (Files.exists(directory.resolve("Margit.sl2m")));
+
+        Path restored = this.root.resolve("restored.sl2");
+        this.saveFileStoreService.load(directory, "Margit", restored);
+        assert (Arrays.equals(Files.readAllBytes(restored), content));
+    }
+
+    @Test
+    void snapshotsShareUnchangedSlotsTest() throws Exception {
+        byte[] content = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        Path first = Files.write(this.root.resolve("first.sl2"), content);
+        SaveFileLayout.Entry slot = SaveFileLayout.read(first).slot(3);
+        byte[] changed = content.clone();
+        Arrays.fill(changed, (int) slot.dataOffset(), (int) slot.end(), (byte) 42);
+        ChunkStore chunkStore = new ChunkStore(this.chunks);
+        Path second = Files.write(this.root.resolve("second.sl2"), changed);
+
+        ChunkStore.Manifest firstManifest = chunkStore.write(first, this.root.resolve("first.sl2m"));
+        long writtenBefore = chunkStore.getWrittenBytes();
+        ChunkStore.Manifest secondManifest = chunkStore.write(second, this.root.resolve("second.sl2m"));
+
+        // Only the changed slot is stored a second time
+        assert (chunkStore.getWrittenBytes() - writtenBefore == slot.size());
+        assert (firstManifest.chunks().size() == secondManifest.chunks().size());
+        List<ChunkStore.Chunk> different = secondManifest.chunks().stream().filter(chunk -> !firstManifest.chunks().contains(chunk)).toList();
+        assert (different.size() == 1);
+        assert (this.chunkFiles() == firstManifest.chunks().size() + 1);
+        assert (!firstManifest.contentHash().equals(secondManifest.contentHash()));
+    }
+
+    @Test
+    void migrateTest() throws Exception {
+        byte[] content = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        byte[] damaged = TestSaveFiles.create(new String[] { "Melina" }, (byte) 50);
+        Path directory = Files.createDirectories(this.root.resolve("Limgrave"));
+        Files.write(directory.resolve("Margit.sl2"), content);
+        Path damagedSave = Files.write(directory.resolve("Godrick.sl2"), damaged);
+        // A chunk already in the store under the hash of a slot of the second save, but with other content
+        SaveFileLayout.Entry slot = SaveFileLayout.read(damagedSave).slot(0);
+        String hash = HexFormat.of().formatHex(ChunkStore.sha256().digest(Arrays.copyOfRange(damaged, (int) slot.offset(), (int) slot.end())));
+        Path chunk = Files.createDirectories(this.chunks.resolve(hash.substring(0, 2))).resolve(hash);
+        Files.write(chunk, new byte[(int) slot.size()]);
+
+        StoreMigrationResult result = this.saveFileStoreService.migrate("Limgrave/");
+
+        assert (result.migratedFiles() == 1);
+        assert (result.failedFiles() == 1);
+        assert (result.logicalBytes() == content.length);
+        assert (!Files.exists(directory.resolve("Margit.sl2")));
+        Path restored = this.root.resolve("restored.sl2");
+        this.saveFileStoreService.load(directory, "Margit", restored);
+        assert (Arrays.equals(Files.readAllBytes(restored), content));
+        // The save whose manifest could not be verified is kept as it was
+        assert (Arrays.equals(Files.readAllBytes(damagedSave), damaged));
+        assert (!Files.exists(directory.resolve("Godrick.sl2m")));
+    }
+
+    @Test
+    void migrateStaysBelowTheRootTest() throws Exception {
+        Path outside = Files.createDirectories(this.root.resolve("Outside"));
+        Path save = Files.write(outside.resolve("Margit.sl2"), TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1));
+        SaveFileStoreService nested = new SaveFileStoreService("dedup", new SaveFileLocks());
+        nested.open(Files.createDirectories(this.root.resolve("Library")));
+
+        for (String directory : new String[] { "../Outside", "..", "", "Library/Nested" }) {
+            boolean rejected = false;
+            try {
+                nested.migrate(directory);
+            } catch (InvalidPathException e) {
+                rejected = true;
+            }
+            assert (rejected);
+        }
+        assert (Files.exists(save));
+    }
+
+    @Test
+    void collectGarbageTest() throws Exception {
+        Path source = Files.write(this.root.resolve("ER0000.sl2"), TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1));
+        Path directory = Files.createDirectories(this.root.resolve("Limgrave"));
+        this.saveFileStoreService.save(source, directory, "Margit");
+        Files.write(source, TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 9));
+        this.saveFileStoreService.save(source, directory, "Godrick");
+        long chunkFiles = this.chunkFiles();
+        Files.delete(directory.resolve("Margit.sl2m"));
+
+        // Unreferenced chunks are kept within the grace period, a save might be about to reference them
+        assert (this.saveFileStoreService.collectGarbage() == 0);
+        assert (this.chunkFiles() == chunkFiles);
+
+        this.ageChunks(Duration.ofHours(2));
+        int deleted = this.saveFileStoreService.collectGarbage();
+        assert (deleted > 0);
+        assert (this.chunkFiles() == chunkFiles - deleted);
+        Path restored = this.root.resolve("restored.sl2");
+        this.saveFileStoreService.load(directory, "Godrick", restored);
+        assert (Arrays.equals(Files.readAllBytes(restored), Files.readAllBytes(source)));
+    }
+
+    private long chunkFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(this.chunks)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private void ageChunks(Duration age) throws IOException {
+        FileTime modified = FileTime.from(Instant.now().minus(age));
+        try (Stream<Path> files = Files.walk(this.chunks)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.setLastModifiedTime(file, modified);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@DirtiesContext
+class SaveFileTransferServiceTest {
+    private static final Path ROOT = createRoot();
+
+    @Autowired
+    private FileOrganizerService fileOrganizerService;
+
+    @Autowired
+    private SaveFileTransferService saveFileTransferService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        for (String system : List.of("windows", "linux", "mac")) {
+            registry.add("save.file.path." + system, ROOT::toString);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!ROOT.toString().equals(this.fileOrganizerService.getSaveFilePath().getBody()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        try (Stream<Path> paths = Files.walk(ROOT)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void resumableUploadAndRangeDownloadTest() throws Exception {
+        byte[] content = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        int half = content.length / 2;
+        String etag = "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)) + "\"";
+
+        ResponseEntity<Void> first = this.upload(Arrays.copyOfRange(content, 0, half), "bytes 0-" + (half - 1) + "/" + content.length);
+        assert (first.getStatusCode() == HttpStatus.ACCEPTED);
+        assert (first.getHeaders().getFirst(HttpHeaders.RANGE).equals("bytes=0-" + (half - 1)));
+        ResponseEntity<Void> gap = this.upload(Arrays.copyOfRange(content, half + 1, content.length),
+                "bytes " + (half + 1) + "-" + (content.length - 1) + "/" + content.length);
+        assert (gap.getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        ResponseEntity<Void> last = this.upload(Arrays.copyOfRange(content, half, content.length),
+                "bytes " + half + "-" + (content.length - 1) + "/" + content.length);
+        assert (last.getStatusCode() == HttpStatus.OK);
+        assert (last.getHeaders().getETag().equals(etag));
+
+        ResponseEntity<StreamingResponseBody> full = this.saveFileTransferService.download("Remote", "Tarnished", new HttpHeaders());
+        assert (full.getStatusCode() == HttpStatus.OK);
+        assert (full.getHeaders().getETag().equals(etag));
+        assert (Arrays.equals(body(full), content));
+
+        HttpHeaders range = new HttpHeaders();
+        range.set(HttpHeaders.RANGE, "bytes=100-199");
+        range.set(HttpHeaders.IF_RANGE, etag);
+        ResponseEntity<StreamingResponseBody> partial = this.saveFileTransferService.download("Remote", "Tarnished", range);
+        assert (partial.getStatusCode() == HttpStatus.PARTIAL_CONTENT);
+        assert (partial.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE).equals("bytes 100-199/" + content.length));
+        assert (Arrays.equals(body(partial), Arrays.copyOfRange(content, 100, 200)));
+
+        range.set(HttpHeaders.IF_RANGE, "\"outdated\"");
+        assert (this.saveFileTransferService.download("Remote", "Tarnished", range).getStatusCode() == HttpStatus.OK);
+        HttpHeaders outside = new HttpHeaders();
+        outside.set(HttpHeaders.RANGE, "bytes=" + content.length + "-");
+        assert (this.saveFileTransferService.download("Remote", "Tarnished", outside).getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        HttpHeaders unchanged = new HttpHeaders();
+        unchanged.setIfNoneMatch(etag);
+        assert (this.saveFileTransferService.download("Remote", "Tarnished", unchanged).getStatusCode() == HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void downloadSurvivesReplacementTest() throws Exception {
+        byte[] original = TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1);
+        byte[] replacement = TestSaveFiles.create(new String[] { "Tarnished", "Nepheli" }, (byte) 2);
+        assert (this.upload("Replaced", original, null).getStatusCode() == HttpStatus.OK);
+        ResponseEntity<StreamingResponseBody> download = this.saveFileTransferService.download("Replaced", "Tarnished", new HttpHeaders());
+
+        String staleEtag = download.getHeaders().getETag();
+        assert (this.upload("Replaced", replacement, staleEtag).getStatusCode() == HttpStatus.OK);
+        assert (this.upload("Replaced", original, staleEtag).getStatusCode() == HttpStatus.PRECONDITION_FAILED);
+        assert (Arrays.equals(body(download), original));
+        assert (this.upload("Replaced", new byte[] { 1, 2, 3, 4 }, null).getStatusCode() == HttpStatus.BAD_REQUEST);
+        assert (this.saveFileTransferService.download("Replaced", "Missing", new HttpHeaders()).getStatusCode() == HttpStatus.NOT_FOUND);
+    }
+
+    private ResponseEntity<Void> upload(byte[] content, String contentRange) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
+        return this.saveFileTransferService.upload("Remote", "Tarnished", headers, new ByteArrayInputStream(content));
+    }
+
+    private ResponseEntity<Void> upload(String directory, byte[] content, String ifMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return this.saveFileTransferService.upload(directory, "Tarnished", headers, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static Path createRoot() {
+        try {
+            Path root = Files.createTempDirectory("save-organizer-transfer").toAbsolutePath();
+            Files.write(root.resolve("ER0000.sl2"), TestSaveFiles.create(new String[] { "Live" }, (byte) 3));
+            return root;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import de.fracturedassemblies.saveorganizer.data.SlotSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class SaveSlotServiceTest {
+    @TempDir
+    Path directory;
+
+    private SaveFileStoreService saveFileStoreService;
+    private SaveSlotService saveSlotService;
+
+    @BeforeEach
+    void beforeEach() {
+        this.saveFileStoreService = new SaveFileStoreService("copy", new SaveFileLocks());
+        this.saveFileStoreService.open(this.directory);
+        this.saveSlotService = new SaveSlotService(null, this.saveFileStoreService, new SaveFileLocks());
+    }
+
+    @Test
+    void transplantIntoSnapshotTest() throws Exception {
+        Path source = this.directory.resolve("Caelid.sl2");
+        Path target = this.directory.resolve("Limgrave.sl2");
+        byte[] sourceContent = TestSaveFiles.create(new String[] { "Tarnished", "Ranni" }, (byte) 1);
+        Files.write(source, sourceContent);
+        Files.write(target, TestSaveFiles.create(new String[] { "Melina" }, (byte) 5));
+
+        this.saveSlotService.transplantSlot(source, 1, target, 3, false);
+
+        byte[] patched = Files.readAllBytes(target);
+        SaveFileLayout layout = SaveFileLayout.read(target);
+        SaveFileLayout.Entry sourceSlot = SaveFileLayout.read(source).slot(1);
+        SaveFileLayout.Entry targetSlot = layout.slot(3);
+        assert (Arrays.equals(sourceContent, (int) sourceSlot.offset(), (int) sourceSlot.end(), patched, (int) targetSlot.offset(), (int) targetSlot.end()));
+        for (SaveFileLayout.Entry entry : layout.entries()) {
+            assert (hasValidChecksum(patched, entry));
+        }
+        assert (SaveFileMetadataCache.readSlots(patched.length, (offset, length) -> ByteBuffer.wrap(patched, (int) offset, length).slice())
+                .equals(List.of(new SlotSummary(0, "Melina", 100, 3600), new SlotSummary(3, "Ranni", 101, 7200))));
+    }
+
+    @Test
+    void transplantIntoLiveSaveKeepsBackupTest() throws Exception {
+        Path source = this.directory.resolve("Caelid.sl2");
+        Path live = this.directory.resolve("ER0000.sl2");
+        byte[] liveContent = TestSaveFiles.create(new String[] { "Melina" }, (byte) 5);
+        Files.write(source, TestSaveFiles.create(new String[] { "Tarnished" }, (byte) 1));
+        Files.write(live, liveContent);
+
+        this.saveSlotService.transplantSlot(source, 0, live, 0, true);
+
+        assert (Arrays.equals(Files.readAllBytes(AtomicFileReplacer.backupOf(live)), liveContent));
+        byte[] patched = Files.readAllBytes(live);
+        assert (SaveFileMetadataCache.readSlots(patched.length, (offset, length) -> ByteBuffer.wrap(patched, (int) offset, length).slice())
+                .equals(List.of(new SlotSummary(0, "Tarnished", 100, 3600))));
+    }
+
+    private static boolean hasValidChecksum(byte[] save, SaveFileLayout.Entry entry) {
+        byte[] expected = SaveSlotService.md5(ByteBuffer.wrap(save), (int) entry.dataOffset(), (int) entry.dataSize());
+        return Arrays.equals(save, (int) entry.offset(), (int) entry.dataOffset(), expected, 0, expected.length);
+    }
+}
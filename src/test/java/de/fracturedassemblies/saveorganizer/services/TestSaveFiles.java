@@ -0,0 +1,59 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Builds small BND4 containers shaped like Elden Ring saves: ten character slots and a USER_DATA_10 profile summary, each entry
+ * prefixed with the MD5 of its data.
+ */
+final class TestSaveFiles {
+    static final int SLOT_SIZE = 0x1000;
+    private static final int ENTRY_COUNT = 11;
+    private static final int DATA_START = 0x40 + ENTRY_COUNT * 0x20;
+    private static final int USER_DATA_SIZE = 16 + 0x195E + 10 * 0x24C;
+
+    private TestSaveFiles() {
+    }
+
+    /**
+     * Creates a save with the given characters, {@code null} marks an empty slot. Slot data is filled with {@code fill + slot}.
+     */
+    static byte[] create(String[] characters, byte fill) throws Exception {
+        ByteBuffer save = ByteBuffer.allocate(DATA_START + 10 * SLOT_SIZE + USER_DATA_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        save.put(0, "BND4".getBytes(StandardCharsets.US_ASCII));
+        save.putInt(0x0C, ENTRY_COUNT);
+        save.putLong(0x20, 0x20);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            int offset = DATA_START + i * SLOT_SIZE;
+            save.putLong(0x40 + i * 0x20 + 0x08, i < 10 ? SLOT_SIZE : USER_DATA_SIZE);
+            save.putInt(0x40 + i * 0x20 + 0x10, offset);
+            if (i < 10) {
+                for (int position = offset + 16; position < offset + SLOT_SIZE; position++) {
+                    save.put(position, (byte) (fill + i));
+                }
+            }
+        }
+        int userData = DATA_START + 10 * SLOT_SIZE + 16;
+        for (int slot = 0; slot < characters.length; slot++) {
+            if (characters[slot] == null) {
+                continue;
+            }
+            save.put(userData + 0x1954 + slot, (byte) 1);
+            int summary = userData + 0x195E + slot * 0x24C;
+            save.put(summary, characters[slot].getBytes(StandardCharsets.UTF_16LE));
+            save.putInt(summary + 0x22, 100 + slot);
+            save.putInt(summary + 0x26, 3600 * (slot + 1));
+        }
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            int offset = DATA_START + i * SLOT_SIZE;
+            int size = i < 10 ? SLOT_SIZE : USER_DATA_SIZE;
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(save.array(), offset + 16, size - 16);
+            save.put(offset, md5.digest());
+        }
+        return save.array();
+    }
+}
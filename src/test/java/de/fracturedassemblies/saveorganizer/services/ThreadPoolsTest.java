@@ -0,0 +1,70 @@
+package de.fracturedassemblies.saveorganizer.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+class ThreadPoolsTest {
+    @Test
+    void boundedExecutorRunsTasksInOrderTest() throws Exception {
+        // A thread per task as with virtual threads, threads waiting for a permit would get it in any order
+        ThreadPools.BoundedExecutor executor = new ThreadPools.BoundedExecutor(Executors.newCachedThreadPool(), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> started = new CopyOnWriteArrayList<>();
+        executor.execute(() -> await(release));
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            executor.execute(() -> started.add(task));
+        }
+        release.countDown();
+        executor.shutdown();
+
+        assert (executor.awaitTermination(10, TimeUnit.SECONDS));
+        assert (started.equals(IntStream.range(0, 100).boxed().toList()));
+    }
+
+    @Test
+    void boundedExecutorLimitsRunningTasksTest() throws Exception {
+        ThreadPools.BoundedExecutor executor = new ThreadPools.BoundedExecutor(Executors.newCachedThreadPool(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                started.incrementAndGet();
+                await(release);
+            });
+        }
+        Thread.sleep(100);
+        assert (started.get() == 2);
+
+        release.countDown();
+        executor.shutdown();
+        assert (executor.awaitTermination(10, TimeUnit.SECONDS));
+        assert (started.get() == 10);
+    }
+
+    @Test
+    void shutdownNowReturnsQueuedTasksTest() {
+        ThreadPools.BoundedExecutor executor = new ThreadPools.BoundedExecutor(Executors.newCachedThreadPool(), 1);
+        executor.execute(() -> await(new CountDownLatch(1)));
+        executor.execute(() -> { });
+        executor.execute(() -> { });
+
+        assert (executor.shutdownNow().size() == 2);
+        assert (executor.isShutdown());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}